@@ -0,0 +1,25 @@
+package com.StarMicronics.StarIOSDK;
+
+import android.graphics.Bitmap;
+
+public class BitmapPixelSource implements PixelSource {
+	// Lets StarBitmap in the core module read an Android Bitmap
+
+	private Bitmap mBitmap;
+
+	public BitmapPixelSource(Bitmap bitmap) {
+		mBitmap = bitmap;
+	}
+
+	public int getWidth() {
+		return mBitmap.getWidth();
+	}
+
+	public int getHeight() {
+		return mBitmap.getHeight();
+	}
+
+	public void getPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+		mBitmap.getPixels(pixels, offset, stride, x, y, width, height);
+	}
+}
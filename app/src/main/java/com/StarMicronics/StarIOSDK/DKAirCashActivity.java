@@ -22,7 +22,6 @@ import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -30,8 +29,6 @@ import android.graphics.Typeface;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
-import android.os.Message;
-import android.os.SystemClock;
 import android.text.InputFilter;
 import android.text.InputType;
 import android.text.Layout;
@@ -48,7 +45,6 @@ public class DKAirCashActivity extends Activity {
 	private Context me = this;
 	private String strInterface = "";
 	private String strPrintArea = "";
-	private PrintRecieptThread printthread = null;
 	private static int printableArea = 576; // for raster data
 	private static AlertDialog alert = null;
 
@@ -322,73 +318,57 @@ public class DKAirCashActivity extends Activity {
 	}
 
 	private void getPortDiscovery(String interfaceName) {
-		List<PortInfo> BTPortList;
-		List<PortInfo> TCPPortList;
-		final EditText editPortName;
-
-		final ArrayList<PortInfo> arrayDiscovery;
-		ArrayList<String> arrayPortName;
-
-		arrayDiscovery = new ArrayList<PortInfo>();
-		arrayPortName = new ArrayList<String>();
-
-		try {
-			if (interfaceName.equals("Bluetooth") == true || interfaceName.equals("All") == true) {
-				BTPortList = StarIOPort.searchPrinter("BT:");
-
-				for (PortInfo portInfo : BTPortList) {
-					arrayDiscovery.add(portInfo);
-				}
-			}
-
-			if (interfaceName.equals("LAN") == true || interfaceName.equals("All") == true) {
-				TCPPortList = StarIOPort.searchPrinter("TCP:");
-
-				for (PortInfo portInfo : TCPPortList) {
-					arrayDiscovery.add(portInfo);
-
-					// Check SAC10 model
-					if (portInfo.getModelName().startsWith("SAC") == true) {
-						arrayDiscovery.remove(portInfo);
-					}
-				}
-			}
-
-			arrayPortName = new ArrayList<String>();
-
-			for (PortInfo discovery : arrayDiscovery) {
-				String portName;
-
-				portName = discovery.getPortName();
+		showPortDiscovery(getTransports(interfaceName), false, R.id.editText_PortName, "printerportName", false, android.R.drawable.checkbox_on_background);
+	}
 
-				if (discovery.getMacAddress().equals("") == false) {
-					portName += "\n - " + discovery.getMacAddress();
-					if (discovery.getModelName().equals("") == false) {
-						portName += "\n - " + discovery.getModelName();
-					}
-				}
+	private void getDrawerPortDiscovery(String interfaceName) {
+		showPortDiscovery(getTransports(interfaceName), true, R.id.editText_DrawerPortName, "drawerportName", false, android.R.drawable.checkbox_on_background);
+	}
 
-				arrayPortName.add(portName);
-			}
+	public void getPortablePortDiscovery(View view) {
+		// "port discovery" of Portable printer is support only Bluetooth port
+		// Picking a portable printer also saves the drawer port name
+		showPortDiscovery(new String[] { "BT:" }, false, R.id.editText_PortName, "printerportName", true, R.drawable.icon);
+	}
 
-		} catch (StarIOPortException e) {
-			e.printStackTrace();
+	private static String[] getTransports(String interfaceName) {
+		if (interfaceName.equals("Bluetooth") == true) {
+			return new String[] { "BT:" };
+		} else if (interfaceName.equals("LAN") == true) {
+			return new String[] { "TCP:" };
 		}
+		return new String[] { "BT:", "TCP:" };
+	}
 
-		editPortName = new EditText(this);
+	/**
+	 * This function shows the port picker at once with the printers found by earlier searches and adds the printers to it as the search finds them
+	 *
+	 * @param drawer
+	 *     true to list the SAC10 drawers on the LAN instead of the printers
+	 * @param portNameFieldId
+	 *     Field to set to the selected port name
+	 * @param prefKey
+	 *     Preference to save the selected port name to
+	 * @param saveDrawerPort
+	 *     true to also save the drawer port name when a printer is selected from the list
+	 */
+	private void showPortDiscovery(String[] transports, final boolean drawer, final int portNameFieldId, final String prefKey, final boolean saveDrawerPort, int icon) {
+		final EditText editPortName = new EditText(this);
+		final ArrayList<PortInfo> arrayDiscovery = new ArrayList<PortInfo>();
+		final ArrayAdapter<String> arrayPortName = new ArrayAdapter<String>(this, android.R.layout.select_dialog_item);
 
-		new AlertDialog.Builder(this).setIcon(android.R.drawable.checkbox_on_background).setTitle("Please Select IP Address or Input Port Name").setCancelable(false).setView(editPortName).setPositiveButton("OK", new DialogInterface.OnClickListener() {
+		final AlertDialog dialog = new AlertDialog.Builder(this).setIcon(icon).setTitle("Searching for printers...").setCancelable(false).setView(editPortName).setPositiveButton("OK", new DialogInterface.OnClickListener() {
 
 			public void onClick(DialogInterface dialog, int button) {
 				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
 				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
 
-				EditText portNameField = (EditText) findViewById(R.id.editText_PortName);
+				EditText portNameField = (EditText) findViewById(portNameFieldId);
 				portNameField.setText(editPortName.getText());
 
 				SharedPreferences pref = getSharedPreferences("pref", MODE_PRIVATE);
 				Editor editor = pref.edit();
-				editor.putString("printerportName", portNameField.getText().toString());
+				editor.putString(prefKey, portNameField.getText().toString());
 				editor.commit();
 			}
 		}).setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
@@ -396,184 +376,57 @@ public class DKAirCashActivity extends Activity {
 			public void onClick(DialogInterface dialog, int button) {
 			}
 
-		}).setItems(arrayPortName.toArray(new String[0]), new DialogInterface.OnClickListener() {
+		}).setAdapter(arrayPortName, new DialogInterface.OnClickListener() {
 
 			public void onClick(DialogInterface dialog, int select) {
-				EditText portNameField = (EditText) findViewById(R.id.editText_PortName);
+				EditText portNameField = (EditText) findViewById(portNameFieldId);
 				portNameField.setText(arrayDiscovery.get(select).getPortName());
 
 				SharedPreferences pref = getSharedPreferences("pref", MODE_PRIVATE);
 				Editor editor = pref.edit();
-				editor.putString("printerportName", portNameField.getText().toString());
+				editor.putString(prefKey, portNameField.getText().toString());
+				if (saveDrawerPort == true) {
+					EditText drawerportNameField = (EditText) findViewById(R.id.editText_DrawerPortName);
+					editor.putString("drawerportName", drawerportNameField.getText().toString());
+				}
 				editor.commit();
 			}
 		}).show();
-	}
 
-	private void getDrawerPortDiscovery(String interfaceName) {
-		List<PortInfo> BTPortList;
-		List<PortInfo> TCPPortList;
-		final EditText editPortName;
-
-		final ArrayList<PortInfo> arrayDiscovery;
-		ArrayList<String> arrayPortName;
-
-		arrayDiscovery = new ArrayList<PortInfo>();
-		arrayPortName = new ArrayList<String>();
-
-		try {
-			if (interfaceName.equals("Bluetooth") == true || interfaceName.equals("All") == true) {
-				BTPortList = StarIOPort.searchPrinter("BT:");
-
-				for (PortInfo portInfo : BTPortList) {
-					arrayDiscovery.add(portInfo);
-				}
-			}
-
-			if (interfaceName.equals("LAN") == true || interfaceName.equals("All") == true) {
-				TCPPortList = StarIOPort.searchPrinter("TCP:");
-
-				for (PortInfo portInfo : TCPPortList) {
-
-					arrayDiscovery.add(portInfo);
-
-					// Check SAC10 model
-					if (portInfo.getModelName().startsWith("SAC") == false) {
-						arrayDiscovery.remove(portInfo);
-					}
+		final PortDiscovery discovery = PortDiscovery.start(this, transports, new PortDiscovery.Listener() {
 
+			public void onPortFound(PortInfo portInfo) {
+				// Check SAC10 model
+				if ((portInfo.getPortName().startsWith("TCP:") == true) && (portInfo.getModelName().startsWith("SAC") != drawer)) {
+					return;
 				}
-			}
-
-			arrayPortName = new ArrayList<String>();
 
-			for (PortInfo discovery : arrayDiscovery) {
-				String portName;
+				String portName = portInfo.getPortName();
 
-				portName = discovery.getPortName();
-
-				if (discovery.getMacAddress().equals("") == false) {
-					portName += "\n - " + discovery.getMacAddress();
-					if (discovery.getModelName().equals("") == false) {
-						portName += "\n - " + discovery.getModelName();
+				if (portInfo.getMacAddress().equals("") == false) {
+					portName += "\n - " + portInfo.getMacAddress();
+					if (portInfo.getModelName().equals("") == false) {
+						portName += "\n - " + portInfo.getModelName();
 					}
 				}
 
-				arrayPortName.add(portName);
-
-			}
-
-		} catch (StarIOPortException e) {
-			e.printStackTrace();
-		}
-
-		editPortName = new EditText(this);
-
-		new AlertDialog.Builder(this).setIcon(android.R.drawable.checkbox_on_background).setTitle("Please Select IP Address or Input Port Name").setCancelable(false).setView(editPortName).setPositiveButton("OK", new DialogInterface.OnClickListener() {
-
-			public void onClick(DialogInterface dialog, int button) {
-				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
-				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
-
-				EditText drawerportNameField = (EditText) findViewById(R.id.editText_DrawerPortName);
-				drawerportNameField.setText(editPortName.getText());
-				SharedPreferences pref = getSharedPreferences("pref", MODE_PRIVATE);
-				Editor editor = pref.edit();
-				editor.putString("drawerportName", drawerportNameField.getText().toString());
-				editor.commit();
-			}
-		}).setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
-
-			public void onClick(DialogInterface dialog, int button) {
-			}
-
-		}).setItems(arrayPortName.toArray(new String[0]), new DialogInterface.OnClickListener() {
-
-			public void onClick(DialogInterface dialog, int select) {
-				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
-				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
-
-				EditText drawerportNameField = (EditText) findViewById(R.id.editText_DrawerPortName);
-				drawerportNameField.setText(arrayDiscovery.get(select).getPortName());
-
-				SharedPreferences pref = getSharedPreferences("pref", MODE_PRIVATE);
-				Editor editor = pref.edit();
-				editor.putString("drawerportName", drawerportNameField.getText().toString());
-				editor.commit();
-			}
-		}).show();
-	}
-
-	public void getPortablePortDiscovery(View view) {
-		List<PortInfo> BTPortList;
-
-		final EditText editPortName;
-		final ArrayList<PortInfo> arrayDiscovery;
-
-		ArrayList<String> arrayPortName;
-
-		arrayDiscovery = new ArrayList<PortInfo>();
-		arrayPortName = new ArrayList<String>();
-
-		try {
-			BTPortList = StarIOPort.searchPrinter("BT:"); // "port discovery" of Portable printer is support only Bluetooth port
-
-			for (PortInfo portInfo : BTPortList) {
 				arrayDiscovery.add(portInfo);
-			}
-
-			arrayPortName = new ArrayList<String>();
-
-			for (PortInfo discovery : arrayDiscovery) {
-				String portName;
-
-				portName = discovery.getPortName();
-
-				if (discovery.getMacAddress().equals("") == false) {
-					portName += "\n - " + discovery.getMacAddress();
-					if (discovery.getModelName().equals("") == false) {
-						portName += "\n - " + discovery.getModelName();
-					}
-				}
 				arrayPortName.add(portName);
 			}
 
-		} catch (StarIOPortException e) {
-			e.printStackTrace();
-		}
-
-		editPortName = new EditText(this);
+			public void onDiscoveryFinished(List<PortInfo> ports) {
+				dialog.setTitle("Please Select IP Address or Input Port Name");
+			}
 
-		new AlertDialog.Builder(this).setIcon(R.drawable.icon).setTitle("Please Select IP Address or Input Port Name").setCancelable(false).setView(editPortName).setPositiveButton("OK", new DialogInterface.OnClickListener() {
-			public void onClick(DialogInterface dialog, int button) {
-				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
-				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
+		});
 
-				EditText portNameField = (EditText) findViewById(R.id.editText_PortName);
-				portNameField.setText(editPortName.getText());
+		dialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
 
-				SharedPreferences pref = getSharedPreferences("pref", MODE_PRIVATE);
-				Editor editor = pref.edit();
-				editor.putString("printerportName", portNameField.getText().toString());
-				editor.commit();
-			}
-		}).setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
-			public void onClick(DialogInterface dialog, int button) {
+			public void onDismiss(DialogInterface dialog) {
+				discovery.cancel();
 			}
-		}).setItems(arrayPortName.toArray(new String[0]), new DialogInterface.OnClickListener() {
-			public void onClick(DialogInterface dialog, int select) {
-				EditText portNameField = (EditText) findViewById(R.id.editText_PortName);
-				EditText drawerportNameField = (EditText) findViewById(R.id.editText_DrawerPortName);
-
-				portNameField.setText(arrayDiscovery.get(select).getPortName());
 
-				SharedPreferences pref = getSharedPreferences("pref", MODE_PRIVATE);
-				Editor editor = pref.edit();
-				editor.putString("printerportName", portNameField.getText().toString());
-				editor.putString("drawerportName", drawerportNameField.getText().toString());
-				editor.commit();
-			}
-		}).show();
+		});
 	}
 
 	public void DrawerPortDiscovery(View view) {
@@ -702,10 +555,8 @@ public class DKAirCashActivity extends Activity {
 				EditText drawerportNameField = (EditText) findViewById(R.id.editText_DrawerPortName);
 				final String drawerportName = drawerportNameField.getText().toString();
 				final String drawerportSettings = getPortSettingsOption(drawerportName, true);
-
-				final EditText editView = new EditText(DKAirCashActivity.this);
-				editView.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD);
-				editView.setFilters(new InputFilter[] { new InputFilter.LengthFilter(4) });
+				PrinterTypeActivity.setDrawerPortName(drawerportName);
+				PrinterTypeActivity.setDrawerPortSettings(drawerportSettings);
 
 				final byte[] commands = new byte[] { 0x07 }; // Drawer open command
 
@@ -719,45 +570,10 @@ public class DKAirCashActivity extends Activity {
 
 					ArrayList<byte[]> list = CreateSampleReceipt(PrinterTypeActivity.getPortName(), PrinterTypeActivity.getPortSettings(), commandType, getResources(), strPrintArea);
 
-					byte[] commandToSendToPrinter = convertFromListByteArrayTobyteArray(list);
-
-					printthread = new PrintRecieptThread(me, PrinterTypeActivity.getPortName(), PrinterTypeActivity.getPortSettings(), commandToSendToPrinter);
-					printthread.start();// Start Thread
+					// Start Printing, the drawer is opened when the print job has finished
+					PrintJob job = PrintService.print(me, PrinterTypeActivity.getPortName(), PrinterTypeActivity.getPortSettings(), list, new PrintFailureNotifier(me));
 
-					int result = printthread.startPrint(); // Start Printing
-
-					if (result == 0) {
-
-						if (getInputPassword()) { // ON
-
-							// show password dialog
-							new AlertDialog.Builder(DKAirCashActivity.this).setIcon(android.R.drawable.ic_dialog_info).setTitle("Please Input Password").setView(editView).setCancelable(false).setPositiveButton("OK", new DialogInterface.OnClickListener() {
-								public void onClick(DialogInterface dialog, int whichButton) {
-									((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
-									((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
-
-									String sText = editView.getText().toString();
-
-									// Password check
-									if (sText.matches("1234")) {
-										communicationOpenDrawer(drawerportName, drawerportSettings, commands);
-									} else {
-										// Drawer ReleasePort
-										postMessage("Failure", "The password is incorrect. stop the process.");
-									}
-								}
-							}).setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
-								public void onClick(DialogInterface dialog, int whichButton) {
-									((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
-									((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
-
-								}
-							}).show();
-
-						} else { // OFF
-							communicationOpenDrawer(drawerportName, drawerportSettings, commands);
-						}
-					}
+					job.addListener(openDrawerAfterPrint(drawerportName, drawerportSettings, commands));
 
 				} else { // Portable Printer
 
@@ -766,40 +582,9 @@ public class DKAirCashActivity extends Activity {
 					// Portable Printer
 					PrinterTypeActivity.setPortSettings("mini");
 
-					boolean result = MiniPrinterFunctions.PrintSampleReceipt(me, PrinterTypeActivity.getPortName(), PrinterTypeActivity.getPortSettings(), strPrintArea);
+					PrintJob job = MiniPrinterFunctions.PrintSampleReceipt(me, PrinterTypeActivity.getPortName(), PrinterTypeActivity.getPortSettings(), strPrintArea);
 
-					if (result == true) {
-						if (getInputPassword()) { // ON
-
-							// show password dialog
-							new AlertDialog.Builder(DKAirCashActivity.this).setIcon(android.R.drawable.ic_dialog_info).setTitle("Please Input Password").setView(editView).setCancelable(false).setPositiveButton("OK", new DialogInterface.OnClickListener() {
-
-								public void onClick(DialogInterface dialog, int whichButton) {
-									((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
-									((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
-
-									String sText = editView.getText().toString();
-
-									// Password check
-									if (sText.matches("1234")) {
-										communicationOpenDrawer(drawerportName, drawerportSettings, commands);
-									} else {
-										// Drawer ReleasePort
-										postMessage("Failure", "The password is incorrect. Stop the process.");
-									}
-								}
-							}).setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
-
-								public void onClick(DialogInterface dialog, int whichButton) {
-									((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
-									((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
-								}
-							}).show();
-
-						} else { // OFF
-							communicationOpenDrawer(drawerportName, drawerportSettings, commands);
-						}
-					}
+					job.addListener(openDrawerAfterPrint(drawerportName, drawerportSettings, commands));
 				}
 			}
 		});
@@ -822,16 +607,11 @@ public class DKAirCashActivity extends Activity {
 				StarPrinterStatus status = new StarPrinterStatus();
 
 				try {
-					port = StarIOPort.getPort(drawerportName, drawerportSetting, 10000);
+					port = PortPool.lease(me, drawerportName, drawerportSetting, 10000);
 					status = port.beginCheckedBlock();
 				} catch (StarIOPortException e) {
 
-					if (port != null) {
-						try {
-							StarIOPort.releasePort(port);
-						} catch (StarIOPortException e1) {
-						}
-					}
+					PortPool.evict(port);
 					port = null;
 
 				}
@@ -850,12 +630,7 @@ public class DKAirCashActivity extends Activity {
 				if (status.compulsionSwitch == true) {
 					postMessage("Warning", "Drawer was already opened");
 
-					if (port != null) {
-						try {
-							StarIOPort.releasePort(port);
-						} catch (StarIOPortException e) {
-						}
-					}
+					PortPool.giveBack(port);
 
 					return;
 				}
@@ -867,28 +642,15 @@ public class DKAirCashActivity extends Activity {
 					@Override
 					protected StarPrinterStatus doInBackground(Void... params) {
 						StarPrinterStatus status = new StarPrinterStatus();
-						long startTimeMillis = System.currentTimeMillis();
 
 						try {
 							port.writePort(drawerCommand, 0, drawerCommand.length);
 
 							status = port.endCheckedBlock();
-
-							while (true) { // check drawer open status for 3 sec
-								SystemClock.sleep(200);
-
-								status = port.retreiveStatus();
-								if (status.compulsionSwitch == true) {
-									break;
-								}
-
-								if (System.currentTimeMillis() - startTimeMillis > 3000) {
-									break;
-								}
-							}
-
 						} catch (StarIOPortException e) {
-							// Ignore. 'onPostExecute' will show an error message.
+							// Ignore. The drawer watcher will show an error message.
+							PortPool.evict(port);
+							port = null;
 						}
 
 						return status;
@@ -896,88 +658,10 @@ public class DKAirCashActivity extends Activity {
 
 					@Override
 					protected void onPostExecute(StarPrinterStatus status) {
+						PortPool.giveBack(port);
 
-						if ((status.offline == false) && (status.compulsionSwitch == true)) {
-							postMessage("", "Waiting for drawer to close");
-						} else {
-							if (status.compulsionSwitch == false) {
-								postMessage("Error", "Drawer didn't open");
-							}
-
-							if (port != null) {
-								try {
-									StarIOPort.releasePort(port);
-									SystemClock.sleep(1000); // 1sec
-								} catch (StarIOPortException e) {
-								}
-							}
-
-							return;
-						}
-
-						AsyncTask<Void, Void, Boolean> task2 = new AsyncTask<Void, Void, Boolean>() {
-
-							StarPrinterStatus status = new StarPrinterStatus();
-
-							@Override
-							protected Boolean doInBackground(Void... params) {
-								int timeoutMillis = 30000; // 30sec
-								long startTimeMillis = System.currentTimeMillis();
-								while (true) { // check drawer close status
-									try {
-										status = port.retreiveStatus();
-
-										if (status.compulsionSwitch == false) {
-											return true;
-										}
-
-										if (System.currentTimeMillis() - startTimeMillis > timeoutMillis) {
-											return false;
-										}
-
-										SystemClock.sleep(150);
-									} catch (StarIOPortException e) {
-										return false;
-									}
-								}
-							}
-
-							@Override
-							protected void onPostExecute(Boolean result) {
-								if (port != null) {
-									try {
-										StarIOPort.releasePort(port);
-									} catch (StarIOPortException e) {
-									}
-								}
-
-								if (result == true) {
-									postMessage("", "Completed successfully");
-
-									AsyncTask<Void, Void, Boolean> task3 = new AsyncTask<Void, Void, Boolean>() {
-
-										@Override
-										protected Boolean doInBackground(Void... params) {
-											SystemClock.sleep(2000);
-											return true;
-										}
-
-										@Override
-										protected void onPostExecute(Boolean result) {
-											postMessage("", "");
-										}
-
-									};
-									task3.execute();
-
-								} else {
-									postMessage("Error", "Drawer didn't close within 30 seconds");
-								}
-							}
-
-						};
-						task2.execute();
-
+						// The status monitor of the drawer reports when it opens and closes
+						new DrawerWatcher(StatusMonitor.get(me, drawerportName, drawerportSetting)).start();
 					} // task onPostExecute
 				};
 
@@ -988,6 +672,101 @@ public class DKAirCashActivity extends Activity {
 		DrawerOpenCheckTask.execute();
 	}
 
+	private class DrawerWatcher implements StatusMonitor.Listener {
+		private StatusMonitor monitor;
+		private Handler handler = new Handler();
+		private boolean opened = false;
+		private boolean finished = false;
+
+		private final Runnable openTimeout = new Runnable() {
+			public void run() {
+				finish("Error", "Drawer didn't open");
+			}
+		};
+
+		private final Runnable closeTimeout = new Runnable() {
+			public void run() {
+				finish("Error", "Drawer didn't close within 30 seconds");
+			}
+		};
+
+		DrawerWatcher(StatusMonitor monitor) {
+			this.monitor = monitor;
+		}
+
+		void start() {
+			monitor.beginActivity();
+			handler.postDelayed(openTimeout, 3000); // check drawer open status for 3 sec
+			monitor.addListener(this);
+		}
+
+		public void onStatusChanged(StatusMonitor monitor, final StarPrinterStatus status, List<StatusMonitor.Transition> transitions) {
+			runOnUiThread(new Runnable() {
+				public void run() {
+					update(status);
+				}
+			});
+		}
+
+		private void update(StarPrinterStatus status) {
+			if (finished == true) {
+				return;
+			}
+
+			if (opened == false) {
+				if (status == null) {
+					finish("Error", "Drawer didn't open");
+				} else if ((status.offline == false) && (status.compulsionSwitch == true)) {
+					opened = true;
+					handler.removeCallbacks(openTimeout);
+
+					postMessage("", "Waiting for drawer to close");
+					handler.postDelayed(closeTimeout, 30000);
+				}
+			} else {
+				if (status == null) {
+					finish("Error", "Drawer didn't close within 30 seconds");
+				} else if (status.compulsionSwitch == false) {
+					finish("", "Completed successfully");
+
+					handler.postDelayed(new Runnable() {
+						public void run() {
+							postMessage("", "");
+						}
+					}, 2000);
+				}
+			}
+		}
+
+		private void finish(String title, String message) {
+			finished = true;
+			handler.removeCallbacks(openTimeout);
+			handler.removeCallbacks(closeTimeout);
+
+			monitor.removeListener(this);
+			monitor.endActivity();
+
+			postMessage(title, message);
+		}
+	}
+
+	private PrintService.Listener openDrawerAfterPrint(final String drawerportName, final String drawerportSettings, final byte[] command) {
+		return new PrintService.Listener() {
+			public void onPrintFinished(PrintJob job, PrintResult result) {
+				// Failures are shown by the PrintFailureNotifier of the job
+				if (result.isSuccess() == false) {
+					return;
+				}
+
+				runOnUiThread(new Runnable() {
+					public void run() {
+						kickCashDrawer(drawerportName, drawerportSettings, command);
+					}
+				});
+			}
+		};
+	}
+
 	private void kickCashDrawer(final String drawerportName, final String drawerportSettings, final byte[] command) {
 
 		final EditText editView = new EditText(DKAirCashActivity.this);
@@ -1091,78 +870,20 @@ public class DKAirCashActivity extends Activity {
 		PrinterFunctions.CheckDipSwitchSettings(this, portName, portSettings);
 	}
 
-	private static byte[] convertFromListByteArrayTobyteArray(List<byte[]> ByteArray) {
-		int dataLength = 0;
-		for (int i = 0; i < ByteArray.size(); i++) {
-			dataLength += ByteArray.get(i).length;
-		}
-
-		int distPosition = 0;
-		byte[] byteArray = new byte[dataLength];
-		for (int i = 0; i < ByteArray.size(); i++) {
-			System.arraycopy(ByteArray.get(i), 0, byteArray, distPosition, ByteArray.get(i).length);
-			distPosition += ByteArray.get(i).length;
-		}
-
-		return byteArray;
-	}
-
 	private void sendCommand(Context context, String portName, String portSettings, ArrayList<byte[]> byteList) {
-		StarIOPort port = null;
-		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			port = StarIOPort.getPort(portName, portSettings, 10000, context);
-
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1
-			 *     port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-
-			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-			}
-
-			/*
-			 * Using Begin / End Checked Block method When sending large amounts
-			 * of raster data, adjust the value in the timeout in the "StarIOPort.getPort"
-			 *  in order to prevent "timeout" of the "endCheckedBlock method" while a printing.
-			 * 
-			 * If receipt print is success but timeout error occurs(Show message which is
-			 * "There was no response of the printer within the timeout period."),
-			 *  need to change value of timeout more longer in "StarIOPort.getPort" method.
-			 *  (e.g.) 10000 -> 30000
-			 */
-			StarPrinterStatus status = port.beginCheckedBlock();
-
-			if (status.offline == true) {
-				throw new StarIOPortException("A printer is offline");
-			}
-
-			byte[] commandToSendToPrinter = convertFromListByteArrayTobyteArray(byteList);
-			port.writePort(commandToSendToPrinter, 0, commandToSendToPrinter.length);
-
-			status = port.endCheckedBlock();
-
-			if (status.coverOpen == true) {
-				throw new StarIOPortException("Printer cover is open");
-			} else if (status.receiptPaperEmpty == true) {
-				throw new StarIOPortException("Receipt paper is empty");
-			} else if (status.offline == true) {
-				throw new StarIOPortException("Printer is offline");
-			}
-		} catch (StarIOPortException e) {
-			postMessage("Failure", e.getMessage());
-		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
+		PrintService.print(context, portName, portSettings, byteList, new PrintService.Listener() {
+			public void onPrintFinished(PrintJob job, final PrintResult result) {
+				if (result.isSuccess() == true) {
+					return;
 				}
+
+				runOnUiThread(new Runnable() {
+					public void run() {
+						postMessage("Failure", result.getMessage());
+					}
+				});
 			}
-		}
+		});
 	}
 
 	/**
@@ -1366,9 +1087,7 @@ public class DKAirCashActivity extends Activity {
 				textToPrint = ("Within 30 days with receipt\r\n" + "And tags attached");
 				list.add(createRasterCommand(textToPrint, 13, 0));
 
-				Bitmap bm = BitmapFactory.decodeResource(res, R.drawable.qrcode);
-				StarBitmap starbitmap = new StarBitmap(bm, false, 146);
-				list.add(starbitmap.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.qrcode, 146));
 
 				list.add(rasterDoc.EndDocumentCommandData());
 
@@ -1413,9 +1132,7 @@ public class DKAirCashActivity extends Activity {
 				textToPrint = ("Within 30 days with receipt\r\n" + "And tags attached");
 				list.add(createRasterCommand(textToPrint, 13, 0));
 
-				Bitmap bm = BitmapFactory.decodeResource(res, R.drawable.qrcode);
-				StarBitmap starbitmap = new StarBitmap(bm, false, 146);
-				list.add(starbitmap.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.qrcode, 146));
 
 				list.add(rasterDoc.EndDocumentCommandData());
 
@@ -1456,7 +1173,7 @@ public class DKAirCashActivity extends Activity {
 		c.translate(0, 0);
 		staticLayout.draw(c);
 
-		StarBitmap starbitmap = new StarBitmap(bitmap, false, printableArea);
+		StarBitmap starbitmap = new StarBitmap(new BitmapPixelSource(bitmap), false, printableArea);
 
 		command = starbitmap.getImageRasterDataForPrinting(true);
 
@@ -1648,50 +1365,41 @@ public class DKAirCashActivity extends Activity {
 	 *     boolean variable to tell the sensor active of CashDrawer which is High
 	 */
 	public void CheckStatus(Context context, String portName, String portSettings, boolean sensorActiveHigh) {
-		StarIOPort port = null;
-		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			port = StarIOPort.getPort(portName, portSettings, 10000, context);
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1
-			 *     port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
-			}
-
-			StarPrinterStatus status = port.retreiveStatus();
+		final StatusMonitor monitor = StatusMonitor.get(context, portName, portSettings);
 
-			if (status.offline == false) {
-				postMessage("Printer", "Printer is online");
-			} else {
-				String message = "Printer is offline";
-
-				if (status.receiptPaperEmpty == true) {
-					message += "\nPaper is empty";
+		// The status is read in the background, since a print or drawer job may be holding the port
+		new AsyncTask<Void, Void, StarPrinterStatus>() {
+			@Override
+			protected StarPrinterStatus doInBackground(Void... params) {
+				try {
+					// The status is shared with the listeners of the status monitor
+					return monitor.readStatus();
+				} catch (StarIOPortException e) {
+					return null;
 				}
+			}
 
-				if (status.coverOpen == true) {
-					message += "\nCover is open";
-				}
+			@Override
+			protected void onPostExecute(StarPrinterStatus status) {
+				if (status == null) {
+					postMessage("Failure", "Failed to connect to printer");
+				} else if (status.offline == false) {
+					postMessage("Printer", "Printer is online");
+				} else {
+					String message = "Printer is offline";
 
-				postMessage("Printer", message);
-			}
+					if (status.receiptPaperEmpty == true) {
+						message += "\nPaper is empty";
+					}
 
-		} catch (StarIOPortException e) {
-			postMessage("Failure", "Failed to connect to printer");
-		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
+					if (status.coverOpen == true) {
+						message += "\nCover is open";
+					}
+
+					postMessage("Printer", message);
 				}
 			}
-		}
+		}.execute();
 	}
 
 	/**
@@ -1706,50 +1414,43 @@ public class DKAirCashActivity extends Activity {
 	 *     Should be blank
 	 */
 	public void CheckDrawerStatus(Context context, String portName, String portSettings) {
-		StarIOPort port = null;
-		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			port = StarIOPort.getPort(portName, portSettings, 10000, context);
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1
-			 *     port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
-			}
+		final StatusMonitor monitor = StatusMonitor.get(context, portName, portSettings);
 
-			StarPrinterStatus status = port.retreiveStatus();
-
-			String message;
-			if (status.offline == false) {
-				if (status.compulsionSwitch == false) {
-					message = "The Drawer is online\nCash Drawer: Close";
-				} else {
-					message = "The Drawer is online\nCash Drawer: Open";
-				}
-			} else {
-				if (status.compulsionSwitch == false) {
-					message = "The Drawer is offline\nCash Drawer: Close";
-				} else {
-					message = "The Drawer is offline\nCash Drawer: Open";
+		// The status is read in the background, since a print or drawer job may be holding the port
+		new AsyncTask<Void, Void, StarPrinterStatus>() {
+			@Override
+			protected StarPrinterStatus doInBackground(Void... params) {
+				try {
+					return monitor.readStatus();
+				} catch (StarIOPortException e) {
+					return null;
 				}
 			}
-			postMessage("Drawer", message);
 
-		} catch (StarIOPortException e) {
-			postMessage("Failure", "Failed to connect to drawer");
-		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
+			@Override
+			protected void onPostExecute(StarPrinterStatus status) {
+				if (status == null) {
+					postMessage("Failure", "Failed to connect to drawer");
+					return;
 				}
+
+				String message;
+				if (status.offline == false) {
+					if (status.compulsionSwitch == false) {
+						message = "The Drawer is online\nCash Drawer: Close";
+					} else {
+						message = "The Drawer is online\nCash Drawer: Open";
+					}
+				} else {
+					if (status.compulsionSwitch == false) {
+						message = "The Drawer is offline\nCash Drawer: Close";
+					} else {
+						message = "The Drawer is offline\nCash Drawer: Open";
+					}
+				}
+				postMessage("Drawer", message);
 			}
-		}
+		}.execute();
 	}
 
 	protected void postMessage(String titleText, String messageText) {
@@ -1777,105 +1478,3 @@ public class DKAirCashActivity extends Activity {
 		}
 	}
 }
-
-class PrintRecieptThread extends Thread {
-
-	private StarIOPort port = null;
-	private String portSettings = "";
-	private String portName = "";
-	private Context me;
-	private byte[] commandToSendToPrinter = null;
-
-	public PrintRecieptThread(Context context, String portName, String portSettings, byte[] commandToSendToPrinter) {
-		this.portName = portName;
-		this.portSettings = portSettings;
-		this.me = context;
-		this.commandToSendToPrinter = commandToSendToPrinter;
-	}
-
-	public void run() {
-	}
-
-	public int startPrint() {
-
-		int result = 0;
-
-		try {
-			port = StarIOPort.getPort(portName, portSettings, 10000, me);
-
-			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-			}
-
-			StarPrinterStatus status = port.beginCheckedBlock();
-
-			if (true == status.offline) {
-				result = -1;
-				String message = "A printer is offline";
-				printhandler.obtainMessage(2, message).sendToTarget();
-			}
-
-			port.writePort(commandToSendToPrinter, 0, commandToSendToPrinter.length);
-
-			// Change the timeout time of endCheckedBlock method.
-			port.setEndCheckedBlockTimeoutMillis(30000);
-
-			status = port.endCheckedBlock();
-
-			if (status.coverOpen == true) {
-				result = -1;
-				String message = "Printer cover is open";
-				printhandler.obtainMessage(2, message).sendToTarget();
-			} else if (status.receiptPaperEmpty == true) {
-				result = -1;
-				String message = "Receipt paper is empty";
-				printhandler.obtainMessage(2, message).sendToTarget();
-			} else if (status.offline == true) {
-				result = -1;
-				String message = "Printer is offline";
-				printhandler.obtainMessage(2, message).sendToTarget();
-			}
-		} catch (StarIOPortException e) {
-			printhandler.obtainMessage(2, e.getMessage()).sendToTarget();
-			result = -1;
-		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
-					result = -1;
-				}
-			}
-		}
-
-		return result;
-	}
-
-	private final Handler printhandler = new Handler() {
-		public void handleMessage(Message message) {
-			try {
-				switch (message.what) {
-				case 1:
-					Builder dialog = new AlertDialog.Builder(me);
-					dialog.setNegativeButton("OK", null);
-					dialog.setTitle("Failure");
-					dialog.setMessage("Service discovery failed.");
-					AlertDialog alert = dialog.create();
-					alert.show();
-					break;
-
-				case 2:
-					Builder dialog2 = new AlertDialog.Builder(me);
-					dialog2.setNegativeButton("OK", null);
-					dialog2.setTitle("Failure");
-					dialog2.setMessage(message.obj.toString());
-					AlertDialog alert2 = dialog2.create();
-					alert2.show();
-					break;
-				}
-			} catch (Exception e) {
-			}
-		}
-	};
-}
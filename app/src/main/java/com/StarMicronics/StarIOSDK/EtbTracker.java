@@ -0,0 +1,117 @@
+package com.StarMicronics.StarIOSDK;
+
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+import com.starmicronics.stario.StarPrinterStatus;
+
+class EtbTracker {
+	// Counts the ETBs written inside a checked block and how many of them the printer has reached
+
+	// The ETB counter of the printer has 5 bits, so at most 31 ETBs can be told apart
+	static final int MAX_OUTSTANDING = 30;
+
+	private static final byte[] ETB = new byte[] { 0x17 };
+	private static final long POLL_MILLIS = 50;
+
+	private StarIOPort mPort;
+	private int mCounter;
+	private int mWritten = 0;
+	private int mPrinted = 0;
+	private StarPrinterStatus mStatus;
+
+	/**
+	 * @param port
+	 *     Port of the checked block
+	 * @param beginStatus
+	 *     Status returned by beginCheckedBlock
+	 */
+	EtbTracker(StarIOPort port, StarPrinterStatus beginStatus) {
+		mPort = port;
+		mCounter = beginStatus.etbCounter;
+		mStatus = beginStatus;
+	}
+
+	void write(ChunkedWriter writer) throws StarIOPortException {
+		writer.write(ETB);
+		mWritten++;
+	}
+
+	int getWritten() {
+		return mWritten;
+	}
+
+	int getPrinted() {
+		return mPrinted;
+	}
+
+	int getOutstanding() {
+		return mWritten - mPrinted;
+	}
+
+	StarPrinterStatus getStatus() {
+		return mStatus;
+	}
+
+	/**
+	 * This function polls the status until the printer has reached the given number of ETBs
+	 *
+	 * @param target
+	 *     Number of ETBs to wait for
+	 * @param timeoutMillis
+	 *     Time allowed between two ETBs. The timeout restarts whenever the printer reaches the next one.
+	 * @return
+	 *     true if the target was reached, false if the printer reported an error (cover open, paper empty or offline)
+	 */
+	boolean waitFor(int target, long timeoutMillis) throws StarIOPortException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+
+		while (true) {
+			if (update() == true) {
+				deadline = System.currentTimeMillis() + timeoutMillis;
+			}
+
+			if (mPrinted >= target) {
+				return true;
+			}
+
+			if (PrintResult.fromStatus(mStatus).isSuccess() == false) {
+				return false;
+			}
+
+			if (System.currentTimeMillis() > deadline) {
+				throw new StarIOPortException("There was no response of the printer within the timeout period.");
+			}
+
+			try {
+				Thread.sleep(POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new StarIOPortException("Interrupted while waiting for the printer");
+			}
+		}
+	}
+
+	/**
+	 * This function reads the status once without waiting for the printer
+	 *
+	 * @return
+	 *     false if the printer reported an error (cover open, paper empty or offline)
+	 */
+	boolean poll() throws StarIOPortException {
+		update();
+		return PrintResult.fromStatus(mStatus).isSuccess();
+	}
+
+	private boolean update() throws StarIOPortException {
+		mStatus = mPort.retreiveStatus();
+
+		// The counter wraps around, so only its advance since the last poll is used
+		int advance = (mStatus.etbCounter - mCounter + 32) % 32;
+		mCounter = mStatus.etbCounter;
+		if (advance > 0) {
+			mPrinted = Math.min(mPrinted + advance, mWritten);
+			return true;
+		}
+		return false;
+	}
+}
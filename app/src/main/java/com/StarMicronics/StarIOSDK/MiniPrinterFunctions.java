@@ -29,8 +29,6 @@ public class MiniPrinterFunctions {
 		code39, ITF, code93, code128
 	};
 
-	private static StarIOPort portForMoreThanOneFunction = null;
-
 	public static void AddRange(ArrayList<byte[]> array, byte[] newData) {
 		for (int index = 0; index < newData.length; index++) {
 			array.add(newData);
@@ -70,18 +68,11 @@ public class MiniPrinterFunctions {
 	public static void CheckFirmwareVersion(Context context, String portName, String portSettings) {
 		StarIOPort port = null;
 		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			port = StarIOPort.getPort(portName, portSettings, 10000, context);
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1 port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-
-			// A sleep is used to get time for the socket to completely open
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
+			// Called on the UI thread, so a port used by a job is not waited for
+			port = PortPool.leaseIfIdle(context, portName, portSettings, 10000);
+			if (port == null) {
+				showPrinterBusy(context);
+				return;
 			}
 
 			Map<String, String> firmware = port.getFirmwareInformation();
@@ -108,13 +99,11 @@ public class MiniPrinterFunctions {
 			alert.setMessage("Failed to connect to printer");
 			alert.setCancelable(false);
 			alert.show();
+
+			PortPool.evict(port);
+			port = null;
 		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
-				}
-			}
+			PortPool.giveBack(port);
 		}
 	}
 
@@ -131,18 +120,11 @@ public class MiniPrinterFunctions {
 	public static void CheckStatus(Context context, String portName, String portSettings) {
 		StarIOPort port = null;
 		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			port = StarIOPort.getPort(portName, portSettings, 10000, context);
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1 port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-
-			// A sleep is used to get time for the socket to completely open
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
+			// Called on the UI thread, so a port used by a job is not waited for
+			port = PortPool.leaseIfIdle(context, portName, portSettings, 10000);
+			if (port == null) {
+				showPrinterBusy(context);
+				return;
 			}
 
 			StarPrinterStatus status = port.retreiveStatus();
@@ -179,13 +161,11 @@ public class MiniPrinterFunctions {
 			alert.setMessage("Failed to connect to printer");
 			alert.setCancelable(false);
 			alert.show();
+
+			PortPool.evict(port);
+			port = null;
 		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
-				}
-			}
+			PortPool.giveBack(port);
 		}
 	}
 
@@ -429,7 +409,7 @@ public class MiniPrinterFunctions {
 	public static void PrintBitmap(Context context, String portName, String portSettings, Bitmap source, int maxWidth, boolean compressionEnable, boolean pageModeEnable) {
 		ArrayList<byte[]> commands = new ArrayList<byte[]>();
 
-		StarBitmap starbitmap = new StarBitmap(source, false, maxWidth);
+		StarBitmap starbitmap = new StarBitmap(new BitmapPixelSource(source), false, maxWidth);
 
 		try {
 
@@ -467,7 +447,7 @@ public class MiniPrinterFunctions {
 		ArrayList<byte[]> commands = new ArrayList<byte[]>();
 
 		Bitmap bm = BitmapFactory.decodeResource(res, source);
-		StarBitmap starbitmap = new StarBitmap(bm, false, maxWidth);
+		StarBitmap starbitmap = new StarBitmap(new BitmapPixelSource(bm), false, maxWidth);
 
 		try {
 
@@ -697,97 +677,47 @@ public class MiniPrinterFunctions {
 	 *     Should be mini, the port settings mini is used for portable printers
 	 */
 	public static void MCRStart(final Context context, String portName, String portSettings) {
-		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			portForMoreThanOneFunction = StarIOPort.getPort(portName, portSettings, 10000, context);
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1 portForMoreThanOneFunction = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
+		Builder dialog = new AlertDialog.Builder(context);
+		final AlertDialog alert = dialog.create();
+
+		// The card is read on a background thread, so the screen stays responsive while the user swipes
+		final MsrReader reader = new MsrReader(context, portName, portSettings, new MsrReader.Listener() {
+			public void onCardRead(MsrReader.Card card) {
+				alert.dismiss();
+
+				Builder dialog1 = new AlertDialog.Builder(context);
+				dialog1.setNegativeButton("Ok", null);
+				AlertDialog alert1 = dialog1.create();
+				alert1.setTitle("");
+				alert1.setMessage(card.toString());
+				alert1.show();
 			}
 
-			portForMoreThanOneFunction.writePort(new byte[] { 0x1b, 0x4d, 0x45 }, 0, 3);
+			public void onReadFailed(String message) {
+				alert.dismiss();
 
-			Builder dialog = new AlertDialog.Builder(context);
-			dialog.setNegativeButton("Cancel", new OnClickListener() {
-				// If the user cancels MSR mode, the character 0x04 is sent to the printer
-				// This function also closes the port
-				public void onClick(DialogInterface dialog, int which) {
-					((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
-					((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
-					try {
-						portForMoreThanOneFunction.writePort(new byte[] { 0x04 }, 0, 1);
-						try {
-							Thread.sleep(3000);
-						} catch (InterruptedException e) {
-						}
-					} catch (StarIOPortException e) {
-
-					} finally {
-						if (portForMoreThanOneFunction != null) {
-							try {
-								StarIOPort.releasePort(portForMoreThanOneFunction);
-							} catch (StarIOPortException e1) {
-							}
-						}
-					}
-				}
-			});
-			AlertDialog alert = dialog.create();
-			alert.setTitle("");
-			alert.setMessage("Slide credit card");
-			alert.setCancelable(false);
-			alert.setButton("OK", new OnClickListener() {
-				// If the user presses ok then the magnetic stripe is read and displayed to the user
-				// This function also closes the port
-				public void onClick(DialogInterface dialog, int which) {
-					((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
-					((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
-					try {
-						byte[] mcrData = new byte[100];
-						portForMoreThanOneFunction.readPort(mcrData, 0, mcrData.length);
-
-						Builder dialog1 = new AlertDialog.Builder(context);
-						dialog1.setNegativeButton("Ok", null);
-						AlertDialog alert = dialog1.create();
-						alert.setTitle("");
-						alert.setMessage(new String(mcrData));
-						alert.show();
-					} catch (StarIOPortException e) {
-
-					} finally {
-						if (portForMoreThanOneFunction != null) {
-							try {
-								StarIOPort.releasePort(portForMoreThanOneFunction);
-							} catch (StarIOPortException e1) {
-							}
-						}
-					}
-				}
-			});
-			alert.show();
-		} catch (StarIOPortException e) {
-			Builder dialog = new AlertDialog.Builder(context);
-			dialog.setNegativeButton("Ok", null);
-			AlertDialog alert = dialog.create();
-			alert.setTitle("Failure");
-			alert.setMessage("Failed to connect to printer");
-			alert.setCancelable(false);
-			alert.show();
-			if (portForMoreThanOneFunction != null) {
-				try {
-					StarIOPort.releasePort(portForMoreThanOneFunction);
-				} catch (StarIOPortException e1) {
-				}
+				Builder dialog1 = new AlertDialog.Builder(context);
+				dialog1.setNegativeButton("Ok", null);
+				AlertDialog alert1 = dialog1.create();
+				alert1.setTitle("Failure");
+				alert1.setMessage(message);
+				alert1.setCancelable(false);
+				alert1.show();
 			}
-		} finally {
+		});
 
-		}
+		alert.setTitle("");
+		alert.setMessage("Slide credit card");
+		alert.setCancelable(false);
+		alert.setButton(DialogInterface.BUTTON_NEGATIVE, "Cancel", new OnClickListener() {
+			// If the user cancels MSR mode, the reader takes the printer out of MSR mode and returns the port to the pool
+			public void onClick(DialogInterface dialog, int which) {
+				reader.cancel();
+			}
+		});
+		alert.show();
+
+		reader.start();
 	}
 
 	/**
@@ -802,7 +732,7 @@ public class MiniPrinterFunctions {
 	 * @param strPrintArea
 	 *     Printable area size, This should be ("2inch (58mm)" or "3inch (80mm)")
 	 */
-	public static boolean PrintSampleReceipt(Context context, String portName, String portSettings, String strPrintArea) {
+	public static PrintJob PrintSampleReceipt(Context context, String portName, String portSettings, String strPrintArea) {
 		ArrayList<byte[]> list = new ArrayList<byte[]>();
 
 		if (strPrintArea.equals("2inch (58mm)")) {
@@ -1645,22 +1575,6 @@ public class MiniPrinterFunctions {
 		return byteBuffer;
 	}
 
-	private static byte[] convertFromListByteArrayTobyteArray(List<byte[]> ByteArray) {
-		int dataLength = 0;
-		for (int i = 0; i < ByteArray.size(); i++) {
-			dataLength += ByteArray.get(i).length;
-		}
-
-		int distPosition = 0;
-		byte[] byteArray = new byte[dataLength];
-		for (int i = 0; i < ByteArray.size(); i++) {
-			System.arraycopy(ByteArray.get(i), 0, byteArray, distPosition, ByteArray.get(i).length);
-			distPosition += ByteArray.get(i).length;
-		}
-
-		return byteArray;
-	}
-
 	/*
 	 * private static void checkPrinterSendToComplete(StarIOPort port) throws StarIOPortException { int timeout = 20000; long timeCount = 0; int readSize = 0; byte[] statusCommand = new byte[] { 0x1b, 0x76 }; byte[] statusReadByte = new byte[] { 0x00 };
 	 * try { port.writePort(statusCommand, 0, statusCommand.length);
@@ -1677,82 +1591,26 @@ public class MiniPrinterFunctions {
 	 * timeCount = System.currentTimeMillis() - timeStart; } } catch (StarIOPortException ex) { throw new StarIOPortException(ex.getMessage()); } } }
 	 */
 
-	private static boolean sendCommand(Context context, String portName, String portSettings, ArrayList<byte[]> byteList) {
-		boolean result = true;
-		StarIOPort port = null;
-		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			port = StarIOPort.getPort(portName, portSettings, 20000, context);
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1 port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
-			}
-
-			/*
-			 * Portable Printer Firmware Version 2.4 later, SM-S220i(Firmware Version 2.0 later)
-			 * Using Begin / End Checked Block method for preventing "data detective".
-			 * When sending large amounts of raster data, use Begin / End Checked Block method and adjust the value in the timeout in the "StarIOPort.getPort" in order to prevent "timeout" of the "endCheckedBlock method" while a printing.
-			 * If receipt print is success but timeout error occurs(Show message which is "There was no response of the printer within the timeout period."), need to change value of timeout more longer in "StarIOPort.getPort" method. (e.g.) 10000 -> 30000When use "Begin / End Checked Block Sample Code", do comment out "query commands Sample code".
-			 */
-
-			/* Start of Begin / End Checked Block Sample code */
-			StarPrinterStatus status = port.beginCheckedBlock();
-
-			if (true == status.offline) {
-				throw new StarIOPortException("A printer is offline");
-			}
-
-			byte[] commandToSendToPrinter = convertFromListByteArrayTobyteArray(byteList);
-			port.writePort(commandToSendToPrinter, 0, commandToSendToPrinter.length);
-
-			port.setEndCheckedBlockTimeoutMillis(30000);// Change the timeout time of endCheckedBlock method.
-			status = port.endCheckedBlock();
+	private static PrintJob sendCommand(Context context, String portName, String portSettings, ArrayList<byte[]> byteList) {
+		/*
+		 * Portable Printer Firmware Version 2.4 later, SM-S220i(Firmware Version 2.0 later)
+		 * The print worker uses Begin / End Checked Block method for preventing "data detective".
+		 * Portable Printer Firmware Version 2.3 earlier needs the query commands in "checkPrinterSendToComplete" instead.
+		 */
+		PrintJob job = new PrintJob(portName, portSettings, byteList);
+		job.setConnectTimeoutMillis(20000);
+		job.addListener(new PrintFailureNotifier(context));
+
+		return PrintService.submit(context, job);
+	}
 
-			if (true == status.coverOpen) {
-				throw new StarIOPortException("Printer cover is open");
-			} else if (true == status.receiptPaperEmpty) {
-				throw new StarIOPortException("Receipt paper is empty");
-			} else if (true == status.offline) {
-				throw new StarIOPortException("Printer is offline");
-			}
-			/* End of Begin / End Checked Block Sample code */
-
-			/*
-			 * Portable Printer Firmware Version 2.3 earlier
-			 * Using query commands for preventing "data detective".
-			 * When sending large amounts of raster data, send query commands after writePort data for confirming the end of printing and adjust the value in the timeout in the "checkPrinterSendToComplete" method in order to prevent "timeout" of the "sending query commands" while a printing.
-			 * If receipt print is success but timeout error occurs(Show message which is "There was no response of the printer within the timeout period."), need to change value of timeout more longer in "checkPrinterSendToComplete" method. (e.g.) 10000 -> 30000When use "query commands Sample code", do comment out "Begin / End Checked Block Sample Code".
-			 */
-
-			/* Start of query commands Sample code */
-			// byte[] commandToSendToPrinter = convertFromListByteArrayTobyteArray(byteList);
-			// port.writePort(commandToSendToPrinter, 0, commandToSendToPrinter.length);
-			//
-			// checkPrinterSendToComplete(port);
-			/* End of query commands Sample code */
-		} catch (StarIOPortException e) {
-			result = false;
-			Builder dialog = new AlertDialog.Builder(context);
-			dialog.setNegativeButton("Ok", null);
-			AlertDialog alert = dialog.create();
-			alert.setTitle("Failure");
-			alert.setMessage(e.getMessage());
-			alert.setCancelable(false);
-			alert.show();
-		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
-				}
-			}
-		}
-		
-		return result;
+	private static void showPrinterBusy(Context context) {
+		Builder dialog = new AlertDialog.Builder(context);
+		dialog.setNegativeButton("Ok", null);
+		AlertDialog alert = dialog.create();
+		alert.setTitle("Printer");
+		alert.setMessage("Printer is busy, please try again when the print job has finished");
+		alert.setCancelable(false);
+		alert.show();
 	}
 }
@@ -0,0 +1,243 @@
+package com.StarMicronics.StarIOSDK;
+
+import android.content.Context;
+import android.os.Handler;
+
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+
+public class MsrReader {
+	// Waits for a card swipe on the magnetic stripe reader of a portable printer on its own thread
+
+	public static class Card {
+		private String mTrack1;
+		private String mTrack2;
+		private String mTrack3;
+
+		Card(String track1, String track2, String track3) {
+			mTrack1 = track1;
+			mTrack2 = track2;
+			mTrack3 = track3;
+		}
+
+		/**
+		 * @return
+		 *     data of track 1 without the sentinels, or null if the track was not read
+		 */
+		public String getTrack1() {
+			return mTrack1;
+		}
+
+		public String getTrack2() {
+			return mTrack2;
+		}
+
+		public String getTrack3() {
+			return mTrack3;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder();
+			if (mTrack1 != null) {
+				text.append("Track 1: ").append(mTrack1).append("\n");
+			}
+			if (mTrack2 != null) {
+				text.append("Track 2: ").append(mTrack2).append("\n");
+			}
+			if (mTrack3 != null) {
+				text.append("Track 3: ").append(mTrack3).append("\n");
+			}
+			return text.toString();
+		}
+	}
+
+	public interface Listener {
+		/**
+		 * Called on the UI thread when a card has been swiped. The reader has then stopped.
+		 */
+		void onCardRead(Card card);
+
+		/**
+		 * Called on the UI thread when the printer could not be reached. The reader has then stopped.
+		 */
+		void onReadFailed(String message);
+	}
+
+	private static final byte[] MSR_START = new byte[] { 0x1b, 0x4d, 0x45 };
+	private static final byte[] MSR_CANCEL = new byte[] { 0x04 };
+
+	private static final long POLL_MILLIS = 20;
+	// The tracks arrive one after another, so the card is complete when nothing more arrives for a moment
+	private static final long QUIET_MILLIS = 150;
+	private static final long CANCEL_SETTLE_MILLIS = 3000;
+	private static final int MAX_CARD_BYTES = 512;
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+
+	private Context mContext;
+	private String mPortName;
+	private String mPortSettings;
+	private Listener mListener;
+	private Handler mHandler;
+
+	private Thread mThread = null;
+	private volatile boolean mCancelled = false;
+
+	/**
+	 * @param context
+	 *     Context used by StarIOPort to open USB ports. It must be created on the UI thread.
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     Should be mini, the port settings mini is used for portable printers
+	 * @param listener
+	 *     Listener to receive the card
+	 */
+	public MsrReader(Context context, String portName, String portSettings, Listener listener) {
+		mContext = context.getApplicationContext();
+		mPortName = portName;
+		mPortSettings = portSettings;
+		mListener = listener;
+		mHandler = new Handler(context.getMainLooper());
+	}
+
+	/**
+	 * This function puts the printer into MSR read mode and returns at once. The card is read on a background thread.
+	 */
+	public synchronized void start() {
+		if ((mThread != null) || (mCancelled == true)) {
+			return;
+		}
+
+		mThread = new Thread("MsrReader " + mPortName) {
+			@Override
+			public void run() {
+				read();
+			}
+		};
+		mThread.setDaemon(true);
+		mThread.start();
+	}
+
+	/**
+	 * This function stops waiting for a card and returns at once. The reader thread sees the flag within one poll, takes the printer out of MSR mode and gives the port back; the listener is not called any more.
+	 * The thread is not interrupted, since an interrupt that arrives outside the poll sleep would cut the settle time after the cancel short.
+	 */
+	public synchronized void cancel() {
+		mCancelled = true;
+	}
+
+	private void read() {
+		StarIOPort port = null;
+		try {
+			port = PortPool.lease(mContext, mPortName, mPortSettings, CONNECT_TIMEOUT_MILLIS);
+
+			port.writePort(MSR_START, 0, MSR_START.length);
+
+			byte[] data = new byte[MAX_CARD_BYTES];
+			int length = 0;
+			long lastDataMillis = 0;
+
+			while (mCancelled == false) {
+				int read = port.readPort(data, length, data.length - length);
+				if (read > 0) {
+					length += read;
+					lastDataMillis = System.currentTimeMillis();
+				}
+
+				if ((length > 0) && (System.currentTimeMillis() - lastDataMillis >= QUIET_MILLIS)) {
+					final Card card = parse(data, length);
+					if (card != null) {
+						post(new Runnable() {
+							public void run() {
+								mListener.onCardRead(card);
+							}
+						});
+						return;
+					}
+
+					// Noise without a complete track is dropped
+					length = 0;
+				}
+
+				if (length == data.length) {
+					length = 0;
+				}
+
+				try {
+					Thread.sleep(POLL_MILLIS);
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+
+			// If the user cancels MSR mode, the character 0x04 is sent to the printer
+			port.writePort(MSR_CANCEL, 0, MSR_CANCEL.length);
+
+			// The port is given back once the printer has left MSR mode
+			try {
+				Thread.sleep(CANCEL_SETTLE_MILLIS);
+			} catch (InterruptedException e) {
+			}
+		} catch (StarIOPortException e) {
+			PortPool.evict(port);
+			port = null;
+
+			post(new Runnable() {
+				public void run() {
+					mListener.onReadFailed("Failed to connect to printer");
+				}
+			});
+		} finally {
+			PortPool.giveBack(port);
+		}
+	}
+
+	private void post(final Runnable runnable) {
+		mHandler.post(new Runnable() {
+			public void run() {
+				if (mCancelled == false) {
+					runnable.run();
+				}
+			}
+		});
+	}
+
+	/**
+	 * This function finds the ISO 7811 tracks in the data sent by the reader. Track 1 starts with '%', tracks 2 and 3 start with ';' (track 3 also with '+'), and every track ends with '?'. Bytes outside the sentinels, e.g. the LRC after the end sentinel or line feeds, are skipped.
+	 *
+	 * @return
+	 *     the card, or null if no track is complete
+	 */
+	static Card parse(byte[] data, int length) {
+		String[] tracks = new String[3];
+		int track = -1;
+		int start = 0;
+
+		for (int i = 0; i < length; i++) {
+			byte b = data[i];
+
+			if (track >= 0) {
+				if (b == '?') {
+					tracks[track] = new String(data, start, i - start);
+					track = -1;
+				}
+			} else if ((b == '%') && (tracks[0] == null)) {
+				track = 0;
+				start = i + 1;
+			} else if ((b == ';') && (tracks[1] == null)) {
+				track = 1;
+				start = i + 1;
+			} else if (((b == ';') || (b == '+')) && (tracks[2] == null)) {
+				track = 2;
+				start = i + 1;
+			}
+		}
+
+		if ((tracks[0] == null) && (tracks[1] == null) && (tracks[2] == null)) {
+			return null;
+		}
+
+		return new Card(tracks[0], tracks[1], tracks[2]);
+	}
+}
@@ -0,0 +1,195 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.Editor;
+import android.os.Handler;
+
+import com.starmicronics.stario.PortInfo;
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+
+public class PortDiscovery {
+	// Searches for printers on a background thread per transport and reports them as they are found, starting with the printers found by earlier searches
+
+	public interface Listener {
+		/**
+		 * Called on the UI thread once for each printer, first for the cached printers and then for the printers found by the search
+		 */
+		void onPortFound(PortInfo portInfo);
+
+		/**
+		 * Called on the UI thread when all transports have been searched
+		 *
+		 * @param ports
+		 *     printers found by this search
+		 */
+		void onDiscoveryFinished(List<PortInfo> ports);
+	}
+
+	private static final String PREFERENCES_NAME = "portDiscovery";
+
+	private static long cacheTtlMillis = 24 * 60 * 60 * 1000L;
+
+	private Context mContext;
+	private Handler mHandler;
+	private Listener mListener;
+
+	// Used on the UI thread only
+	private final HashMap<String, PortInfo> mReported = new HashMap<String, PortInfo>();
+	private final ArrayList<PortInfo> mFound = new ArrayList<PortInfo>();
+	private int mRemaining;
+	private volatile boolean mCancelled = false;
+
+	private PortDiscovery(Context context, Listener listener, int transports) {
+		mContext = context.getApplicationContext();
+		mHandler = new Handler(context.getMainLooper());
+		mListener = listener;
+		mRemaining = transports;
+	}
+
+	/**
+	 * This function sets how long a printer stays in the cache after it was last found
+	 */
+	public static synchronized void setCacheTtlMillis(long millis) {
+		cacheTtlMillis = millis;
+	}
+
+	/**
+	 * This function starts a search. The cached printers are reported at once, then each transport is searched on its own thread and its printers are reported when its search ends, so the Bluetooth printers are shown while the LAN search is still running.
+	 *
+	 * @param context
+	 *     Context used for the cache. It must be called on the UI thread.
+	 * @param transports
+	 *     Port name prefixes to search, e.g. { "BT:", "TCP:" }
+	 * @param listener
+	 *     Listener to receive the printers
+	 */
+	public static PortDiscovery start(Context context, String[] transports, Listener listener) {
+		final PortDiscovery discovery = new PortDiscovery(context, listener, transports.length);
+
+		for (PortInfo portInfo : getCachedPorts(context, transports)) {
+			discovery.report(portInfo);
+		}
+
+		for (final String transport : transports) {
+			Thread thread = new Thread("PortDiscovery " + transport) {
+				@Override
+				public void run() {
+					discovery.search(transport);
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		if (transports.length == 0) {
+			listener.onDiscoveryFinished(new ArrayList<PortInfo>());
+		}
+
+		return discovery;
+	}
+
+	/**
+	 * This function stops reporting to the listener, e.g. when the picker is closed. A search that is running is finished in the background and still updates the cache.
+	 */
+	public void cancel() {
+		mCancelled = true;
+	}
+
+	/**
+	 * @param transports
+	 *     Port name prefixes to return, e.g. { "BT:", "TCP:" }
+	 * @return
+	 *     printers found by earlier searches that have not expired
+	 */
+	public static List<PortInfo> getCachedPorts(Context context, String[] transports) {
+		ArrayList<PortInfo> ports = new ArrayList<PortInfo>();
+
+		SharedPreferences pref = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+		Editor editor = null;
+		long now = System.currentTimeMillis();
+		long ttlMillis;
+		synchronized (PortDiscovery.class) {
+			ttlMillis = cacheTtlMillis;
+		}
+
+		for (Map.Entry<String, ?> entry : pref.getAll().entrySet()) {
+			// The value is "<found time>\n<MAC address>\n<model name>"
+			String[] fields = String.valueOf(entry.getValue()).split("\n", 3);
+
+			long foundMillis;
+			try {
+				foundMillis = Long.parseLong(fields[0]);
+			} catch (NumberFormatException e) {
+				foundMillis = 0;
+			}
+
+			if ((fields.length < 3) || (now - foundMillis > ttlMillis)) {
+				if (editor == null) {
+					editor = pref.edit();
+				}
+				editor.remove(entry.getKey());
+				continue;
+			}
+
+			for (String transport : transports) {
+				if (entry.getKey().startsWith(transport) == true) {
+					ports.add(new PortInfo(entry.getKey(), fields[1], fields[2]));
+				}
+			}
+		}
+
+		// Called on the UI thread, so the expired entries are written in the background
+		if (editor != null) {
+			editor.apply();
+		}
+		return ports;
+	}
+
+	private void search(String transport) {
+		List<PortInfo> ports;
+		try {
+			ports = StarIOPort.searchPrinter(transport);
+		} catch (StarIOPortException e) {
+			ports = new ArrayList<PortInfo>();
+		}
+
+		Editor editor = mContext.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE).edit();
+		String now = String.valueOf(System.currentTimeMillis());
+		for (PortInfo portInfo : ports) {
+			editor.putString(portInfo.getPortName(), now + "\n" + portInfo.getMacAddress() + "\n" + portInfo.getModelName());
+		}
+		editor.commit();
+
+		final List<PortInfo> found = ports;
+		mHandler.post(new Runnable() {
+			public void run() {
+				for (PortInfo portInfo : found) {
+					mFound.add(portInfo);
+					report(portInfo);
+				}
+
+				mRemaining--;
+				if ((mRemaining == 0) && (mCancelled == false)) {
+					mListener.onDiscoveryFinished(mFound);
+				}
+			}
+		});
+	}
+
+	private void report(PortInfo portInfo) {
+		// A cached printer found again is not reported twice
+		if ((mCancelled == true) || (mReported.containsKey(portInfo.getPortName()) == true)) {
+			return;
+		}
+
+		mReported.put(portInfo.getPortName(), portInfo);
+		mListener.onPortFound(portInfo);
+	}
+}
@@ -0,0 +1,393 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import android.content.Context;
+
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+
+public class PortPool {
+	// Keeps StarIOPort handles open between jobs, one handle per port name and port settings
+
+	private static final long KEEP_ALIVE_INTERVAL_MILLIS = 10000;
+	private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60000;
+
+	private static class PooledPort {
+		String portName;
+		String portSettings;
+		StarIOPort port = null;
+		boolean leased = false;
+		long lastUsedMillis = 0;
+
+		PooledPort(String portName, String portSettings) {
+			this.portName = portName;
+			this.portSettings = portSettings;
+		}
+	}
+
+	private static final HashMap<String, PooledPort> pool = new HashMap<String, PooledPort>();
+	private static Timer keepAliveTimer = null;
+	private static long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+	/**
+	 * This function leases the open port for the printer, opening it first if the pool does not hold a usable one. A pooled port is validated with a status probe before it is handed out, and a broken one is closed and reconnected. The port is exclusive to the caller until it is passed to giveBack or evict.
+	 *
+	 * @param context
+	 *     Context used by StarIOPort to open USB ports
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 * @param timeoutMillis
+	 *     Time to wait for another user of the same port and for the connection to open
+	 * @return
+	 *     port ready for communication
+	 */
+	public static StarIOPort lease(Context context, String portName, String portSettings, int timeoutMillis) throws StarIOPortException {
+		return lease(context, portName, portSettings, timeoutMillis, true);
+	}
+
+	/**
+	 * This function leases the port like lease, but returns null at once if another user holds the port. It is used for background status reads which should not wait behind a print job.
+	 *
+	 * @param context
+	 *     Context used by StarIOPort to open USB ports
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 * @param timeoutMillis
+	 *     Time to wait for the connection to open
+	 * @return
+	 *     port ready for communication, or null if the port is in use
+	 */
+	public static StarIOPort leaseIfIdle(Context context, String portName, String portSettings, int timeoutMillis) throws StarIOPortException {
+		return lease(context, portName, portSettings, timeoutMillis, false);
+	}
+
+	private static StarIOPort lease(Context context, String portName, String portSettings, int timeoutMillis, boolean waitIfBusy) throws StarIOPortException {
+		PooledPort entry;
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+
+		synchronized (pool) {
+			String key = portName + "\n" + portSettings;
+			entry = pool.get(key);
+			if (entry == null) {
+				entry = new PooledPort(portName, portSettings);
+				pool.put(key, entry);
+			}
+
+			if ((entry.leased == true) && (waitIfBusy == false)) {
+				return null;
+			}
+
+			while (entry.leased == true) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					throw new StarIOPortException("Port " + portName + " is busy");
+				}
+
+				try {
+					pool.wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new StarIOPortException("Interrupted while waiting for port " + portName);
+				}
+			}
+
+			entry.leased = true;
+			startKeepAlive();
+		}
+
+		boolean ready = false;
+		try {
+			if ((entry.port != null) && (isHealthy(entry.port) == false)) {
+				// The pooled connection was dropped and is opened again
+				PrintMetrics.countRetry(portName);
+				closePort(entry.port);
+				entry.port = null;
+			}
+
+			if (entry.port == null) {
+				/*
+				 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
+				 */
+				entry.port = StarIOPort.getPort(portName, portSettings, timeoutMillis, context);
+				/*
+				 * using StarIOPort.jar Android OS Version: under 2.1 port = StarIOPort.getPort(portName, portSettings, timeoutMillis);
+				 */
+
+				// Wait for the socket to completely open
+				PortReadiness.waitUntilReady(portName, entry.port);
+
+				// The idle timeout of a new connection starts when it is opened, also if only status reads use it
+				synchronized (pool) {
+					entry.lastUsedMillis = System.currentTimeMillis();
+				}
+			}
+			ready = true;
+		} finally {
+			if (ready == false) {
+				// Any failure, not only StarIOPortException, frees the entry so that the next lease does not wait for its timeout
+				StarIOPort port;
+				synchronized (pool) {
+					port = entry.port;
+					entry.port = null;
+					entry.leased = false;
+					pool.notifyAll();
+				}
+
+				if (port != null) {
+					closePort(port);
+				}
+			}
+		}
+
+		return entry.port;
+	}
+
+	/**
+	 * This function returns a leased port to the pool so that the next job can reuse the open connection
+	 *
+	 * @param port
+	 *     Port obtained from lease
+	 */
+	public static void giveBack(StarIOPort port) {
+		if (port == null) {
+			return;
+		}
+
+		synchronized (pool) {
+			PooledPort entry = findEntry(port);
+			if (entry == null) {
+				closePort(port);
+				return;
+			}
+
+			entry.leased = false;
+			entry.lastUsedMillis = System.currentTimeMillis();
+			pool.notifyAll();
+		}
+	}
+
+	/**
+	 * This function returns a port leased for a background status read. Unlike giveBack, the read does not count as use of the port: the connection is kept open for the next read, but it is closed when the idle timeout passes without a job, so that polling does not keep a single host printer blocked for other hosts.
+	 *
+	 * @param port
+	 *     Port obtained from leaseIfIdle
+	 */
+	public static void giveBackUnused(StarIOPort port) {
+		if (port == null) {
+			return;
+		}
+
+		synchronized (pool) {
+			PooledPort entry = findEntry(port);
+			if (entry == null) {
+				closePort(port);
+				return;
+			}
+
+			entry.leased = false;
+			pool.notifyAll();
+		}
+	}
+
+	/**
+	 * This function closes a leased port that failed during communication. The next lease for the same printer opens a new connection.
+	 *
+	 * @param port
+	 *     Port obtained from lease
+	 */
+	public static void evict(StarIOPort port) {
+		if (port == null) {
+			return;
+		}
+
+		synchronized (pool) {
+			PooledPort entry = findEntry(port);
+			if (entry != null) {
+				entry.port = null;
+				entry.leased = false;
+				pool.notifyAll();
+			}
+		}
+
+		closePort(port);
+	}
+
+	/**
+	 * This function closes every idle port held by the pool. Ports that are leased are closed when they are given back.
+	 */
+	public static void closeAll() {
+		ArrayList<StarIOPort> idlePorts = new ArrayList<StarIOPort>();
+
+		synchronized (pool) {
+			for (PooledPort entry : new ArrayList<PooledPort>(pool.values())) {
+				if (entry.leased == false) {
+					if (entry.port != null) {
+						idlePorts.add(entry.port);
+					}
+					pool.remove(entry.portName + "\n" + entry.portSettings);
+				}
+			}
+			stopKeepAliveIfEmpty();
+		}
+
+		for (StarIOPort port : idlePorts) {
+			closePort(port);
+		}
+	}
+
+	/**
+	 * This function tells whether the pool holds an open connection for the printer, leased or not
+	 *
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 */
+	public static boolean isOpen(String portName, String portSettings) {
+		synchronized (pool) {
+			PooledPort entry = pool.get(portName + "\n" + portSettings);
+			return (entry != null) && (entry.port != null);
+		}
+	}
+
+	/**
+	 * This function closes the pooled port of one printer unless a job is using it, without the status probe of a lease
+	 *
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 */
+	public static void closeIfIdle(String portName, String portSettings) {
+		StarIOPort port;
+
+		synchronized (pool) {
+			String key = portName + "\n" + portSettings;
+			PooledPort entry = pool.get(key);
+			if ((entry == null) || (entry.leased == true)) {
+				return;
+			}
+
+			port = entry.port;
+			pool.remove(key);
+			stopKeepAliveIfEmpty();
+		}
+
+		if (port != null) {
+			closePort(port);
+		}
+	}
+
+	/**
+	 * This function changes how long an unused port is kept open. A printer which only accepts a single host is blocked for other hosts while the pool holds its port.
+	 *
+	 * @param millis
+	 *     Idle time after which the port is closed
+	 */
+	public static void setIdleTimeoutMillis(long millis) {
+		synchronized (pool) {
+			idleTimeoutMillis = millis;
+		}
+	}
+
+	private static PooledPort findEntry(StarIOPort port) {
+		for (PooledPort entry : pool.values()) {
+			if (entry.port == port) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isHealthy(StarIOPort port) {
+		try {
+			port.retreiveStatus();
+			return true;
+		} catch (StarIOPortException e) {
+			return false;
+		}
+	}
+
+	private static void closePort(StarIOPort port) {
+		try {
+			StarIOPort.releasePort(port);
+		} catch (StarIOPortException e) {
+		}
+	}
+
+	private static void startKeepAlive() {
+		if (keepAliveTimer != null) {
+			return;
+		}
+
+		keepAliveTimer = new Timer("PortPool keep-alive", true);
+		keepAliveTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				keepAlive();
+			}
+		}, KEEP_ALIVE_INTERVAL_MILLIS, KEEP_ALIVE_INTERVAL_MILLIS);
+	}
+
+	private static void stopKeepAliveIfEmpty() {
+		if (pool.isEmpty() && (keepAliveTimer != null)) {
+			keepAliveTimer.cancel();
+			keepAliveTimer = null;
+		}
+	}
+
+	private static void keepAlive() {
+		ArrayList<PooledPort> probing = new ArrayList<PooledPort>();
+		ArrayList<StarIOPort> expired = new ArrayList<StarIOPort>();
+
+		synchronized (pool) {
+			long now = System.currentTimeMillis();
+			for (PooledPort entry : new ArrayList<PooledPort>(pool.values())) {
+				if (entry.leased == true) {
+					continue;
+				}
+
+				if ((entry.port == null) || (now - entry.lastUsedMillis > idleTimeoutMillis)) {
+					if (entry.port != null) {
+						expired.add(entry.port);
+					}
+					pool.remove(entry.portName + "\n" + entry.portSettings);
+				} else {
+					// Hold the lease while probing so that no job uses the port at the same time
+					entry.leased = true;
+					probing.add(entry);
+				}
+			}
+			stopKeepAliveIfEmpty();
+		}
+
+		for (StarIOPort port : expired) {
+			closePort(port);
+		}
+
+		for (PooledPort entry : probing) {
+			StarIOPort port = entry.port;
+			boolean healthy = isHealthy(port);
+
+			synchronized (pool) {
+				if (healthy == false) {
+					entry.port = null;
+				}
+				entry.leased = false;
+				pool.notifyAll();
+			}
+
+			if (healthy == false) {
+				closePort(port);
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.StarMicronics.StarIOSDK;
+
+import android.content.Context;
+
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+
+public class PortPrefetch {
+	// Opens the port of a printer into PortPool while the document for it is still being rendered, so that a print takes the longer of connecting and rendering instead of both
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+
+	private final Context mContext;
+	private final String mPortName;
+	private final String mPortSettings;
+
+	private boolean mFinished = false;
+	private boolean mOpenedHere = false;
+	private boolean mUsed = false;
+	private boolean mClosed = false;
+
+	private PortPrefetch(Context context, String portName, String portSettings) {
+		mContext = context;
+		mPortName = portName;
+		mPortSettings = portSettings;
+	}
+
+	/**
+	 * This function starts opening the port on a background thread and returns at once. The connection is given back to PortPool, where the print worker leases it when the job is submitted; a worker that comes while the port is still opening waits for it instead of opening a second connection.
+	 * Call markUsed after the job has been submitted and close in a finally block.
+	 *
+	 * @param context
+	 *     Context used by StarIOPort to open USB ports
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 */
+	public static PortPrefetch start(Context context, String portName, String portSettings) {
+		final PortPrefetch prefetch = new PortPrefetch(context.getApplicationContext(), portName, portSettings);
+
+		Thread thread = new Thread("PortPrefetch " + portName) {
+			@Override
+			public void run() {
+				prefetch.open();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+
+		return prefetch;
+	}
+
+	/**
+	 * This function tells the prefetch that the job for the port has been submitted, so close leaves the connection to the job
+	 */
+	public synchronized void markUsed() {
+		mUsed = true;
+	}
+
+	/**
+	 * This function ends the prefetch. If no job was submitted, e.g. because rendering failed, a connection opened by the prefetch is closed again now or as soon as it is open. A connection that was already in the pool stays there.
+	 */
+	public void close() {
+		synchronized (this) {
+			mClosed = true;
+			if ((mFinished == false) || (mUsed == true) || (mOpenedHere == false)) {
+				return;
+			}
+		}
+
+		PortPool.closeIfIdle(mPortName, mPortSettings);
+	}
+
+	private void open() {
+		boolean wasOpen = PortPool.isOpen(mPortName, mPortSettings);
+		StarIOPort port;
+
+		try {
+			port = PortPool.leaseIfIdle(mContext, mPortName, mPortSettings, CONNECT_TIMEOUT_MILLIS);
+		} catch (StarIOPortException e) {
+			// The job reports the error when it opens the port itself
+			synchronized (this) {
+				mFinished = true;
+			}
+			return;
+		}
+
+		boolean abandoned;
+		synchronized (this) {
+			// A port in use by another job is open already
+			mOpenedHere = (port != null) && (wasOpen == false);
+			mFinished = true;
+			abandoned = (mClosed == true) && (mUsed == false) && (mOpenedHere == true);
+		}
+
+		if (abandoned == true) {
+			PortPool.evict(port);
+		} else {
+			PortPool.giveBack(port);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.StarMicronics.StarIOSDK;
+
+import android.app.AlertDialog;
+import android.app.AlertDialog.Builder;
+import android.content.Context;
+import android.os.Handler;
+
+public class PrintFailureNotifier implements PrintService.Listener {
+	// Shows the failure dialog of a background print job on the UI thread
+
+	private Context mContext;
+	private Handler mHandler;
+
+	public PrintFailureNotifier(Context context) {
+		mContext = context;
+		mHandler = new Handler(context.getMainLooper());
+	}
+
+	public void onPrintFinished(PrintJob job, final PrintResult result) {
+		if (result.isSuccess() || result.getCode() == PrintResult.Code.Cancelled) {
+			return;
+		}
+
+		mHandler.post(new Runnable() {
+			public void run() {
+				Builder dialog = new AlertDialog.Builder(mContext);
+				dialog.setNegativeButton("OK", null);
+				AlertDialog alert = dialog.create();
+				alert.setTitle("Failure");
+				alert.setMessage(result.getMessage());
+				alert.setCancelable(false);
+				alert.show();
+			}
+		});
+	}
+}
@@ -0,0 +1,172 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import android.content.Context;
+
+public class PrintFanOut {
+	// Sends one document to several printers at the same time, e.g. a receipt printer and the kitchen printers
+
+	public enum CommandDialect {
+		Raster, Line, DotImpact, EscPos
+	};
+
+	public interface Document {
+		/**
+		 * Called once for each dialect used by the targets
+		 *
+		 * @return
+		 *     command data of the document in the dialect
+		 */
+		ArrayList<byte[]> encode(CommandDialect dialect);
+	}
+
+	public interface Listener {
+		/**
+		 * Called on the print worker thread of the printer that finished last
+		 */
+		void onFanOutFinished(Result result);
+	}
+
+	public static class Target {
+		private String mPortName;
+		private String mPortSettings;
+		private CommandDialect mDialect;
+
+		/**
+		 * @param portName
+		 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+		 * @param portSettings
+		 *     The port settings to use
+		 * @param dialect
+		 *     Command set understood by the printer, e.g. Raster for a TSP650II or DotImpact for a SP700
+		 */
+		public Target(String portName, String portSettings, CommandDialect dialect) {
+			mPortName = portName;
+			mPortSettings = portSettings;
+			mDialect = dialect;
+		}
+
+		public String getPortName() {
+			return mPortName;
+		}
+
+		public String getPortSettings() {
+			return mPortSettings;
+		}
+
+		public CommandDialect getDialect() {
+			return mDialect;
+		}
+	}
+
+	public static class Result {
+		private List<Target> mTargets;
+		private PrintResult[] mResults;
+
+		Result(List<Target> targets) {
+			mTargets = targets;
+			mResults = new PrintResult[targets.size()];
+		}
+
+		public List<Target> getTargets() {
+			return mTargets;
+		}
+
+		/**
+		 * @return
+		 *     result of the target with the same index, including the last status of the printer
+		 */
+		public PrintResult get(int index) {
+			return mResults[index];
+		}
+
+		public boolean isSuccess() {
+			for (PrintResult result : mResults) {
+				if (result.isSuccess() == false) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return
+		 *     one line per printer that failed, e.g. for a failure dialog
+		 */
+		public String getFailureMessage() {
+			StringBuilder message = new StringBuilder();
+			for (int i = 0; i < mResults.length; i++) {
+				if (mResults[i].isSuccess() == false) {
+					message.append(mTargets.get(i).getPortName()).append(": ").append(mResults[i].getMessage()).append("\n");
+				}
+			}
+			return message.toString();
+		}
+	}
+
+	/**
+	 * This function encodes the document once for each dialect used by the targets and queues it for all targets at once. Every printer has its own print worker, so the document is printed in parallel and the total time is that of the slowest printer.
+	 *
+	 * @param context
+	 *     Context used by StarIOPort to open USB ports
+	 * @param document
+	 *     Document to print
+	 * @param targets
+	 *     Printers to print on
+	 * @param listener
+	 *     Listener to receive the results of all printers together. This can be null.
+	 * @return
+	 *     print jobs in the order of the targets
+	 */
+	public static ArrayList<PrintJob> print(Context context, Document document, List<Target> targets, final Listener listener) {
+		HashMap<CommandDialect, ArrayList<byte[]>> encoded = new HashMap<CommandDialect, ArrayList<byte[]>>();
+		ArrayList<PrintJob> jobs = new ArrayList<PrintJob>();
+
+		for (Target target : targets) {
+			ArrayList<byte[]> commands = encoded.get(target.getDialect());
+			if (commands == null) {
+				commands = document.encode(target.getDialect());
+				encoded.put(target.getDialect(), commands);
+			}
+
+			// The jobs share the encoded data, it is only read by the workers
+			jobs.add(new PrintJob(target.getPortName(), target.getPortSettings(), commands));
+		}
+
+		final Result result = new Result(new ArrayList<Target>(targets));
+		final int[] remaining = new int[] { jobs.size() };
+
+		if ((jobs.isEmpty() == true) && (listener != null)) {
+			listener.onFanOutFinished(result);
+		}
+
+		for (int i = 0; i < jobs.size(); i++) {
+			final int index = i;
+
+			jobs.get(i).addListener(new PrintService.Listener() {
+				public void onPrintFinished(PrintJob job, PrintResult printResult) {
+					boolean last;
+
+					synchronized (result) {
+						result.mResults[index] = printResult;
+						remaining[0]--;
+						last = (remaining[0] == 0);
+					}
+
+					if ((last == true) && (listener != null)) {
+						listener.onFanOutFinished(result);
+					}
+				}
+			});
+		}
+
+		for (PrintJob job : jobs) {
+			PrintService.submit(context, job);
+		}
+
+		return jobs;
+	}
+}
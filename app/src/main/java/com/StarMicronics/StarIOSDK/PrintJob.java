@@ -0,0 +1,294 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.starmicronics.stario.StarIOPortException;
+
+public class PrintJob implements Future<PrintResult> {
+	// A document queued for one printer. The job is also the future for its result.
+
+	private String mPortName;
+	private String mPortSettings;
+	private ArrayList<byte[]> mCommands;
+	private RasterPipeline mRaster = null;
+	private ArrayList<byte[]> mTrailer = new ArrayList<byte[]>();
+
+	// Encoded raster bands kept for resuming the job, used by the print worker only
+	private ArrayList<byte[]> mBands = new ArrayList<byte[]>();
+	private int mConfirmedBands = 0;
+	private int mConnectTimeoutMillis = 10000;
+	private int mCheckedBlockRows = 0;
+
+	private final CountDownLatch mDone = new CountDownLatch(1);
+	private final ArrayList<PrintService.Listener> mListeners = new ArrayList<PrintService.Listener>();
+	private PrintResult mResult = null;
+	private boolean mStarted = false;
+	private volatile boolean mCancelRequested = false;
+	private long mEstimatedMillis = 0;
+	private long mStartedMillis = 0;
+
+	/**
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 * @param commands
+	 *     Command data to send to the printer, in order
+	 */
+	public PrintJob(String portName, String portSettings, ArrayList<byte[]> commands) {
+		mPortName = portName;
+		mPortSettings = portSettings;
+		mCommands = commands;
+	}
+
+	/**
+	 * This constructor is used for a tall image. The raster bands are sent while the rest of the image is still being converted.
+	 *
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 * @param header
+	 *     Command data to send before the image, e.g. RasterDocument.BeginDocumentCommandData()
+	 * @param raster
+	 *     Pipeline producing the raster bands of the image
+	 * @param trailer
+	 *     Command data to send after the image, e.g. RasterDocument.EndDocumentCommandData()
+	 */
+	public PrintJob(String portName, String portSettings, ArrayList<byte[]> header, RasterPipeline raster, ArrayList<byte[]> trailer) {
+		this(portName, portSettings, header);
+		mRaster = raster;
+		mTrailer = trailer;
+	}
+
+	public String getPortName() {
+		return mPortName;
+	}
+
+	public String getPortSettings() {
+		return mPortSettings;
+	}
+
+	/**
+	 * @return
+	 *     all of the command data, or the data sent before the raster bands when the job has a raster pipeline
+	 */
+	public List<byte[]> getCommands() {
+		return mCommands;
+	}
+
+	/**
+	 * @return
+	 *     pipeline producing the raster bands, or null if the job has none
+	 */
+	public RasterPipeline getRaster() {
+		return mRaster;
+	}
+
+	public List<byte[]> getTrailer() {
+		return mTrailer;
+	}
+
+	/**
+	 * @return
+	 *     number of raster bands the printer has confirmed
+	 */
+	public int getConfirmedBands() {
+		return mConfirmedBands;
+	}
+
+	void setConfirmedBands(int value) {
+		// Printed bands are not needed for resuming any more
+		for (int i = mConfirmedBands; i < Math.min(value, mBands.size()); i++) {
+			mBands.set(i, null);
+		}
+		mConfirmedBands = value;
+	}
+
+	/**
+	 * This function returns an encoded raster band, taking it from the raster pipeline the first time it is needed and from the kept bands when the job is resumed
+	 *
+	 * @return
+	 *     raster commands of the band, or null after the last band
+	 */
+	byte[] getBand(int index) throws StarIOPortException {
+		if (index < mBands.size()) {
+			return mBands.get(index);
+		}
+
+		byte[] band = mRaster.nextBand();
+		if (band != null) {
+			mBands.add(band);
+		}
+		return band;
+	}
+
+	public int getConnectTimeoutMillis() {
+		return mConnectTimeoutMillis;
+	}
+
+	public void setConnectTimeoutMillis(int value) {
+		mConnectTimeoutMillis = value;
+	}
+
+	public int getCheckedBlockRows() {
+		return mCheckedBlockRows;
+	}
+
+	/**
+	 * This function makes the job check the printer status about every value dot rows instead of only at the end. A command list is split into several checked blocks between its elements, outside raster mode; a raster job reads the status between its bands. The job is printed on its own, not coalesced with other jobs.
+	 *
+	 * @param value
+	 *     Number of dot rows between two status checks (8 rows are 1 mm), 0 checks only at the end of the job
+	 */
+	public void setCheckedBlockRows(int value) {
+		mCheckedBlockRows = Math.max(0, value);
+	}
+
+	/**
+	 * @return
+	 *     time the printer is expected to need for the job, set when the job is submitted
+	 */
+	public long getEstimatedMillis() {
+		return mEstimatedMillis;
+	}
+
+	void setEstimatedMillis(long value) {
+		mEstimatedMillis = value;
+	}
+
+	/**
+	 * @return
+	 *     expected time until the job has printed, or the whole estimate if the print worker has not started it yet
+	 */
+	public synchronized long getRemainingMillis() {
+		if (mResult != null) {
+			return 0;
+		}
+		if (mStarted == false) {
+			return mEstimatedMillis;
+		}
+		return Math.max(0, mStartedMillis + mEstimatedMillis - System.currentTimeMillis());
+	}
+
+	/**
+	 * This function registers a listener that is called on the print worker thread when the job finishes. If the job has already finished the listener is called immediately on the calling thread.
+	 *
+	 * @param listener
+	 *     Listener to receive the result
+	 */
+	public void addListener(PrintService.Listener listener) {
+		PrintResult result;
+
+		synchronized (this) {
+			if (mResult == null) {
+				mListeners.add(listener);
+				return;
+			}
+			result = mResult;
+		}
+
+		listener.onPrintFinished(this, result);
+	}
+
+	/**
+	 * This function cancels the job. A job that has not been started is dropped from the queue. A raster job that is printing stops after the band being sent when mayInterruptIfRunning is true: the print worker ends the document with the trailer, so the paper is cut, and gives the port back without waiting for the printer. The job then finishes with Cancelled.
+	 *
+	 * @param mayInterruptIfRunning
+	 *     Stop a raster job that is printing
+	 * @return
+	 *     false if the job has finished or cannot be stopped
+	 */
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		synchronized (this) {
+			if (mResult != null) {
+				return false;
+			}
+
+			if (mStarted == true) {
+				// Command data without a raster pipeline is sent in one piece and cannot be stopped
+				if ((mayInterruptIfRunning == false) || (mRaster == null)) {
+					return false;
+				}
+
+				mCancelRequested = true;
+				return true;
+			}
+		}
+
+		if (mRaster != null) {
+			mRaster.cancel();
+		}
+
+		return complete(new PrintResult(PrintResult.Code.Cancelled, "Print job was cancelled", null));
+	}
+
+	public synchronized boolean isCancelled() {
+		return (mResult != null) && (mResult.getCode() == PrintResult.Code.Cancelled);
+	}
+
+	public synchronized boolean isDone() {
+		return mResult != null;
+	}
+
+	public PrintResult get() throws InterruptedException {
+		mDone.await();
+		return getResult();
+	}
+
+	public PrintResult get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+		if (mDone.await(timeout, unit) == false) {
+			throw new TimeoutException();
+		}
+		return getResult();
+	}
+
+	boolean isCancelRequested() {
+		return mCancelRequested;
+	}
+
+	synchronized boolean start() {
+		if (mResult != null) {
+			return false;
+		}
+
+		mStarted = true;
+		mStartedMillis = System.currentTimeMillis();
+		return true;
+	}
+
+	boolean complete(PrintResult result) {
+		ArrayList<PrintService.Listener> listeners;
+
+		synchronized (this) {
+			if (mResult != null) {
+				return false;
+			}
+
+			mResult = result;
+			listeners = new ArrayList<PrintService.Listener>(mListeners);
+			mListeners.clear();
+		}
+
+		mDone.countDown();
+
+		for (PrintService.Listener listener : listeners) {
+			listener.onPrintFinished(this, result);
+		}
+
+		return true;
+	}
+
+	synchronized long getStartedMillis() {
+		return mStartedMillis;
+	}
+
+	private synchronized PrintResult getResult() {
+		return mResult;
+	}
+}
@@ -0,0 +1,120 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.List;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+public class PrintPreview {
+	// Draws the page decoded from a command stream into a Bitmap, for showing a receipt on screen before it is printed
+
+	private static final int PAPER_COLOR = Color.WHITE;
+	private static final int INK_COLOR = Color.BLACK;
+	private static final int MARK_COLOR = Color.GRAY;
+
+	/**
+	 * This function decodes and draws the commands of a print job
+	 *
+	 * @param commands
+	 *     Byte arrays in the order they are sent to the printer
+	 * @param width
+	 *     Printable width in dots, e.g. 576 for 80mm paper or 384 for the portable printers
+	 * @param dialect
+	 *     StarLine for line mode and raster commands, EscPos for the portable printers (port settings "mini")
+	 */
+	public static Bitmap render(List<byte[]> commands, int width, CommandDecoder.Dialect dialect) {
+		return render(CommandDecoder.decode(commands, width, dialect));
+	}
+
+	/**
+	 * This function draws a decoded page one dot per pixel. The text lines are drawn with a monospace font into the space the printer uses for them, barcodes as a box with their data and cuts as a dashed line.
+	 */
+	public static Bitmap render(DecodedPage page) {
+		int width = page.getWidth();
+		int height = Math.max(page.getHeight(), 1);
+		Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+
+		byte[] pixels = page.getPixels();
+		int bytesPerRow = page.getBytesPerRow();
+		int[] row = new int[width];
+
+		for (int y = 0; y < page.getHeight(); y++) {
+			int base = y * bytesPerRow;
+			for (int x = 0; x < width; x++) {
+				row[x] = ((pixels[base + (x >> 3)] & (0x80 >> (x & 7))) != 0) ? INK_COLOR : PAPER_COLOR;
+			}
+			bitmap.setPixels(row, 0, width, 0, y, width, 1);
+		}
+
+		Canvas canvas = new Canvas(bitmap);
+		Paint paint = new Paint();
+		paint.setAntiAlias(true);
+		paint.setTypeface(Typeface.MONOSPACE);
+
+		for (DecodedPage.Element element : page.getElements()) {
+			switch (element.getType()) {
+			case Text:
+				drawText(canvas, paint, element);
+				break;
+			case Barcode:
+				drawBarcode(canvas, paint, element);
+				break;
+			case Cut:
+				drawCut(canvas, paint, element);
+				break;
+			default:
+				break;
+			}
+		}
+
+		return bitmap;
+	}
+
+	private static void drawText(Canvas canvas, Paint paint, DecodedPage.Element element) {
+		String text = element.getText();
+
+		paint.setStyle(Paint.Style.FILL);
+		paint.setColor(INK_COLOR);
+		paint.setFakeBoldText(element.isEmphasized());
+		paint.setTextScaleX(1.0f);
+		paint.setTextSize(element.getHeight());
+
+		// Stretch the font to the character pitch of the printer, so that columns line up as on the paper
+		float measured = paint.measureText(text);
+		if (measured > 0) {
+			paint.setTextScaleX(element.getWidth() / measured);
+		}
+
+		canvas.drawText(text, element.getX(), element.getY() + element.getHeight() - paint.descent(), paint);
+	}
+
+	private static void drawBarcode(Canvas canvas, Paint paint, DecodedPage.Element element) {
+		paint.setFakeBoldText(false);
+		paint.setTextScaleX(1.0f);
+		paint.setTextSize(20);
+		paint.setColor(MARK_COLOR);
+
+		if (element.getHeight() > 0) {
+			paint.setStyle(Paint.Style.STROKE);
+			canvas.drawRect(element.getX(), element.getY(), element.getX() + element.getWidth() - 1, element.getY() + element.getHeight() - 1, paint);
+		}
+
+		if (element.getText() != null) {
+			paint.setStyle(Paint.Style.FILL);
+			canvas.drawText(element.getText(), element.getX() + 4, element.getY() + Math.max(element.getHeight() / 2, 20), paint);
+		}
+	}
+
+	private static void drawCut(Canvas canvas, Paint paint, DecodedPage.Element element) {
+		paint.setStyle(Paint.Style.STROKE);
+		paint.setColor(MARK_COLOR);
+
+		int y = Math.min(element.getY(), canvas.getHeight() - 1);
+		for (int x = 0; x < element.getWidth(); x += 16) {
+			canvas.drawLine(x, y, x + 8, y, paint);
+		}
+	}
+}
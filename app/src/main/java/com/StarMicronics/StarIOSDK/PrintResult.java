@@ -0,0 +1,59 @@
+package com.StarMicronics.StarIOSDK;
+
+import com.starmicronics.stario.StarPrinterStatus;
+
+public class PrintResult {
+	// Outcome of a print job, reported instead of showing a dialog
+
+	public enum Code {
+		Success, Offline, CoverOpen, PaperEmpty, CommunicationError, Cancelled
+	};
+
+	private Code mCode;
+	private String mMessage;
+	private StarPrinterStatus mStatus;
+
+	public PrintResult(Code code, String message, StarPrinterStatus status) {
+		mCode = code;
+		mMessage = message;
+		mStatus = status;
+	}
+
+	/**
+	 * This function converts the status returned by endCheckedBlock into a result
+	 *
+	 * @param status
+	 *     Status returned by the printer at the end of the checked block
+	 */
+	public static PrintResult fromStatus(StarPrinterStatus status) {
+		if (status.coverOpen == true) {
+			return new PrintResult(Code.CoverOpen, "Printer cover is open", status);
+		} else if (status.receiptPaperEmpty == true) {
+			return new PrintResult(Code.PaperEmpty, "Receipt paper is empty", status);
+		} else if (status.offline == true) {
+			return new PrintResult(Code.Offline, "Printer is offline", status);
+		}
+
+		return new PrintResult(Code.Success, "", status);
+	}
+
+	public Code getCode() {
+		return mCode;
+	}
+
+	public boolean isSuccess() {
+		return mCode == Code.Success;
+	}
+
+	public String getMessage() {
+		return mMessage;
+	}
+
+	/**
+	 * @return
+	 *     last status read from the printer, or null if the printer could not be reached
+	 */
+	public StarPrinterStatus getStatus() {
+		return mStatus;
+	}
+}
@@ -0,0 +1,657 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import android.content.Context;
+
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+import com.starmicronics.stario.StarPrinterStatus;
+
+public class PrintService {
+	// Runs print jobs in the background with one worker thread per printer
+
+	public interface Listener {
+		/**
+		 * Called on the print worker thread when a job has finished, failed or been cancelled
+		 */
+		void onPrintFinished(PrintJob job, PrintResult result);
+	}
+
+	private static final long WORKER_IDLE_MILLIS = 60000;
+	private static final long RECOVERY_POLL_MILLIS = 500;
+
+	private static int batchMaxJobs = 8;
+	private static long batchWindowMillis = 0;
+	private static long recoveryTimeoutMillis = 120000;
+
+	private static final HashMap<String, PrinterWorker> workers = new HashMap<String, PrinterWorker>();
+
+	private static class PrinterWorker extends Thread {
+		private final String key;
+		private final Context context;
+		private final LinkedBlockingDeque<PrintJob> queue = new LinkedBlockingDeque<PrintJob>();
+		private volatile List<PrintJob> running = new ArrayList<PrintJob>();
+
+		PrinterWorker(String key, Context context) {
+			super("PrintService " + key.replace('\n', ' '));
+			this.key = key;
+			this.context = context;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				work();
+			} finally {
+				synchronized (workers) {
+					// The next submit starts a new worker
+					if (workers.get(key) == this) {
+						workers.remove(key);
+					}
+				}
+
+				// Jobs left behind by an error that stopped the worker are failed, so that nobody waits for them forever
+				PrintResult result = new PrintResult(PrintResult.Code.CommunicationError, "Print worker stopped", null);
+				for (PrintJob job : running) {
+					completeQuietly(job, result);
+				}
+
+				PrintJob job;
+				while ((job = queue.poll()) != null) {
+					completeQuietly(job, result);
+				}
+			}
+		}
+
+		private void work() {
+			while (true) {
+				PrintJob job;
+				try {
+					job = queue.poll(WORKER_IDLE_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					job = null;
+				}
+
+				if (job == null) {
+					synchronized (workers) {
+						// A job may have been queued while the poll timed out
+						job = queue.poll();
+						if (job == null) {
+							workers.remove(key);
+							return;
+						}
+					}
+				}
+
+				running = collectBatch(queue, job);
+				execute(context, running);
+				running = new ArrayList<PrintJob>();
+			}
+		}
+	}
+
+	/**
+	 * This function sets how queued jobs for the same printer are coalesced into one checked block. The printer then confirms the documents one by one with its ETB counter instead of a begin and end round trip for every job.
+	 *
+	 * @param maxJobs
+	 *     Largest number of jobs in one checked block, 1 turns batching off. At most 30, the range of the ETB counter.
+	 * @param windowMillis
+	 *     Time to wait for more jobs after the first one. 0 only coalesces jobs that are already queued, so a single job is not delayed.
+	 */
+	public static void setBatching(int maxJobs, long windowMillis) {
+		synchronized (workers) {
+			batchMaxJobs = Math.max(1, Math.min(maxJobs, EtbTracker.MAX_OUTSTANDING));
+			batchWindowMillis = Math.max(0, windowMillis);
+		}
+	}
+
+	/**
+	 * This function sets how long a raster job waits for the operator to close the cover or load paper when the printer stops partway through the job. The job then continues from the first band the printer has not confirmed.
+	 *
+	 * @param millis
+	 *     Time to wait for the fault to be cleared, 0 fails the job at once
+	 */
+	public static void setRecoveryTimeoutMillis(long millis) {
+		synchronized (workers) {
+			recoveryTimeoutMillis = millis;
+		}
+	}
+
+	private static ArrayList<PrintJob> collectBatch(LinkedBlockingDeque<PrintJob> queue, PrintJob first) {
+		int maxJobs;
+		long windowMillis;
+		synchronized (workers) {
+			maxJobs = batchMaxJobs;
+			windowMillis = batchWindowMillis;
+		}
+
+		ArrayList<PrintJob> batch = new ArrayList<PrintJob>();
+		batch.add(first);
+
+		if (isPrintedAlone(first) == true) {
+			return batch;
+		}
+
+		long deadline = System.currentTimeMillis() + windowMillis;
+		while (batch.size() < maxJobs) {
+			PrintJob job;
+			try {
+				job = queue.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				job = null;
+			}
+
+			if (job == null) {
+				break;
+			}
+
+			if (isPrintedAlone(job) == true) {
+				// It stays at the head of the queue for the next round
+				queue.offerFirst(job);
+				break;
+			}
+			batch.add(job);
+		}
+
+		return batch;
+	}
+
+	private static boolean isPrintedAlone(PrintJob job) {
+		// A raster job is resumed band by band and a split job uses several checked blocks of its own
+		return (job.getRaster() != null) || (job.getCheckedBlockRows() > 0);
+	}
+
+	/**
+	 * This function queues a job for its printer and returns without waiting for the printer. Jobs for the same printer are printed one at a time in the order they were submitted; jobs for different printers run in parallel.
+	 *
+	 * @param context
+	 *     Context used by StarIOPort to open USB ports
+	 * @param job
+	 *     Job to print
+	 * @return
+	 *     the job, which is also the future for its result
+	 */
+	public static PrintJob submit(Context context, PrintJob job) {
+		String key = job.getPortName() + "\n" + job.getPortSettings();
+
+		job.setEstimatedMillis(PrintTimeEstimator.estimateMillis(job));
+
+		synchronized (workers) {
+			PrinterWorker worker = workers.get(key);
+			if (worker == null) {
+				worker = new PrinterWorker(key, context.getApplicationContext());
+				workers.put(key, worker);
+				worker.start();
+			}
+			worker.queue.add(job);
+		}
+
+		// Convert the image while the worker opens the port
+		if (job.getRaster() != null) {
+			job.getRaster().start();
+		}
+
+		return job;
+	}
+
+	/**
+	 * This function estimates how long a new job for the printer would wait before it starts printing, from the estimates of the jobs that are printing and queued
+	 *
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 */
+	public static long getEstimatedWaitMillis(String portName, String portSettings) {
+		PrinterWorker worker;
+		synchronized (workers) {
+			worker = workers.get(portName + "\n" + portSettings);
+		}
+
+		if (worker == null) {
+			return 0;
+		}
+
+		long millis = 0;
+		for (PrintJob job : worker.running) {
+			millis += job.getRemainingMillis();
+		}
+		for (PrintJob job : worker.queue) {
+			millis += job.getEstimatedMillis();
+		}
+		return millis;
+	}
+
+	/**
+	 * This function queues command data for a printer and reports the result to the listener
+	 *
+	 * @param context
+	 *     Context used by StarIOPort to open USB ports
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 * @param commands
+	 *     Command data to send to the printer
+	 * @param listener
+	 *     Listener to receive the result on the print worker thread. This can be null.
+	 */
+	public static PrintJob print(Context context, String portName, String portSettings, List<byte[]> commands, Listener listener) {
+		PrintJob job = new PrintJob(portName, portSettings, new ArrayList<byte[]>(commands));
+		if (listener != null) {
+			job.addListener(listener);
+		}
+		return submit(context, job);
+	}
+
+	private static void execute(Context context, List<PrintJob> batch) {
+		ArrayList<PrintJob> jobs = new ArrayList<PrintJob>();
+		for (PrintJob job : batch) {
+			// Jobs cancelled while they were queued are skipped
+			if (job.start() == true) {
+				jobs.add(job);
+			}
+		}
+
+		if (jobs.isEmpty() == true) {
+			return;
+		}
+
+		PrintJob first = jobs.get(0);
+		PrintResult[] results = new PrintResult[jobs.size()];
+		StarIOPort port = null;
+
+		// A status monitor of the printer polls fast while the job is printing
+		StatusMonitor monitor = StatusMonitor.find(first.getPortName(), first.getPortSettings());
+		if (monitor != null) {
+			monitor.beginActivity();
+		}
+
+		try {
+			long acquireStart = System.nanoTime();
+			port = PortPool.lease(context, first.getPortName(), first.getPortSettings(), first.getConnectTimeoutMillis());
+			PrintMetrics.record(first.getPortName(), PrintMetrics.Stage.Acquire, System.nanoTime() - acquireStart);
+
+			if ((jobs.size() == 1) && (first.getRaster() != null)) {
+				results[0] = transmitCheckpointed(port, first);
+			} else if ((jobs.size() == 1) && (first.getCheckedBlockRows() > 0)) {
+				results[0] = transmitSplit(port, first);
+			} else if (jobs.size() == 1) {
+				results[0] = transmit(port, first);
+			} else {
+				transmitBatch(port, jobs, results);
+			}
+		} catch (StarIOPortException e) {
+			port = fail(first, port, results, e.getMessage());
+		} catch (RuntimeException e) {
+			// e.g. the raster conversion failed, the port is closed since the printer may be in the middle of a document
+			port = fail(first, port, results, e.toString());
+		} catch (OutOfMemoryError e) {
+			// The data of the batch is released with the jobs, so the worker can go on with the next one
+			port = fail(first, port, results, "Out of memory");
+		} finally {
+			if (port != null) {
+				long releaseStart = System.nanoTime();
+				PortPool.giveBack(port);
+				PrintMetrics.record(first.getPortName(), PrintMetrics.Stage.Release, System.nanoTime() - releaseStart);
+			}
+
+			for (PrintJob job : jobs) {
+				if (job.getRaster() != null) {
+					// A conversion that ran to the end is measured, one that was cut short is not
+					long encodeNanos = job.getRaster().getEncodeNanos();
+					if (encodeNanos >= 0) {
+						PrintMetrics.record(job.getPortName(), PrintMetrics.Stage.Encode, encodeNanos);
+					}
+					job.getRaster().cancel();
+				}
+			}
+
+			if (monitor != null) {
+				monitor.endActivity();
+			}
+		}
+
+		// Share the last status of the checked block with the status listeners of the printer
+		for (int i = results.length - 1; i >= 0; i--) {
+			if (results[i].getStatus() != null) {
+				StatusMonitor.report(first.getPortName(), first.getPortSettings(), results[i].getStatus());
+				break;
+			}
+		}
+
+		for (int i = 0; i < jobs.size(); i++) {
+			PrintMetrics.countResult(first.getPortName(), results[i].getCode().name());
+			completeQuietly(jobs.get(i), results[i]);
+		}
+	}
+
+	/**
+	 * This function fails the documents of a batch that have no result yet and closes the port, whose state is unknown after the error
+	 *
+	 * @return
+	 *     null, the port must not be given back
+	 */
+	private static StarIOPort fail(PrintJob first, StarIOPort port, PrintResult[] results, String message) {
+		// Documents the printer has already confirmed keep their result
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] == null) {
+				results[i] = new PrintResult(PrintResult.Code.CommunicationError, message, null);
+			}
+		}
+
+		if (port != null) {
+			long releaseStart = System.nanoTime();
+			PortPool.evict(port);
+			PrintMetrics.record(first.getPortName(), PrintMetrics.Stage.Release, System.nanoTime() - releaseStart);
+		}
+		return null;
+	}
+
+	private static void completeQuietly(PrintJob job, PrintResult result) {
+		try {
+			job.complete(result);
+		} catch (RuntimeException e) {
+			// A failing listener must not stop the worker
+		}
+	}
+
+	static PrintResult transmit(StarIOPort port, PrintJob job) throws StarIOPortException {
+		/*
+		 * Using Begin / End Checked Block method When sending large amounts of raster data,
+		 * adjust the value in the timeout in the "StarIOPort.getPort" in order to prevent
+		 * "timeout" of the "endCheckedBlock method" while a printing.
+		 *
+		 * If receipt print is success but timeout error occurs(Show message which is "There
+		 * was no response of the printer within the timeout period." ), need to change value
+		 * of timeout more longer in "StarIOPort.getPort" method.
+		 * (e.g.) 10000 -> 30000
+		 */
+		StarPrinterStatus status = beginCheckedBlock(port, job.getPortName());
+
+		if (true == status.offline) {
+			return new PrintResult(PrintResult.Code.Offline, "A printer is offline", status);
+		}
+
+		return finishCheckedBlock(port, job);
+	}
+
+	/**
+	 * This function prints several documents in one checked block. An ETB is written after each document and the ETB counter of the printer tells how many of them have been printed, so each job still gets its own result. The block is finished by polling the counter instead of endCheckedBlock, which expects the counter to have advanced by exactly one.
+	 * Printers without ETB support print the documents in separate checked blocks.
+	 */
+	static void transmitBatch(StarIOPort port, List<PrintJob> jobs, PrintResult[] results) throws StarIOPortException {
+		StarPrinterStatus status = beginCheckedBlock(port, jobs.get(0).getPortName());
+
+		if (true == status.offline) {
+			for (int i = 0; i < results.length; i++) {
+				results[i] = new PrintResult(PrintResult.Code.Offline, "A printer is offline", status);
+			}
+			return;
+		}
+
+		if (status.etbAvailable == false) {
+			results[0] = finishCheckedBlock(port, jobs.get(0));
+			for (int i = 1; i < results.length; i++) {
+				results[i] = transmit(port, jobs.get(i));
+			}
+			return;
+		}
+
+		EtbTracker tracker = new EtbTracker(port, status);
+
+		ChunkedWriter writer = new ChunkedWriter(port, jobs.get(0).getPortName());
+		for (PrintJob job : jobs) {
+			writeDocument(writer, job);
+			tracker.write(writer);
+		}
+
+		for (int i = 0; i < results.length; i++) {
+			// The timeout applies to each document, not to the whole batch
+			if (tracker.waitFor(i + 1, PrintTimeEstimator.timeoutMillis(jobs.get(i).getEstimatedMillis())) == false) {
+				for (int j = i; j < results.length; j++) {
+					results[j] = PrintResult.fromStatus(tracker.getStatus());
+				}
+				return;
+			}
+
+			results[i] = new PrintResult(PrintResult.Code.Success, "", tracker.getStatus());
+		}
+	}
+
+	/**
+	 * This function prints a raster job with a checkpoint after every band. An ETB follows each band, and the ETB counter tells which bands the printer has printed. The encoded bands are kept in the job, so when the cover is opened or the paper runs out partway through, the job waits for the operator to clear the fault and then sends the bands again from the first one that was not confirmed, without converting the image again.
+	 */
+	static PrintResult transmitCheckpointed(StarIOPort port, PrintJob job) throws StarIOPortException {
+		while (true) {
+			StarPrinterStatus status = beginCheckedBlock(port, job.getPortName());
+
+			PrintResult result;
+			if (true == status.offline) {
+				result = PrintResult.fromStatus(status);
+			} else if (status.etbAvailable == false) {
+				return finishCheckedBlock(port, job);
+			} else {
+				result = sendBands(port, job, new EtbTracker(port, status));
+				if (result.isSuccess() == true) {
+					return result;
+				}
+			}
+
+			// A job that has not started printing fails at once as before
+			boolean recoverable = (result.getCode() == PrintResult.Code.CoverOpen) || (result.getCode() == PrintResult.Code.PaperEmpty);
+			if ((recoverable == false) || (job.getConfirmedBands() == 0)) {
+				return result;
+			}
+
+			if (waitForRecovery(port, job) == false) {
+				if (job.isCancelRequested() == true) {
+					return new PrintResult(PrintResult.Code.Cancelled, "Print job was cancelled", result.getStatus());
+				}
+				return result;
+			}
+
+			// The bands that were not confirmed are sent again
+			PrintMetrics.countRetry(job.getPortName());
+		}
+	}
+
+	private static PrintResult sendBands(StarIOPort port, PrintJob job, EtbTracker tracker) throws StarIOPortException {
+		ChunkedWriter writer = new ChunkedWriter(port, job.getPortName());
+		long bandTimeoutMillis = PrintTimeEstimator.timeoutMillis(job.getEstimatedMillis() / Math.max(1, job.getRaster().getBandCount()));
+
+		int first = job.getConfirmedBands();
+		int index = first;
+		int rowsSinceCheck = 0;
+
+		// The header enters raster mode again when the job is resumed
+		writer.write(convertFromListByteArrayTobyteArray(job.getCommands()));
+
+		byte[] band;
+		while ((band = job.getBand(index)) != null) {
+			if (job.isCancelRequested() == true) {
+				// The bands end on a row boundary, so the trailer closes the document cleanly
+				writer.write(convertFromListByteArrayTobyteArray(job.getTrailer()));
+				return new PrintResult(PrintResult.Code.Cancelled, "Print job was cancelled", tracker.getStatus());
+			}
+
+			if (tracker.getOutstanding() >= EtbTracker.MAX_OUTSTANDING) {
+				boolean reached = tracker.waitFor(tracker.getWritten() - EtbTracker.MAX_OUTSTANDING + 1, bandTimeoutMillis);
+				job.setConfirmedBands(first + tracker.getPrinted());
+
+				if (reached == false) {
+					return PrintResult.fromStatus(tracker.getStatus());
+				}
+			}
+
+			writer.write(band);
+			tracker.write(writer);
+			index++;
+
+			// The status is read every few rows so that a fault stops the job before all of the bands have been sent
+			rowsSinceCheck += job.getRaster().getRowsPerBand();
+			if ((job.getCheckedBlockRows() > 0) && (rowsSinceCheck >= job.getCheckedBlockRows())) {
+				rowsSinceCheck = 0;
+
+				boolean healthy = tracker.poll();
+				job.setConfirmedBands(first + tracker.getPrinted());
+
+				if (healthy == false) {
+					return PrintResult.fromStatus(tracker.getStatus());
+				}
+			}
+		}
+
+		writer.write(convertFromListByteArrayTobyteArray(job.getTrailer()));
+		tracker.write(writer);
+
+		boolean reached = tracker.waitFor(tracker.getWritten(), bandTimeoutMillis);
+		job.setConfirmedBands(first + Math.min(tracker.getPrinted(), index - first));
+
+		if (reached == false) {
+			return PrintResult.fromStatus(tracker.getStatus());
+		}
+
+		return new PrintResult(PrintResult.Code.Success, "", tracker.getStatus());
+	}
+
+	/**
+	 * This function prints a long command list in several checked blocks, split between two elements of the list about every getCheckedBlockRows() dot rows. The status is checked at the end of every block, so a cover opened or paper run out early in the job stops it without sending the rest.
+	 */
+	static PrintResult transmitSplit(StarIOPort port, PrintJob job) throws StarIOPortException {
+		List<byte[]> commands = job.getCommands();
+
+		ArrayList<Integer> ends = PrintTimeEstimator.findCheckpoints(commands, job.getCheckedBlockRows(), job.getPortSettings());
+		ends.add(commands.size());
+
+		ChunkedWriter writer = new ChunkedWriter(port, job.getPortName());
+		long start = System.currentTimeMillis();
+
+		// Each block gets the timeout of the whole job, StarIO waits at least 10 seconds anyway
+		port.setEndCheckedBlockTimeoutMillis((int) PrintTimeEstimator.timeoutMillis(job.getEstimatedMillis()));
+
+		PrintResult result = null;
+		int from = 0;
+		for (int to : ends) {
+			StarPrinterStatus status = beginCheckedBlock(port, job.getPortName());
+
+			if (true == status.offline) {
+				return new PrintResult(PrintResult.Code.Offline, "A printer is offline", status);
+			}
+
+			writer.write(convertFromListByteArrayTobyteArray(commands.subList(from, to)));
+
+			result = PrintResult.fromStatus(endCheckedBlock(port, job.getPortName()));
+			if (result.isSuccess() == false) {
+				return result;
+			}
+
+			from = to;
+		}
+
+		PrintTimeEstimator.learn(job.getPortName(), job.getEstimatedMillis(), System.currentTimeMillis() - start);
+
+		return result;
+	}
+
+	private static StarPrinterStatus beginCheckedBlock(StarIOPort port, String portName) throws StarIOPortException {
+		long start = System.nanoTime();
+		StarPrinterStatus status = port.beginCheckedBlock();
+		PrintMetrics.record(portName, PrintMetrics.Stage.Begin, System.nanoTime() - start);
+		return status;
+	}
+
+	private static StarPrinterStatus endCheckedBlock(StarIOPort port, String portName) throws StarIOPortException {
+		long start = System.nanoTime();
+		StarPrinterStatus status = port.endCheckedBlock();
+		PrintMetrics.record(portName, PrintMetrics.Stage.End, System.nanoTime() - start);
+		return status;
+	}
+
+	private static boolean waitForRecovery(StarIOPort port, PrintJob job) throws StarIOPortException {
+		long timeoutMillis;
+		synchronized (workers) {
+			timeoutMillis = recoveryTimeoutMillis;
+		}
+
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while ((System.currentTimeMillis() < deadline) && (job.isCancelRequested() == false)) {
+			try {
+				Thread.sleep(RECOVERY_POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+
+			StarPrinterStatus status = port.retreiveStatus();
+
+			// The status listeners see the fault and its recovery while the job waits
+			StatusMonitor.report(job.getPortName(), job.getPortSettings(), status);
+
+			if (status.offline == false) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static PrintResult finishCheckedBlock(StarIOPort port, PrintJob job) throws StarIOPortException {
+		// Large data is paced against the receive buffer of the printer so that Bluetooth and USB do not overrun it
+		ChunkedWriter writer = new ChunkedWriter(port, job.getPortName());
+		long start = System.currentTimeMillis();
+
+		if (writeDocument(writer, job) == false) {
+			// The printer finishes the data it has received, there is no need to wait for it
+			return new PrintResult(PrintResult.Code.Cancelled, "Print job was cancelled", null);
+		}
+
+		// Change the timeout time of endCheckedBlock method to fit the size of the job and the data the printer still holds in its receive buffer. StarIO waits at least 10 seconds.
+		port.setEndCheckedBlockTimeoutMillis((int) (PrintTimeEstimator.timeoutMillis(job.getEstimatedMillis()) + writer.getDrainMillis()));
+		StarPrinterStatus status = endCheckedBlock(port, job.getPortName());
+
+		PrintResult result = PrintResult.fromStatus(status);
+		if (result.isSuccess() == true) {
+			PrintTimeEstimator.learn(job.getPortName(), job.getEstimatedMillis(), System.currentTimeMillis() - start);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return
+	 *     false if the job was cancelled between two raster bands
+	 */
+	private static boolean writeDocument(ChunkedWriter writer, PrintJob job) throws StarIOPortException {
+		byte[] commandToSendToPrinter = convertFromListByteArrayTobyteArray(job.getCommands());
+		writer.write(commandToSendToPrinter);
+
+		if (job.getRaster() != null) {
+			// Each band is written as soon as it has been converted
+			byte[] band;
+			while ((band = job.getRaster().nextBand()) != null) {
+				if (job.isCancelRequested() == true) {
+					writer.write(convertFromListByteArrayTobyteArray(job.getTrailer()));
+					return false;
+				}
+
+				writer.write(band);
+			}
+
+			commandToSendToPrinter = convertFromListByteArrayTobyteArray(job.getTrailer());
+			writer.write(commandToSendToPrinter);
+		}
+
+		return true;
+	}
+
+	private static byte[] convertFromListByteArrayTobyteArray(List<byte[]> ByteArray) {
+		return LineCommands.convertFromListByteArrayTobyteArray(ByteArray);
+	}
+}
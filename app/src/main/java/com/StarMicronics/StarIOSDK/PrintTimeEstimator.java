@@ -0,0 +1,273 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import com.StarMicronics.StarIOSDK.PortReadiness.Transport;
+import com.StarMicronics.StarIOSDK.RasterDocument.RasSpeed;
+
+public class PrintTimeEstimator {
+	// Predicts how long the printer needs for a job so that each job gets a timeout that fits its size
+
+	private static final double DOTS_PER_MM = 8; // 203 dpi
+	private static final double LINE_FEED_MM = 4.23; // 1/6 inch
+	private static final double PAGE_END_FEED_MM = 15;
+	private static final long CUT_MILLIS = 500;
+	private static final long OVERHEAD_MILLIS = 200;
+
+	private static final long MIN_TIMEOUT_MARGIN_MILLIS = 3000;
+	private static final double MIN_CORRECTION = 0.5;
+	private static final double MAX_CORRECTION = 4.0;
+
+	// Learned ratio between the observed and the estimated print time
+	private static final HashMap<Transport, Double> correction = new HashMap<Transport, Double>();
+
+	private int mRasterRows = 0;
+	private int mLines = 0;
+	private int mCuts = 0;
+	private int mFeeds = 0;
+	private long mBytes = 0;
+	private RasSpeed mSpeed = RasSpeed.Full;
+
+	private boolean mEscPos;
+	private boolean mRasterMode = false;
+	private boolean mCutAtEndOfDocument = false;
+	private boolean mFeedAtEndOfDocument = false;
+
+	/**
+	 * @param portSettings
+	 *     Port settings of the printer. The portable printers ("mini") use ESC/POS, the others Star line mode.
+	 */
+	private PrintTimeEstimator(String portSettings) {
+		mEscPos = (portSettings != null) && (portSettings.toLowerCase(Locale.US).contains("mini") == true);
+	}
+
+	/**
+	 * This function estimates how long the printer needs to receive and print a job. Raster rows are counted from the raster commands and the raster pipeline, line mode lines from the line feeds; the print speed and the page end mode are taken from the RasterDocument commands of the job.
+	 *
+	 * @return
+	 *     estimated time from the first byte sent to the end of printing
+	 */
+	public static long estimateMillis(PrintJob job) {
+		PrintTimeEstimator estimator = new PrintTimeEstimator(job.getPortSettings());
+
+		estimator.scan(job.getCommands());
+		if (job.getRaster() != null) {
+			estimator.mRasterRows += job.getRaster().getRowCount();
+			estimator.mBytes += job.getRaster().getMaxBytes();
+		}
+		estimator.scan(job.getTrailer());
+
+		return estimator.getMillis(PortReadiness.transportOf(job.getPortName()));
+	}
+
+	/**
+	 * This function returns the time to wait for a job that is estimated to print in estimateMillis. The timeout is twice the estimate plus a margin, so a short ticket fails within a few seconds while a long coupon is not cut off.
+	 */
+	public static long timeoutMillis(long estimateMillis) {
+		return estimateMillis * 2 + MIN_TIMEOUT_MARGIN_MILLIS;
+	}
+
+	/**
+	 * This function finds where a command list can be split into several checked blocks. A split is only made between two elements of the list and outside raster mode, about every maxRows dot rows.
+	 *
+	 * @return
+	 *     indexes of the elements that start a new block
+	 */
+	static ArrayList<Integer> findCheckpoints(List<byte[]> commands, int maxRows, String portSettings) {
+		PrintTimeEstimator estimator = new PrintTimeEstimator(portSettings);
+		ArrayList<Integer> checkpoints = new ArrayList<Integer>();
+		double lastRows = 0;
+
+		for (int i = 0; i < commands.size() - 1; i++) {
+			estimator.scan(commands.get(i));
+
+			double rows = estimator.getRows();
+			if ((estimator.mRasterMode == false) && (rows - lastRows >= maxRows)) {
+				checkpoints.add(i + 1);
+				lastRows = rows;
+			}
+		}
+
+		return checkpoints;
+	}
+
+	/**
+	 * This function feeds the observed print time of a successful job back into the estimates for its transport
+	 *
+	 * @param portName
+	 *     Port name of the job. The prefix selects the transport (TCP, BT or USB).
+	 * @param estimateMillis
+	 *     Estimate of the job
+	 * @param observedMillis
+	 *     Time the job actually took
+	 */
+	public static void learn(String portName, long estimateMillis, long observedMillis) {
+		if (estimateMillis <= 0) {
+			return;
+		}
+
+		Transport transport = PortReadiness.transportOf(portName);
+		double ratio = Math.max(MIN_CORRECTION, Math.min((double) observedMillis / estimateMillis * getCorrection(transport), MAX_CORRECTION));
+
+		synchronized (correction) {
+			correction.put(transport, (getCorrection(transport) * 3 + ratio) / 4);
+		}
+	}
+
+	private static double getCorrection(Transport transport) {
+		synchronized (correction) {
+			Double learned = correction.get(transport);
+			return (learned == null) ? 1.0 : learned;
+		}
+	}
+
+	private static double speedMmPerSecond(RasSpeed speed) {
+		switch (speed) {
+		case Full:
+			return 150;
+		case Medium:
+			return 100;
+		case Low:
+			return 50;
+		}
+
+		return 150;
+	}
+
+	private double getRows() {
+		return mRasterRows + (mLines * LINE_FEED_MM + mFeeds * PAGE_END_FEED_MM) * DOTS_PER_MM;
+	}
+
+	private long getMillis(Transport transport) {
+		double printMm = getRows() / DOTS_PER_MM;
+		long printMillis = (long) (printMm * 1000 / speedMmPerSecond(mSpeed));
+		long transferMillis = mBytes * 1000 / ChunkedWriter.getProfile(transport).linkBytesPerSecond;
+
+		// The printer prints while the data is still arriving
+		long millis = Math.max(printMillis, transferMillis) + mCuts * CUT_MILLIS + OVERHEAD_MILLIS;
+
+		return (long) (millis * getCorrection(transport));
+	}
+
+	private void scan(List<byte[]> commands) {
+		for (byte[] command : commands) {
+			mBytes += command.length;
+			scan(command);
+		}
+	}
+
+	private void scan(byte[] data) {
+		int i = 0;
+
+		while (i < data.length) {
+			byte b = data[i];
+
+			if ((b == 0x1b) && (i + 3 < data.length) && (data[i + 1] == '*') && (data[i + 2] == 'r')) {
+				i = scanRasterCommand(data, i + 3);
+			} else if ((mRasterMode == false) && (b == 0x1b) && (i + 2 < data.length) && (data[i + 1] == 'd')) {
+				if (mEscPos == true) {
+					// Feed n lines <ESC> d n
+					mLines += data[i + 2] & 0xff;
+				} else {
+					// Line mode cut <ESC> d n
+					mCuts++;
+				}
+				i += 3;
+			} else if ((mRasterMode == false) && ((b == 0x1b) || (b == 0x1d)) && (i + 1 < data.length)) {
+				i = scanImageCommand(data, i);
+			} else if ((mRasterMode == true) && ((b == 'b') || (b == 'k')) && (i + 2 < data.length)) {
+				// Raster row 'b' n1 n2 d1 ... dk
+				mRasterRows++;
+				i += 3 + (data[i + 1] & 0xff) + (data[i + 2] & 0xff) * 256;
+			} else {
+				if ((mRasterMode == false) && (b == 0x0a)) {
+					mLines++;
+				}
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * This function skips the data of a bit image or raster image, which may contain bytes that look like line feeds, and counts its dot rows
+	 *
+	 * @return
+	 *     index after the image, or after the first byte if the command is not an image
+	 */
+	private int scanImageCommand(byte[] data, int i) {
+		byte b = data[i];
+		byte command = data[i + 1];
+
+		if (mEscPos == false) {
+			if ((b == 0x1b) && ((command == 'K') || (command == 'L')) && (i + 3 < data.length)) {
+				// Bit image <ESC> K n1 n2 d1 ... dk, one line of 8 dots fed by the following line feed
+				return i + 4 + (data[i + 2] & 0xff) + (data[i + 3] & 0xff) * 256;
+			}
+		} else if ((b == 0x1b) && (command == 'X') && (i + 4 < data.length) && (data[i + 2] == '4')) {
+			// Bit image band <ESC> X 4 x y d1 ... d(x * y)
+			int width = data[i + 3] & 0xff;
+			int height = data[i + 4] & 0xff;
+			mRasterRows += height;
+			return i + 5 + width * height;
+		} else if ((b == 0x1d) && (command == '8') && (i + 16 < data.length) && (data[i + 2] == 'L')) {
+			// Raster image <GS> 8 L p1 p2 p3 p4 m fn a bx by c xL xH yL yH d1 ... dk
+			int width = (data[i + 13] & 0xff) + (data[i + 14] & 0xff) * 256;
+			int height = (data[i + 15] & 0xff) + (data[i + 16] & 0xff) * 256;
+			mRasterRows += height;
+			return i + 17 + (width + 7) / 8 * height;
+		} else if ((b == 0x1d) && (command == 'v') && (i + 7 < data.length) && (data[i + 2] == '0')) {
+			// Raster image <GS> v 0 m xL xH yL yH d1 ... dk, the width in bytes
+			int width = (data[i + 4] & 0xff) + (data[i + 5] & 0xff) * 256;
+			int height = (data[i + 6] & 0xff) + (data[i + 7] & 0xff) * 256;
+			mRasterRows += height;
+			return i + 8 + width * height;
+		}
+
+		return i + 1;
+	}
+
+	private int scanRasterCommand(byte[] data, int i) {
+		byte command = data[i];
+
+		if (command == 'A') {
+			mRasterMode = true;
+			return i + 1;
+		} else if (command == 'B') {
+			mRasterMode = false;
+			if (mCutAtEndOfDocument == true) {
+				mCuts++;
+			}
+			if (mFeedAtEndOfDocument == true) {
+				mFeeds++;
+			}
+			return i + 1;
+		}
+
+		// The other raster commands end with NUL
+		int end = i + 1;
+		while ((end < data.length) && (data[end] != 0x00)) {
+			end++;
+		}
+		String parameter = new String(data, i + 1, end - i - 1);
+
+		try {
+			if (command == 'Y') {
+				mRasterRows += Integer.parseInt(parameter);
+			} else if (command == 'Q') {
+				int speed = Integer.parseInt(parameter);
+				mSpeed = (speed == 2) ? RasSpeed.Low : ((speed == 1) ? RasSpeed.Medium : RasSpeed.Full);
+			} else if (command == 'E') {
+				int mode = Integer.parseInt(parameter);
+				mCutAtEndOfDocument = (mode == 8) || (mode == 9) || (mode == 12) || (mode == 13);
+				mFeedAtEndOfDocument = (mode == 2) || (mode == 3) || (mode == 9) || (mode == 13) || (mode == 37);
+			}
+		} catch (NumberFormatException e) {
+			// Not a command the estimate depends on
+		}
+
+		return end + 1;
+	}
+}
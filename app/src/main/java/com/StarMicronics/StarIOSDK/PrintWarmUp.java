@@ -0,0 +1,120 @@
+package com.StarMicronics.StarIOSDK;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Typeface;
+
+import com.StarMicronics.StarIOSDK.RasterDocument.RasPageEndMode;
+import com.StarMicronics.StarIOSDK.RasterDocument.RasSpeed;
+import com.StarMicronics.StarIOSDK.RasterDocument.RasTopMargin;
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+
+public class PrintWarmUp {
+	// Pays the cold costs of the first print in the background when the app starts or resumes, so that the first receipt is as fast as the next ones
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+	private static final String[] ENCODINGS = { "Shift_JIS", "ISO2022JP", "Big5", "GB2312" };
+
+	private static Thread thread = null;
+	private static boolean rendered = false;
+
+	/**
+	 * This function starts the warm-up on a background thread unless one is still running. The first call renders the fixed images of the receipts into RasterAssets and loads the typefaces, the charsets and the command classes. Every call opens the ports into PortPool, or checks the ports already there, so that the next job skips the connect.
+	 *
+	 * @param context
+	 *     Context used by StarIOPort to open USB ports
+	 * @param portNames
+	 *     Port names of the printers and drawers to open. Null entries are skipped.
+	 * @param portSettings
+	 *     The port settings of each port, in the order of portNames
+	 */
+	public static void start(Context context, String[] portNames, String[] portSettings) {
+		final Context appContext = context.getApplicationContext();
+		final String[] names = portNames.clone();
+		final String[] settings = portSettings.clone();
+
+		synchronized (PrintWarmUp.class) {
+			if (thread != null) {
+				return;
+			}
+
+			thread = new Thread("PrintWarmUp") {
+				@Override
+				public void run() {
+					try {
+						warmUp(appContext, names, settings);
+					} finally {
+						synchronized (PrintWarmUp.class) {
+							thread = null;
+						}
+					}
+				}
+			};
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			thread.start();
+		}
+	}
+
+	private static void warmUp(Context context, String[] portNames, String[] portSettings) {
+		boolean render;
+		synchronized (PrintWarmUp.class) {
+			render = (rendered == false);
+			rendered = true;
+		}
+
+		// Rendering takes a fraction of a second and does not wait for a printer that is turned off, so it goes first
+		if (render == true) {
+			warmEncoders();
+			warmAssets(context.getResources());
+		}
+
+		for (int i = 0; i < portNames.length; i++) {
+			if ((portNames[i] == null) || (portSettings[i] == null)) {
+				continue;
+			}
+			openPort(context, portNames[i], portSettings[i]);
+		}
+	}
+
+	private static void warmEncoders() {
+		byte[] text = "Warm up 0123456789".getBytes();
+
+		// Loads the charsets of the kanji and Chinese text commands
+		for (String encode : ENCODINGS) {
+			LineCommands.createTextCommands(false, false, false, false, false, false, 0, 0, (byte) 0, LineCommands.ALIGN_LEFT, text, encode);
+		}
+
+		RasterDocument rasterDoc = new RasterDocument(RasSpeed.Medium, RasPageEndMode.FeedAndFullCut, RasPageEndMode.FeedAndFullCut, RasTopMargin.Standard, 0, 0, 0);
+		rasterDoc.BeginDocumentCommandData();
+		rasterDoc.EndDocumentCommandData();
+
+		// Loads the typefaces and the text layout classes used for raster text
+		Typeface.create(Typeface.SERIF, Typeface.NORMAL);
+		Typeface.create(Typeface.SERIF, Typeface.BOLD);
+		PrinterFunctions.createRasterCommand("Warm up", 13, 0);
+		PrinterFunctions.createRasterCommand("Warm up", 13, Typeface.BOLD);
+	}
+
+	private static void warmAssets(Resources res) {
+		// The fixed images of the sample receipts
+		RasterAssets.getRasterData(res, R.drawable.qrcode, 146);
+		RasterAssets.getRasterData(res, R.drawable.qrcode_cht, 146);
+		RasterAssets.getRasterData(res, R.drawable.code39, 200);
+	}
+
+	private static void openPort(Context context, String portName, String portSettings) {
+		StarIOPort port = null;
+
+		try {
+			// A port that is in use is already open
+			port = PortPool.leaseIfIdle(context, portName, portSettings, CONNECT_TIMEOUT_MILLIS);
+		} catch (StarIOPortException e) {
+			// The printer is turned off or not reachable, the first job reports it
+			return;
+		}
+
+		PortPool.giveBack(port);
+	}
+}
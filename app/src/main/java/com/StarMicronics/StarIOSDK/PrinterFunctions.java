@@ -1,11 +1,9 @@
 package com.StarMicronics.StarIOSDK;
 
-import java.io.UnsupportedEncodingException;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.List;
 import java.util.Map;
 
 import android.app.AlertDialog;
@@ -239,17 +237,11 @@ public class PrinterFunctions {
 	public static void CheckFirmwareVersion(Context context, String portName, String portSettings) {
 		StarIOPort port = null;
 		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			port = StarIOPort.getPort(portName, portSettings, 10000, context);
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1 port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
+			// Called on the UI thread, so a port used by a job is not waited for
+			port = PortPool.leaseIfIdle(context, portName, portSettings, 10000);
+			if (port == null) {
+				showPrinterBusy(context);
+				return;
 			}
 
 			Map<String, String> firmware = port.getFirmwareInformation();
@@ -276,13 +268,11 @@ public class PrinterFunctions {
 			alert.setMessage("Failed to connect to printer");
 			alert.setCancelable(false);
 			alert.show();
+
+			PortPool.evict(port);
+			port = null;
 		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
-				}
-			}
+			PortPool.giveBack(port);
 		}
 	}
 
@@ -299,17 +289,11 @@ public class PrinterFunctions {
 	public static void CheckDipSwitchSettings(Context context, String portName, String portSettings) {
 		StarIOPort port = null;
 		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			port = StarIOPort.getPort(portName, portSettings, 10000, context);
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1 port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
+			// Called on the UI thread, so a port used by a job is not waited for
+			port = PortPool.leaseIfIdle(context, portName, portSettings, 10000);
+			if (port == null) {
+				showPrinterBusy(context);
+				return;
 			}
 
 			Map<String, Boolean> dipswinfo = port.getDipSwitchInformation();
@@ -370,13 +354,11 @@ public class PrinterFunctions {
 			alert.setMessage(e.getMessage());
 			alert.setCancelable(false);
 			alert.show();
+
+			PortPool.evict(port);
+			port = null;
 		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
-				}
-			}
+			PortPool.giveBack(port);
 		}
 	}
 
@@ -395,18 +377,11 @@ public class PrinterFunctions {
 	public static void CheckStatus(Context context, String portName, String portSettings, boolean sensorActiveHigh) {
 		StarIOPort port = null;
 		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-            port = StarIOPort.getPort(portName, portSettings, 10000, context);
-            //port.getDipSwitchInformation().keySet();
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1 port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
+			// Called on the UI thread, so a port used by a job is not waited for
+			port = PortPool.leaseIfIdle(context, portName, portSettings, 10000);
+			if (port == null) {
+				showPrinterBusy(context);
+				return;
 			}
 
 			StarPrinterStatus status = port.retreiveStatus();
@@ -477,13 +452,11 @@ public class PrinterFunctions {
 			alert.setMessage("Failed to connect to printer");
 			alert.setCancelable(false);
 			alert.show();
+
+			PortPool.evict(port);
+			port = null;
 		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
-				}
-			}
+			PortPool.giveBack(port);
 		}
 	}
 
@@ -862,111 +835,20 @@ public class PrinterFunctions {
 	 *     Set encode for multi-byte character or blank for single byte character.
 	 */
 	public static void PrintText(Context context, String portName, String portSettings, boolean slashedZero, boolean underline, boolean invertColor, boolean emphasized, boolean upperline, boolean upsideDown, int heightExpansion, int widthExpansion, byte leftMargin, Alignment alignment, byte[] textData, String encode) {
-		ArrayList<byte[]> commands = new ArrayList<byte[]>();
-
-		commands.add(new byte[] { 0x1b, 0x40 }); // Initialization
-
-		if (encode.startsWith("Shift_JIS")) {
-			byte[] kanjiModeCommand = new byte[] { 0x1b, 0x71, 0x1b, 0x24, 0x31 }; // Shift-JIS Kanji Mode(Disable JIS(ESC q) + Enable Shift-JIS(ESC $ n))
-			commands.add(kanjiModeCommand);
-		} else if (encode.startsWith("ISO2022JP")) {
-			byte[] kanjiModeCommand = new byte[] { 0x1b, 0x24, 0x30 }; // JIS Kanji Mode(Disable Shift-JIS(ESC $ n))
-			commands.add(kanjiModeCommand);
-		}
-
-		byte[] slashedZeroCommand = new byte[] { 0x1b, 0x2f, 0x00 };
-		if (slashedZero) {
-			slashedZeroCommand[2] = 49;
-		} else {
-			slashedZeroCommand[2] = 48;
-		}
-		commands.add(slashedZeroCommand);
-
-		byte[] underlineCommand = new byte[] { 0x1b, 0x2d, 0x00 };
-		if (underline) {
-			underlineCommand[2] = 49;
-		} else {
-			underlineCommand[2] = 48;
-		}
-		commands.add(underlineCommand);
-
-		byte[] invertColorCommand = new byte[] { 0x1b, 0x00 };
-		if (invertColor) {
-			invertColorCommand[1] = 0x34;
-		} else {
-			invertColorCommand[1] = 0x35;
-		}
-		commands.add(invertColorCommand);
-
-		byte[] emphasizedPrinting = new byte[] { 0x1b, 0x00 };
-		if (emphasized) {
-			emphasizedPrinting[1] = 69;
-		} else {
-			emphasizedPrinting[1] = 70;
-		}
-		commands.add(emphasizedPrinting);
-
-		byte[] upperLineCommand = new byte[] { 0x1b, 0x5f, 0x00 };
-		if (upperline) {
-			upperLineCommand[2] = 49;
-		} else {
-			upperLineCommand[2] = 48;
-		}
-		commands.add(upperLineCommand);
-
-		if (upsideDown) {
-			commands.add(new byte[] { 0x0f });
-		} else {
-			commands.add(new byte[] { 0x12 });
-		}
-
-		byte[] characterExpansion = new byte[] { 0x1b, 0x69, 0x00, 0x00 };
-		characterExpansion[2] = (byte) (heightExpansion + '0');
-		characterExpansion[3] = (byte) (widthExpansion + '0');
-		commands.add(characterExpansion);
-
-		commands.add(new byte[] { 0x1b, 0x6c, leftMargin });
-
-		byte[] alignmentCommand = new byte[] { 0x1b, 0x1d, 0x61, 0x00 };
+		int alignmentValue = LineCommands.ALIGN_LEFT;
 		switch (alignment) {
 		case Left:
-			alignmentCommand[3] = 48;
+			alignmentValue = LineCommands.ALIGN_LEFT;
 			break;
 		case Center:
-			alignmentCommand[3] = 49;
+			alignmentValue = LineCommands.ALIGN_CENTER;
 			break;
 		case Right:
-			alignmentCommand[3] = 50;
+			alignmentValue = LineCommands.ALIGN_RIGHT;
 			break;
 		}
-		commands.add(alignmentCommand);
 
-		// textData Encoding!!
-		if (encode == "") {
-			commands.add(textData);
-		} else {
-			String strData = new String(textData);
-			byte[] rawData = null;
-			try {
-				if (encode.startsWith("Shift_JIS")) {
-					rawData = strData.getBytes("Shift_JIS"); // Shift JIS code
-				} else if (encode.startsWith("ISO2022JP")) {
-					byte[] tempDataBytes  = strData.getBytes("ISO2022JP"); // JIS code;
-					rawData = ReplaceCommand(tempDataBytes);				
-				} else if (encode.startsWith("Big5")) {
-					rawData = strData.getBytes("Big5"); // Traditional Chinese
-				} else if (encode.startsWith("GB2312")) {
-					rawData = strData.getBytes("GB2312"); // Simplified Chinese
-				} else {
-					rawData = strData.getBytes();
-				}
-			} catch (UnsupportedEncodingException e) {
-				rawData = strData.getBytes();
-			}
-			commands.add(rawData);
-		}
-
-		commands.add(new byte[] { 0x0a });
+		ArrayList<byte[]> commands = LineCommands.createTextCommands(slashedZero, underline, invertColor, emphasized, upperline, upsideDown, heightExpansion, widthExpansion, leftMargin, alignmentValue, textData, encode);
 
 		sendCommand(context, portName, portSettings, commands);
 	}
@@ -1094,87 +976,13 @@ public class PrinterFunctions {
 		}
 		commands.add(alignmentCommand);
 
-		// textData Encoding!!
-		if (encode == "") {
-			commands.add(textData);
-		} else {
-			String strData = new String(textData);
-			byte[] rawData = null;
-			try {
-				if (encode.startsWith("Shift_JIS")) {
-					rawData = strData.getBytes("Shift_JIS"); // Shift JIS code
-				} else if (encode.startsWith("ISO2022JP")) {				
-					byte[] tempDataBytes  = strData.getBytes("ISO2022JP"); // JIS code;
-					rawData = ReplaceCommand(tempDataBytes);					
-				} else if (encode.startsWith("Big5")) {
-					rawData = strData.getBytes("Big5"); // Traditional Chinese
-				} else if (encode.startsWith("GB2312")) {
-					rawData = strData.getBytes("GB2312"); // Simplified Chinese
-				} else {
-					rawData = strData.getBytes();
-				}
-			} catch (UnsupportedEncodingException e) {
-				rawData = strData.getBytes();
-			}
-			commands.add(rawData);
-		}
+		commands.add(LineCommands.encodeText(textData, encode));
 
 		commands.add(new byte[] { 0x0a });
 
 		sendCommand(context, portName, portSettings, commands);
 	}
 
-	protected static byte[] ReplaceCommand(byte[] tempDataBytes) {
-
-		byte[] buffer = new byte[tempDataBytes.length];
-		int j = 0;
-		
-		byte[] specifyJISkanjiCharacterModeCommand = new byte[] {0x1b, 0x70};
-		byte[] cancelJISkanjiCharacterModeCommand = new byte[] {0x1b, 0x71};
-		
-		//replace command
-		//Because LF(0x0A) command is not performed.
-		if(tempDataBytes.length > 0){
-			for(int i=0; i<tempDataBytes.length; i++){
-				if(tempDataBytes[i] == 0x1b){
-					if(tempDataBytes[i+1] == 0x24){// Replace [0x1b 0x24 0x42] to "Specify JIS Kanji Character Mode" command
-						buffer[j]   = specifyJISkanjiCharacterModeCommand[0];
-						buffer[j+1] = specifyJISkanjiCharacterModeCommand[1];
-						j += 2;
-					}
-					else if(tempDataBytes[i+1] == 0x28){//Replace [0x1b 0x28 0x42] to "Cancel JIS Kanji Character Mode" command
-						buffer[j]   = cancelJISkanjiCharacterModeCommand[0];
-						buffer[j+1] = cancelJISkanjiCharacterModeCommand[1];
-						j += 2;
-					}
-					
-					i += 2;
-				}else{
-					buffer[j] = tempDataBytes[i];
-					j++;
-				}
-			}
-		}
-		
-		//check 0x00 position
-		int datalength = 0;
-		for(int i=0; i< buffer.length; i++){
-			if(buffer[i] == 0x00){
-				datalength = i;
-				break;
-			}
-		}
-		
-		//copy data
-		if(datalength == 0){
-			datalength = buffer.length;
-		}
-		byte[] data = new byte[datalength];		
-		System.arraycopy(buffer, 0, data, 0, datalength);
-
-		return data;
-	}
-
 	/**
 	 * This function is used to print a Java bitmap directly to the printer. There are 2 ways a printer can print images: through raster commands or line mode commands This function uses raster commands to print an image. Raster is supported on the TSP100 and all Star Thermal POS printers. Line mode printing is not supported by the TSP100. There is no example of using this method in this sample.
 	 * 
@@ -1188,23 +996,30 @@ public class PrinterFunctions {
 	 *     The bitmap to convert to Star Raster data
 	 * @param maxWidth
 	 *     The maximum width of the image to print. This is usually the page width of the printer. If the image exceeds the maximum width then the image is scaled down. The ratio is maintained.
+	 * @return
+	 *     print job of the image. Cancelling it stops the printing after the current band.
 	 */
-	public static void PrintBitmap(Context context, String portName, String portSettings, Bitmap source, int maxWidth, boolean compressionEnable) {
+	public static PrintJob PrintBitmap(Context context, String portName, String portSettings, Bitmap source, int maxWidth, boolean compressionEnable) {
+		PortPrefetch prefetch = PortPrefetch.start(context, portName, portSettings);
 		try {
-			ArrayList<byte[]> commands = new ArrayList<byte[]>();
+			ArrayList<byte[]> header = new ArrayList<byte[]>();
+			ArrayList<byte[]> trailer = new ArrayList<byte[]>();
 
 			RasterDocument rasterDoc = new RasterDocument(RasSpeed.Medium, RasPageEndMode.FeedAndFullCut, RasPageEndMode.FeedAndFullCut, RasTopMargin.Standard, 0, 0, 0);
-			StarBitmap starbitmap = new StarBitmap(source, false, maxWidth);
-
-			commands.add(rasterDoc.BeginDocumentCommandData());
+			StarBitmap starbitmap = new StarBitmap(new BitmapPixelSource(source), false, maxWidth);
 
-			commands.add(starbitmap.getImageRasterDataForPrinting(compressionEnable));
+			header.add(rasterDoc.BeginDocumentCommandData());
 
-			commands.add(rasterDoc.EndDocumentCommandData());
+			trailer.add(rasterDoc.EndDocumentCommandData());
 
-			sendCommand(context, portName, portSettings, commands);
+			// The image is converted band by band while the first bands are already being sent
+			PrintJob job = sendCommand(context, portName, portSettings, header, new RasterPipeline(starbitmap, compressionEnable), trailer);
+			prefetch.markUsed();
+			return job;
 		} catch (OutOfMemoryError e) {
 			throw e;
+		} finally {
+			prefetch.close();
 		}
 
 	}
@@ -1224,21 +1039,30 @@ public class PrinterFunctions {
 	 *     The resource id of the image data
 	 * @param maxWidth
 	 *     The maximum width of the image to print. This is usually the page width of the printer. If the image exceeds the maximum width then the image is scaled down. The ratio is maintained.
+	 * @return
+	 *     print job of the image. Cancelling it stops the printing after the current band.
 	 */
-	public static void PrintBitmapImage(Context context, String portName, String portSettings, Resources res, int source, int maxWidth, boolean compressionEnable) {
-		ArrayList<byte[]> commands = new ArrayList<byte[]>();
-
-		RasterDocument rasterDoc = new RasterDocument(RasSpeed.Medium, RasPageEndMode.FeedAndFullCut, RasPageEndMode.FeedAndFullCut, RasTopMargin.Standard, 0, 0, 0);
-		Bitmap bm = BitmapFactory.decodeResource(res, source);
-		StarBitmap starbitmap = new StarBitmap(bm, false, maxWidth);
+	public static PrintJob PrintBitmapImage(Context context, String portName, String portSettings, Resources res, int source, int maxWidth, boolean compressionEnable) {
+		// The port opens while the image is decoded
+		PortPrefetch prefetch = PortPrefetch.start(context, portName, portSettings);
+		try {
+			ArrayList<byte[]> header = new ArrayList<byte[]>();
+			ArrayList<byte[]> trailer = new ArrayList<byte[]>();
 
-		commands.add(rasterDoc.BeginDocumentCommandData());
+			RasterDocument rasterDoc = new RasterDocument(RasSpeed.Medium, RasPageEndMode.FeedAndFullCut, RasPageEndMode.FeedAndFullCut, RasTopMargin.Standard, 0, 0, 0);
+			Bitmap bm = BitmapFactory.decodeResource(res, source);
+			StarBitmap starbitmap = new StarBitmap(new BitmapPixelSource(bm), false, maxWidth);
 
-		commands.add(starbitmap.getImageRasterDataForPrinting(compressionEnable));
+			header.add(rasterDoc.BeginDocumentCommandData());
 
-		commands.add(rasterDoc.EndDocumentCommandData());
+			trailer.add(rasterDoc.EndDocumentCommandData());
 
-		sendCommand(context, portName, portSettings, commands);
+			PrintJob job = sendCommand(context, portName, portSettings, header, new RasterPipeline(starbitmap, compressionEnable), trailer);
+			prefetch.markUsed();
+			return job;
+		} finally {
+			prefetch.close();
+		}
 	}
 
 	/**
@@ -1258,111 +1082,7 @@ public class PrinterFunctions {
 	}
 
 	public static void PrintSampleReceiptCHTbyDotPrinter(Context context, String portName, String portSettings) {
-		ArrayList<byte[]> list = new ArrayList<byte[]>();
-
-		list.add(new byte[] { 0x1b, 0x40 }); // Initialization
-		// list.add(new byte[]{0x1d, 0x57, (byte) 0x80, 0x01});
-		// list.add(new byte[]{0x1b, 0x24, 0x31});
-		list.add(new byte[] { 0x1b, 0x44, 0x10, 0x00 }); // <ESC> <D> n1 n2 nk <NUL>
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 }); // <ESC> <GS> a n
-
-		list.add(new byte[] { 0x1b, 0x57, 0x31 }); // <ESC> <W> n
-		list.add(new byte[] { 0x1b, 0x45 }); // <ESC> <E>
-
-		// outputByteBuffer = "[If loaded.. Logo1 goes here]\r\n".getBytes();
-		// tempList = new byte[outputByteBuffer.length];
-		// CopyArray(outputByteBuffer, tempList);
-		// list.add(tempList));
-		// list.add(new byte[]{0x1b, 0x1c, 0x70, 0x01, 0x00, '\r', '\n'});
-		// //Stored Logo Printing
-
-		list.add(createBIG5(context.getResources().getString(R.string.title_company_name_cht) + "\n"));
-
-		list.add(new byte[] { 0x1b, 0x57, 0x30, 0x00 }); // <ESC> <W> n
-		list.add(new byte[] { 0x1b, 0x46 }); // <ESC> <F>
-
-		list.add(createBIG5("------------------------------------------"));
-
-		list.add(new byte[] { 0x1b, 0x57, 0x31 }); // <ESC> <W> n
-
-		list.add(createBIG5(context.getResources().getString(R.string.title_receipt_name_cht) + "\n"));
-
-		list.add(createBIG5(context.getResources().getString(R.string.cht_103) + "\n"));
-
-		list.add(createBIG5(context.getResources().getString(R.string.ev_99999999_cht) + "\n"));
-
-		list.add(new byte[] { 0x1b, 0x57, 0x30, 0x00 }); // <ESC> <W> n
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
-
-		list.add(createBIG5(context.getResources().getString(R.string.date_cht) + "\n"));
-
-		list.add(createBIG5(context.getResources().getString(R.string.random_code_cht) + "\n"));
-
-		list.add(createBIG5(context.getResources().getString(R.string.seller_cht) + "\n"));
-
-		// 1D barcode example
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 });
-		list.add(new byte[] { 0x1b, 0x62, 0x35, 0x31, 0x33, 0x20 });
-
-		list.add(("999999999\u001e\r\n").getBytes());
-
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
-
-		list.add(createBIG5(context.getResources().getString(R.string.Item_list_cht) + "\n"));
-
-		list.add(createBIG5(context.getResources().getString(R.string.Item_list_Number_cht) + "\n\n\n"));
-
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 }); // <ESC> <GS> a n
-
-		list.add(createBIG5(context.getResources().getString(R.string.Sales_schedules_cht) + "\n"));
-
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
-
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x32 }); // <ESC> <GS> a n
-		list.add(createBIG5(context.getResources().getString(R.string.date_2_cht) + "\n"));
-
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
-
-		list.add(createBIG5(context.getResources().getString(R.string.ItemInfo_3inch_line_cht) + "\n"));
-
-		list.add(new byte[] { 0x1b, 0x45 }); // <ESC> <E>
-
-		list.add(createBIG5(context.getResources().getString(R.string.sub_3inch_line_cht) + "\n"));
-
-		list.add(createBIG5(context.getResources().getString(R.string.total_3inch_line_cht) + "\n"));
-
-		list.add(new byte[] { 0x1b, 0x46 }); // <ESC> <F>
-
-		list.add(createBIG5("------------------------------------------\n"));
-
-		list.add(createBIG5(context.getResources().getString(R.string.cash_3inch_line_cht) + "\n"));
-
-		list.add(createBIG5(context.getResources().getString(R.string.change_3inch_line_cht) + "\n"));
-
-		list.add(new byte[] { 0x1b, 0x45 }); // <ESC> <E>
-
-		list.add(createBIG5(context.getResources().getString(R.string.Invoice_3inch_line_cht) + "\n"));
-
-		list.add(new byte[] { 0x1b, 0x46 }); // <ESC> <F>
-
-		list.add(createBIG5(context.getResources().getString(R.string.date_3_cht) + "\n"));
-
-		// 1D barcode example
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 });
-		list.add(new byte[] { 0x1b, 0x62, 0x35, 0x31, 0x33, 0x20 });
-
-		list.add(("999999999\u001e\r\n").getBytes());
-
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
-
-		list.add(createBIG5(context.getResources().getString(R.string.info_cht) + "\n"));
-
-		list.add(createBIG5(context.getResources().getString(R.string.info_number_cht) + "\n"));
-
-		list.add(new byte[] { 0x1b, 0x64, 0x33 }); // Cut
-		list.add(new byte[] { 0x07 }); // Kick cash drawer
-
-		sendCommand(context, portName, portSettings, list);
+		sendCommand(context, portName, portSettings, SampleReceipts.createReceiptCHTbyDotPrinter(traditionalChineseText(context.getResources())));
 	}
 
 	public static void PrintSampleReceiptCHSbyDotPrinter(Context context, String portName, String portSettings) {
@@ -1495,89 +1215,7 @@ public class PrinterFunctions {
 	 *     The resources object containing the image data. ( e.g.) getResources())
 	 */
 	public static void PrintSampleReceiptbyDotPrinter(Context context, String portName, String portSettings) {
-		ArrayList<byte[]> list = new ArrayList<byte[]>();
-
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 }); // Alignment (center)
-
-		// list.add("[If loaded.. Logo1 goes here]\r\n".getBytes());
-		// list.add(new byte[]{0x1b, 0x1c, 0x70, 0x01, 0x00, '\r', '\n'}); //Stored Logo Printing <ESC> <FC> <p> n m
-
-		list.add("\nStar Clothing Boutique\r\n".getBytes());
-
-		list.add("123 Star Road\r\nCity, State 12345\r\n\r\n".getBytes());
-
-		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x00 }); // Alignment
-
-		list.add(new byte[] { 0x1b, 0x44, 0x02, 0x10, 0x22, 0x00 }); // Set horizontal tab <ESC> <D> n1 n2 ...nk NUL
-
-		list.add("Date: MM/DD/YYYY".getBytes());
-
-		list.add("             Time:HH:MM PM\r\n".getBytes());
-
-		list.add("------------------------------------------\r\n\r\n".getBytes());
-
-		list.add(new byte[] { 0x1b, 0x45 }); // bold
-
-		list.add("SALE \r\n".getBytes());
-
-		list.add(new byte[] { 0x1b, 0x46 }); // bolf off
-
-		list.add("SKU ".getBytes());
-
-		list.add(new byte[] { 0x09 });
-
-		// Notice that we use a unicode representation because that is how Java
-		// expresses these bytes as double byte unicode
-		// This will TAB to the next horizontal position
-		list.add("Description \u0009 Total\r\n".getBytes());
-
-		list.add("300678566 \u0009PLAIN T-SHIRT\u0009  10.99\r\n".getBytes());
-
-		list.add("300692003 \u0009BLACK DENIM\u0009  29.99\r\n".getBytes());
-
-		list.add("300651148 \u0009BLUE DENIM\u0009  29.99\r\n".getBytes());
-
-		list.add("300642980 \u0009STRIPED DRESS\u0009  49.99\r\n".getBytes());
-
-		list.add("300638471 \u0009BLACK BOOTS\u0009  35.99\r\n\r\n".getBytes());
-
-		list.add("Subtotal \u0009\u0009 156.95\r\n".getBytes());
-
-		list.add("Tax \u0009\u0009   0.00\r\n".getBytes());
-
-		list.add("------------------------------------------\r\n".getBytes());
-
-		list.add("Total".getBytes());
-
-		// Character expansion
-		list.add(new byte[] { 0x06, 0x09, 0x1b, 0x69, 0x01, 0x01 });
-
-		list.add("                  $156.95\r\n".getBytes());
-
-		list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 }); // Cancel Character Expansion
-
-		list.add("------------------------------------------\r\n\r\n".getBytes());
-		list.add("Charge\r\n159.95\r\n".getBytes());
-		list.add("Visa XXXX-XXXX-XXXX-0123\r\n\r\n".getBytes());
-
-		// Specify/Cancel White/Black Invert
-		list.add("\u001b\u0034Refunds and Exchanges\u001b\u0035\r\n".getBytes());
-
-		// Specify/Cancel Underline Printing
-		list.add(("Within " + "\u001b\u002d\u0001" + "30 days\u001b\u002d\u0000" + " with receipt\r\n").getBytes());
-
-		// list.add("And tags attached\r\n\r\n".getBytes());
-
-		// 1D barcode example
-		// list.add(new byte[]{0x1b, 0x1d, 0x61, 0x01});
-		// list.add(new byte[]{0x1b, 0x62, 0x06, 0x02, 0x02});
-
-		// list.add(" 12ab34cd56\u001e\r\n".getBytes());
-
-		list.add(new byte[] { 0x1b, 0x64, 0x02 }); // Cut
-		list.add(new byte[] { 0x07 }); // Kick cash drawer
-
-		sendCommand(context, portName, portSettings, list);
+		sendCommand(context, portName, portSettings, SampleReceipts.createReceiptbyDotPrinter());
 	}
 
 	/**
@@ -1597,144 +1235,29 @@ public class PrinterFunctions {
 	 *     Printable area size, This should be ("3inch (80mm)" or "4inch (112mm)")
 	 */
 	public static void PrintSampleReceipt(Context context, String portName, String portSettings, String commandType, Resources res, String strPrintArea) {
-		if (commandType == "Line") {
-			if (strPrintArea.equals("3inch (80mm)")) {
-				ArrayList<byte[]> list = new ArrayList<byte[]>();
-
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 }); // Alignment (center)
-
-				// list.add("[If loaded.. Logo1 goes here]\r\n".getBytes());
-
-				// list.add(new byte[]{0x1b, 0x1c, 0x70, 0x01, 0x00, '\r', '\n'}); //Stored Logo Printing
-
-				list.add("\nStar Clothing Boutique\r\n".getBytes());
-				list.add("123 Star Road\r\nCity, State 12345\r\n\r\n".getBytes());
-
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x00 }); // Alignment
-
-				list.add(new byte[] { 0x1b, 0x44, 0x02, 0x10, 0x22, 0x00 }); // Set horizontal tab
-
-				list.add("Date: MM/DD/YYYY".getBytes());
-
-				list.add(new byte[] { ' ', 0x09, ' ' }); // Moving Horizontal Tab
-
-				list.add("Time:HH:MM PM\r\n------------------------------------------------\r\n\r\n".getBytes());
-
-				list.add(new byte[] { 0x1b, 0x45 }); // bold
-
-				list.add("SALE \r\n".getBytes());
-
-				list.add(new byte[] { 0x1b, 0x46 }); // bolf off
-
-				list.add("SKU ".getBytes());
-
-				list.add(new byte[] { 0x09 });
-
-				// Notice that we use a unicode representation because that is
-				// how Java expresses these bytes as double byte unicode
-				// This will TAB to the next horizontal position
-				list.add("  Description   \u0009         Total\r\n".getBytes());
-				list.add("300678566 \u0009  PLAIN T-SHIRT\u0009         10.99\r\n".getBytes());
-				list.add("300692003 \u0009  BLACK DENIM\u0009         29.99\r\n".getBytes());
-				list.add("300651148 \u0009  BLUE DENIM\u0009         29.99\r\n".getBytes());
-				list.add("300642980 \u0009  STRIPED DRESS\u0009         49.99\r\n".getBytes());
-				list.add("300638471 \u0009  BLACK BOOTS\u0009         35.99\r\n\r\n".getBytes());
-				list.add("Subtotal \u0009\u0009        156.95\r\n".getBytes());
-				list.add("Tax \u0009\u0009          0.00\r\n".getBytes());
-				list.add("------------------------------------------------\r\n".getBytes());
-				list.add("Total".getBytes());
-
-				// Character expansion
-				list.add(new byte[] { 0x06, 0x09, 0x1b, 0x69, 0x01, 0x01 });
-
-				list.add("        $156.95\r\n".getBytes());
-
-				list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 }); // Cancel Character Expansion
-
-				list.add("------------------------------------------------\r\n\r\n".getBytes());
-				list.add("Charge\r\n159.95\r\n".getBytes());
-				list.add("Visa XXXX-XXXX-XXXX-0123\r\n\r\n".getBytes());
-				list.add("\u001b\u0034Refunds and Exchanges\u001b\u0035\r\n".getBytes()); // Specify/Cancel White/Black Invert
-				list.add(("Within " + "\u001b\u002d\u0001" + "30 days\u001b\u002d\u0000" + " with receipt\r\n").getBytes()); // Specify/Cancel Underline Printing
-				list.add("And tags attached\r\n\r\n".getBytes());
-
-				// 1D barcode example
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 });
-				list.add(new byte[] { 0x1b, 0x62, 0x06, 0x02, 0x02 });
-
-				list.add(" 12ab34cd56\u001e\r\n".getBytes());
+		// The port opens while the raster text is rendered
+		PortPrefetch prefetch = PortPrefetch.start(context, portName, portSettings);
+		try {
+			// Only building the command data is measured, not queueing the job
+			long start = System.nanoTime();
+			ArrayList<byte[]> commands = createSampleReceipt(context, commandType, res, strPrintArea);
+			PrintMetrics.record(portName, PrintMetrics.Stage.Render, System.nanoTime() - start);
 
-				list.add(new byte[] { 0x1b, 0x64, 0x02 }); // Cut
-				list.add(new byte[] { 0x07 }); // Kick cash drawer
+			if (commands != null) {
+				sendCommand(context, portName, portSettings, commands);
+			}
+			prefetch.markUsed();
+		} finally {
+			prefetch.close();
+		}
+	}
 
-				sendCommand(context, portName, portSettings, list);
+	private static ArrayList<byte[]> createSampleReceipt(Context context, String commandType, Resources res, String strPrintArea) {
+		if (commandType == "Line") {
+			if (strPrintArea.equals("3inch (80mm)")) {
+				return SampleReceipts.createReceipt3inch();
 			} else if (strPrintArea.equals("4inch (112mm)")) {
-				ArrayList<byte[]> list = new ArrayList<byte[]>();
-
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 }); // Alignment (center)
-
-				// list.add("[If loaded.. Logo1 goes here]\r\n".getBytes());
-
-				// list.add(new byte[]{0x1b, 0x1c, 0x70, 0x01, 0x00, '\r', '\n'}); //Stored Logo Printing
-
-				list.add("\nStar Clothing Boutique\r\n".getBytes());
-				list.add("123 Star Road\r\nCity, State 12345\r\n\r\n".getBytes());
-
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x00 }); // Alignment
-
-				list.add(new byte[] { 0x1b, 0x44, 0x02, 0x10, 0x22, 0x00 }); // Set horizontal tab
-
-				list.add("Date: MM/DD/YYYY     \u0009               \u0009       Time:HH:MM PM\r\n".getBytes());
-				list.add("---------------------------------------------------------------------\r\n\r\n".getBytes());
-
-				list.add(new byte[] { 0x1b, 0x45 }); // bold
-
-				list.add("SALE \r\n".getBytes());
-
-				list.add(new byte[] { 0x1b, 0x46 }); // bolf off
-
-				list.add("SKU ".getBytes());
-
-				list.add(new byte[] { 0x09 });
-
-				// Notice that we use a unicode representation because that is
-				// how Java expresses these bytes as double byte unicode
-				// This will TAB to the next horizontal position
-				list.add("            Description         \u0009\u0009\u0009                Total\r\n".getBytes());
-				list.add("300678566      \u0009            PLAIN T-SHIRT\u0009                       10.99\r\n".getBytes());
-				list.add("300692003      \u0009            BLACK DENIM\u0009                         29.99\r\n".getBytes());
-				list.add("300651148      \u0009            BLUE DENIM\u0009                          29.99\r\n".getBytes());
-				list.add("300642980      \u0009            STRIPED DRESS\u0009                       49.99\r\n".getBytes());
-				list.add("300638471      \u0009            BLACK BOOTS\u0009                         35.99\r\n\r\n".getBytes());
-				list.add("Subtotal       \u0009                       \u0009                        156.95\r\n".getBytes());
-				list.add("Tax            \u0009                       \u0009                          0.00\r\n".getBytes());
-				list.add("---------------------------------------------------------------------\r\n".getBytes());
-				list.add("Total".getBytes());
-
-				// Character expansion
-				list.add(new byte[] { 0x06, 0x09, 0x1b, 0x69, 0x01, 0x01 });
-
-				list.add("\u0009         $156.95\r\n".getBytes());
-
-				list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 }); // Cancel Character Expansion
-
-				list.add("---------------------------------------------------------------------\r\n\r\n".getBytes());
-				list.add("Charge\r\n159.95\r\n".getBytes());
-				list.add("Visa XXXX-XXXX-XXXX-0123\r\n\r\n".getBytes());
-				list.add("\u001b\u0034Refunds and Exchanges\u001b\u0035\r\n".getBytes()); // Specify/Cancel White/Black Invert
-				list.add(("Within " + "\u001b\u002d\u0001" + "30 days\u001b\u002d\u0000" + " with receipt\r\n").getBytes()); // Specify/Cancel Underline Printing
-				list.add("And tags attached\r\n\r\n".getBytes());
-
-				// 1D barcode example
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 });
-				list.add(new byte[] { 0x1b, 0x62, 0x06, 0x02, 0x02 });
-
-				list.add(" 12ab34cd56\u001e\r\n".getBytes());
-
-				list.add(new byte[] { 0x1b, 0x64, 0x02 }); // Cut
-				list.add(new byte[] { 0x07 }); // Kick cash drawer
-
-				sendCommand(context, portName, portSettings, list);
+				return SampleReceipts.createReceipt4inch();
 			}
 		} else if (commandType == "Raster") {
 			if (strPrintArea.equals("3inch (80mm)")) {
@@ -1776,15 +1299,13 @@ public class PrinterFunctions {
 				textToPrint = ("Within 30 days with receipt\r\n" + "And tags attached");
 				list.add(createRasterCommand(textToPrint, 13, 0));
 
-				Bitmap bm = BitmapFactory.decodeResource(res, R.drawable.qrcode);
-				StarBitmap starbitmap = new StarBitmap(bm, false, 146);
-				list.add(starbitmap.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.qrcode, 146));
 
 				list.add(rasterDoc.EndDocumentCommandData());
 
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			} else if (strPrintArea.equals("4inch (112mm)")) {
 				ArrayList<byte[]> list = new ArrayList<byte[]>();
 
@@ -1828,17 +1349,17 @@ public class PrinterFunctions {
 				textToPrint = ("Within 30 days with receipt\r\n" + "And tags attached");
 				list.add(createRasterCommand(textToPrint, 13, 0));
 
-				Bitmap bm = BitmapFactory.decodeResource(res, R.drawable.qrcode);
-				StarBitmap starbitmap = new StarBitmap(bm, false, 146);
-				list.add(starbitmap.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.qrcode, 146));
 
 				list.add(rasterDoc.EndDocumentCommandData());
 
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			}
 		}
+
+		return null;
 	}
 
 	/**
@@ -1856,68 +1377,26 @@ public class PrinterFunctions {
 	 *     Printable area size, This should be ("3inch (80mm)" or "4inch (112mm)")
 	 */
 	public static void PrintSampleReceiptJp(Context context, String portName, String portSettings, String commandType, String strPrintArea) {
-		if ("Line" == commandType) {
-			if (strPrintArea.equals("3inch (80mm)")) {
-				ArrayList<byte[]> list = new ArrayList<byte[]>();
-
-				byte[] outputByteBuffer = null;
-				list.add(new byte[] { 0x1b, 0x40 }); // Initialization
-				// list.add(new byte[]{0x1d, 0x57, (byte) 0x80, 0x01});
-				list.add(new byte[] { 0x1b, 0x24, 0x31 });
-				list.add(new byte[] { 0x1b, 0x44, 0x10, 0x00 });
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 });
-
-				list.add(new byte[] { 0x1b, 0x69, 0x02, 0x00 });
-				list.add(new byte[] { 0x1b, 0x45 });
-
-				list.add(createShiftJIS(context.getResources().getString(R.string.title_company_name) + "\n"));
-
-				list.add(new byte[] { 0x1b, 0x69, 0x01, 0x00 });
-
-				list.add(createShiftJIS(context.getResources().getString(R.string.title_receipt_name) + "\n"));
-
-				list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 });
-				list.add(new byte[] { 0x1b, 0x46 });
-
-				list.add(createShiftJIS("------------------------------------------------\n"));
-
-				Calendar calendar = Calendar.getInstance();
-				int year = calendar.get(Calendar.YEAR);
-				int month = calendar.get(Calendar.MONTH);
-				int day = calendar.get(Calendar.DAY_OF_MONTH);
-				String YMD = (year + context.getResources().getString(R.string.year) + (month + 1) + context.getResources().getString(R.string.month) + day + context.getResources().getString(R.string.day)).toString();
-
-				int hour24 = calendar.get(Calendar.HOUR_OF_DAY);
-				int minute = calendar.get(Calendar.MINUTE);
-				String TIME = (hour24 + context.getResources().getString(R.string.hour) + minute + context.getResources().getString(R.string.min)).toString();
-
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 });
-
-				list.add(createShiftJIS(context.getResources().getString(R.string.date) + YMD + "  " + TIME + "\n"));
-
-				list.add(createShiftJIS("TEL:054-347-XXXX\n\n"));
-
-				list.add(createShiftJIS(context.getResources().getString(R.string.kana_line) + "\n"));
-
-				list.add(createShiftJIS(context.getResources().getString(R.string.personalInfo)));
-
-				list.add(createShiftJIS(context.getResources().getString(R.string.ItemInfo_3inch_line)));
-
-				int sub = 0;
-				int tax = 0;
-				sub = 10000 + 3800 + 2000 + 15000 + 5000;
-				NumberFormat exsub = NumberFormat.getNumberInstance();
-
-				tax = sub * 5 / 100;
-				NumberFormat extax = NumberFormat.getNumberInstance();
-
-				outputByteBuffer = createShiftJIS(context.getResources().getString(R.string.sub_3inch_line) + exsub.format(sub) + "\n\n" + context.getResources().getString(R.string.tax_3inch_line) + extax.format(tax) + "\n\n" + context.getResources().getString(R.string.total_3inch_line) + exsub.format(sub) + "\n\n" + context.getResources().getString(R.string.phone) + "\n\n");
-				list.add(outputByteBuffer);
+		// The port opens while the raster text is rendered
+		PortPrefetch prefetch = PortPrefetch.start(context, portName, portSettings);
+		try {
+			long start = System.nanoTime();
+			ArrayList<byte[]> commands = createSampleReceiptJp(context, commandType, strPrintArea);
+			PrintMetrics.record(portName, PrintMetrics.Stage.Render, System.nanoTime() - start);
 
-				list.add(new byte[] { 0x1b, 0x64, 0x33 }); // Cut
-				list.add(new byte[] { 0x07 }); // Kick cash drawer
+			if (commands != null) {
+				sendCommand(context, portName, portSettings, commands);
+			}
+			prefetch.markUsed();
+		} finally {
+			prefetch.close();
+		}
+	}
 
-				sendCommand(context, portName, portSettings, list);
+	private static ArrayList<byte[]> createSampleReceiptJp(Context context, String commandType, String strPrintArea) {
+		if ("Line" == commandType) {
+			if (strPrintArea.equals("3inch (80mm)")) {
+				return SampleReceipts.createReceiptJp3inch(japaneseText(context.getResources()));
 			} else if (strPrintArea.equals("4inch (112mm)")) {
 				ArrayList<byte[]> list = new ArrayList<byte[]>();
 
@@ -1980,7 +1459,7 @@ public class PrinterFunctions {
 				list.add(new byte[] { 0x1b, 0x64, 0x33 });
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			}
 		} else if ("Raster" == commandType) {
 			if (strPrintArea.equals("3inch (80mm)")) {
@@ -2029,7 +1508,7 @@ public class PrinterFunctions {
 				list.add(rasterDoc.EndDocumentCommandData());
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			} else if (strPrintArea.equals("4inch (112mm)")) {
 				ArrayList<byte[]> list = new ArrayList<byte[]>();
 
@@ -2078,9 +1557,11 @@ public class PrinterFunctions {
 				list.add(rasterDoc.EndDocumentCommandData());
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			}
 		}
+
+		return null;
 	}
 
 	/**
@@ -2098,60 +1579,26 @@ public class PrinterFunctions {
 	 *     Printable area size, This should be ("3inch (80mm)" or "4inch (112mm)")
 	 */
 	public static void PrintSampleReceiptCHS(Context context, String portName, String portSettings, String commandType, String strPrintArea) {
-		if ("Line" == commandType) {
-			if (strPrintArea.equals("3inch (80mm)")) {
-				ArrayList<byte[]> list = new ArrayList<byte[]>();
-
-				list.add(new byte[] { 0x1b, 0x40 }); // Initialization
-				// list.add(new byte[]{0x1d, 0x57, (byte) 0x80, 0x01});
-				// list.add(new byte[]{0x1b, 0x24, 0x31});
-				list.add(new byte[] { 0x1b, 0x44, 0x10, 0x00 }); // <ESC> <D> n1 n2 nk <NUL>
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 }); // <ESC> <GS> a n
-
-				list.add(new byte[] { 0x1b, 0x69, 0x02, 0x00 }); // <ESC> <i> n1 n2
-				list.add(new byte[] { 0x1b, 0x45 }); // <ESC> <E>
-
-				list.add(createGB2312(context.getResources().getString(R.string.title_company_name_chs) + "\n"));
-
-				list.add(new byte[] { 0x1b, 0x69, 0x01, 0x00 }); // <ESC> <i> n1 n2
-
-				list.add(createGB2312(context.getResources().getString(R.string.title_receipt_name_chs) + "\n"));
-
-				list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 }); // <ESC> <i> n1 n2
-				list.add(new byte[] { 0x1b, 0x46 }); // <ESC> <F>
-
-				list.add(createGB2312(context.getResources().getString(R.string.address_chs)));
-
-				list.add(createGB2312(context.getResources().getString(R.string.phone_chs) + "\n"));
-
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
-
-				list.add(createGB2312(context.getResources().getString(R.string.ItemInfo_3inch_line_chs)));
-
-				list.add(createGB2312(context.getResources().getString(R.string.total_3inch_line_chs) + "\n"));
-
-				list.add(createGB2312(context.getResources().getString(R.string.cash_3inch_line_chs) + "\n"));
-
-				list.add(createGB2312(context.getResources().getString(R.string.findforeclosure_3inch_line_chs) + "\n"));
-
-				list.add(createGB2312(context.getResources().getString(R.string.cardnumber_3inch_line_chs) + "\n"));
-
-				list.add(createGB2312(context.getResources().getString(R.string.cardbalance_3inch_line_chs) + "\n"));
-
-				list.add(createGB2312(context.getResources().getString(R.string.machinenumber_3inch_line_chs) + "\n"));
-
-				list.add(createGB2312(context.getResources().getString(R.string.receiptinfo_3inch_line_chs) + "\n"));
-
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 }); // <ESC> <GS> a n
-
-				list.add(createGB2312(context.getResources().getString(R.string.cashier_3inch_line_chs) + "\n"));
-
-				list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
+		// The port opens while the raster text is rendered
+		PortPrefetch prefetch = PortPrefetch.start(context, portName, portSettings);
+		try {
+			long start = System.nanoTime();
+			ArrayList<byte[]> commands = createSampleReceiptCHS(context, commandType, strPrintArea);
+			PrintMetrics.record(portName, PrintMetrics.Stage.Render, System.nanoTime() - start);
 
-				list.add(new byte[] { 0x1b, 0x64, 0x33 }); // Cut
-				list.add(new byte[] { 0x07 }); // Kick cash drawer
+			if (commands != null) {
+				sendCommand(context, portName, portSettings, commands);
+			}
+			prefetch.markUsed();
+		} finally {
+			prefetch.close();
+		}
+	}
 
-				sendCommand(context, portName, portSettings, list);
+	private static ArrayList<byte[]> createSampleReceiptCHS(Context context, String commandType, String strPrintArea) {
+		if ("Line" == commandType) {
+			if (strPrintArea.equals("3inch (80mm)")) {
+				return SampleReceipts.createReceiptCHS3inch(simplifiedChineseText(context.getResources()));
 			} else if (strPrintArea.equals("4inch (112mm)")) {
 				ArrayList<byte[]> list = new ArrayList<byte[]>();
 
@@ -2204,7 +1651,7 @@ public class PrinterFunctions {
 				list.add(new byte[] { 0x1b, 0x64, 0x33 }); // Cut
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			}
 		} else if ("Raster" == commandType) {
 			if (strPrintArea.equals("3inch (80mm)")) {
@@ -2240,7 +1687,7 @@ public class PrinterFunctions {
 
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			} else if (strPrintArea.equals("4inch (112mm)")) {
 				ArrayList<byte[]> list = new ArrayList<byte[]>();
 
@@ -2274,9 +1721,11 @@ public class PrinterFunctions {
 
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			}
 		}
+
+		return null;
 	}
     public static byte[] RetriveSampleQRCodeData(){
         ArrayList<byte[]> list = new ArrayList<byte[]>();
@@ -2340,6 +1789,23 @@ public class PrinterFunctions {
 	 *     Printable area size, This should be ("3inch (80mm)" or "4inch (112mm)")
 	 */
 	public static void PrintSampleReceiptCHT(Context context, String portName, String portSettings, String commandType, Resources res, String strPrintArea) {
+		// The port opens while the raster text is rendered
+		PortPrefetch prefetch = PortPrefetch.start(context, portName, portSettings);
+		try {
+			long start = System.nanoTime();
+			ArrayList<byte[]> commands = createSampleReceiptCHT(context, commandType, res, strPrintArea);
+			PrintMetrics.record(portName, PrintMetrics.Stage.Render, System.nanoTime() - start);
+
+			if (commands != null) {
+				sendCommand(context, portName, portSettings, commands);
+			}
+			prefetch.markUsed();
+		} finally {
+			prefetch.close();
+		}
+	}
+
+	private static ArrayList<byte[]> createSampleReceiptCHT(Context context, String commandType, Resources res, String strPrintArea) {
       boolean isPrintESCPOSCommand=false;
       boolean isAppendInvoice=false;//補發票
       boolean isPrintTaxNo=true;
@@ -2476,7 +1942,7 @@ public class PrinterFunctions {
                     list.add(new byte[] { 0x1b, 0x64, 0x33 }); // Cut
                     list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-                    sendCommand(context, portName, portSettings, list);
+                    return list;
 
                 }
                 else{
@@ -2636,7 +2102,7 @@ public class PrinterFunctions {
                     list.add(new byte[] { 0x1b, 0x64, 0x33 }); // Cut
                     list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-                    sendCommand(context, portName, portSettings, list);
+                    return list;
 
                 }
 			}
@@ -2674,14 +2140,10 @@ public class PrinterFunctions {
 				list.add(createRasterCommand(textToPrint, 13, 0));
 
 				// BarCode
-				Bitmap bm = BitmapFactory.decodeResource(res, R.drawable.code39);
-				StarBitmap starbitmap = new StarBitmap(bm, false, 200);
-				list.add(starbitmap.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.code39, 200));
 
 				// QRCode
-				Bitmap bitmap = BitmapFactory.decodeResource(res, R.drawable.qrcode_cht);
-				StarBitmap starbitmap2 = new StarBitmap(bitmap, false, 146);
-				list.add(starbitmap2.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.qrcode_cht, 146));
 
 				textToPrint = (context.getResources().getString(R.string.Item_list_raster_3inch_cht));
 				list.add(createRasterCommand(textToPrint, 13, 0));
@@ -2719,9 +2181,7 @@ public class PrinterFunctions {
 				list.add(createRasterCommand(textToPrint, 13, 0));
 
 				// BarCode
-				Bitmap bimap3 = BitmapFactory.decodeResource(res, R.drawable.code39);
-				StarBitmap starbitmap3 = new StarBitmap(bimap3, false, 200);
-				list.add(starbitmap3.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.code39, 200));
 
 				textToPrint = (context.getResources().getString(R.string.info_raster_3inch_cht));
 				list.add(createRasterCommand(textToPrint, 13, 0));
@@ -2733,7 +2193,7 @@ public class PrinterFunctions {
 
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			} else if (strPrintArea.equals("4inch (112mm)")) {
 				ArrayList<byte[]> list = new ArrayList<byte[]>();
 
@@ -2767,14 +2227,10 @@ public class PrinterFunctions {
 				list.add(createRasterCommand(textToPrint, 13, 0));
 
 				// BarCode
-				Bitmap bm = BitmapFactory.decodeResource(res, R.drawable.code39);
-				StarBitmap starbitmap = new StarBitmap(bm, false, 200);
-				list.add(starbitmap.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.code39, 200));
 
 				// QRCode
-				Bitmap bitmap = BitmapFactory.decodeResource(res, R.drawable.qrcode);
-				StarBitmap starbitmap2 = new StarBitmap(bitmap, false, 146);
-				list.add(starbitmap2.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.qrcode, 146));
 
 				textToPrint = (context.getResources().getString(R.string.Item_list_raster_4inch_cht));
 				list.add(createRasterCommand(textToPrint, 13, 0));
@@ -2813,9 +2269,7 @@ public class PrinterFunctions {
 				list.add(createRasterCommand(textToPrint, 13, 0));
 
 				// BarCode
-				Bitmap bimap3 = BitmapFactory.decodeResource(res, R.drawable.code39);
-				StarBitmap starbitmap3 = new StarBitmap(bimap3, false, 200);
-				list.add(starbitmap3.getImageRasterDataForPrinting(true));
+				list.add(RasterAssets.getRasterData(res, R.drawable.code39, 200));
 
 				textToPrint = (context.getResources().getString(R.string.info_raster_4inch_cht));
 				list.add(createRasterCommand(textToPrint, 13, 0));
@@ -2827,33 +2281,88 @@ public class PrinterFunctions {
 
 				list.add(new byte[] { 0x07 }); // Kick cash drawer
 
-				sendCommand(context, portName, portSettings, list);
+				return list;
 			}
 		}
-	}
 
-	private static byte[] createShiftJIS(String inputText) {
-		byte[] byteBuffer = null;
+		return null;
+	}
 
-		try {
-			byteBuffer = inputText.getBytes("Shift_JIS");
-		} catch (UnsupportedEncodingException e) {
-			byteBuffer = inputText.getBytes();
-		}
+	private static SampleReceipts.JapaneseText japaneseText(Resources res) {
+		SampleReceipts.JapaneseText text = new SampleReceipts.JapaneseText();
+
+		text.companyName = res.getString(R.string.title_company_name);
+		text.receiptName = res.getString(R.string.title_receipt_name);
+		text.year = res.getString(R.string.year);
+		text.month = res.getString(R.string.month);
+		text.day = res.getString(R.string.day);
+		text.hour = res.getString(R.string.hour);
+		text.min = res.getString(R.string.min);
+		text.date = res.getString(R.string.date);
+		text.kana = res.getString(R.string.kana_line);
+		text.personalInfo = res.getString(R.string.personalInfo);
+		text.itemInfo = res.getString(R.string.ItemInfo_3inch_line);
+		text.subtotal = res.getString(R.string.sub_3inch_line);
+		text.tax = res.getString(R.string.tax_3inch_line);
+		text.total = res.getString(R.string.total_3inch_line);
+		text.phone = res.getString(R.string.phone);
+
+		return text;
+	}
 
-		return byteBuffer;
+	private static SampleReceipts.SimplifiedChineseText simplifiedChineseText(Resources res) {
+		SampleReceipts.SimplifiedChineseText text = new SampleReceipts.SimplifiedChineseText();
+
+		text.companyName = res.getString(R.string.title_company_name_chs);
+		text.receiptName = res.getString(R.string.title_receipt_name_chs);
+		text.address = res.getString(R.string.address_chs);
+		text.phone = res.getString(R.string.phone_chs);
+		text.itemInfo = res.getString(R.string.ItemInfo_3inch_line_chs);
+		text.total = res.getString(R.string.total_3inch_line_chs);
+		text.cash = res.getString(R.string.cash_3inch_line_chs);
+		text.change = res.getString(R.string.findforeclosure_3inch_line_chs);
+		text.cardNumber = res.getString(R.string.cardnumber_3inch_line_chs);
+		text.cardBalance = res.getString(R.string.cardbalance_3inch_line_chs);
+		text.machineNumber = res.getString(R.string.machinenumber_3inch_line_chs);
+		text.receiptInfo = res.getString(R.string.receiptinfo_3inch_line_chs);
+		text.cashier = res.getString(R.string.cashier_3inch_line_chs);
+
+		return text;
 	}
 
-	private static byte[] createGB2312(String inputText) {
-		byte[] byteBuffer = null;
+	private static SampleReceipts.TraditionalChineseText traditionalChineseText(Resources res) {
+		SampleReceipts.TraditionalChineseText text = new SampleReceipts.TraditionalChineseText();
+
+		text.companyName = res.getString(R.string.title_company_name_cht);
+		text.receiptName = res.getString(R.string.title_receipt_name_cht);
+		text.period = res.getString(R.string.cht_103);
+		text.invoiceNumber = res.getString(R.string.ev_99999999_cht);
+		text.date = res.getString(R.string.date_cht);
+		text.randomCode = res.getString(R.string.random_code_cht);
+		text.seller = res.getString(R.string.seller_cht);
+		text.itemList = res.getString(R.string.Item_list_cht);
+		text.itemListNumber = res.getString(R.string.Item_list_Number_cht);
+		text.salesSchedule = res.getString(R.string.Sales_schedules_cht);
+		text.date2 = res.getString(R.string.date_2_cht);
+		text.itemInfo = res.getString(R.string.ItemInfo_3inch_line_cht);
+		text.subtotal = res.getString(R.string.sub_3inch_line_cht);
+		text.total = res.getString(R.string.total_3inch_line_cht);
+		text.cash = res.getString(R.string.cash_3inch_line_cht);
+		text.change = res.getString(R.string.change_3inch_line_cht);
+		text.invoice = res.getString(R.string.Invoice_3inch_line_cht);
+		text.date3 = res.getString(R.string.date_3_cht);
+		text.info = res.getString(R.string.info_cht);
+		text.infoNumber = res.getString(R.string.info_number_cht);
+
+		return text;
+	}
 
-		try {
-			byteBuffer = inputText.getBytes("GB2312");
-		} catch (UnsupportedEncodingException e) {
-			byteBuffer = inputText.getBytes();
-		}
+	private static byte[] createShiftJIS(String inputText) {
+		return LineCommands.createShiftJIS(inputText);
+	}
 
-		return byteBuffer;
+	private static byte[] createGB2312(String inputText) {
+		return LineCommands.createGB2312(inputText);
 	}
 
 
@@ -2868,18 +2377,10 @@ public class PrinterFunctions {
         return byteBuffer;
     }
 	private static byte[] createBIG5(String inputText) {
-		byte[] byteBuffer = null;
-
-		try {
-			byteBuffer = inputText.getBytes("BIG-5");
-		} catch (UnsupportedEncodingException e) {
-			byteBuffer = inputText.getBytes();
-		}
-
-		return byteBuffer;
+		return LineCommands.createBIG5(inputText);
 	}
 
-	private static byte[] createRasterCommand(String printText, int textSize, int bold) {
+	static byte[] createRasterCommand(String printText, int textSize, int bold) {
 		byte[] command;
 
 		Paint paint = new Paint();
@@ -2910,87 +2411,32 @@ public class PrinterFunctions {
 		c.translate(0, 0);
 		staticLayout.draw(c);
 
-		StarBitmap starbitmap = new StarBitmap(bitmap, false, printableArea);
+		StarBitmap starbitmap = new StarBitmap(new BitmapPixelSource(bitmap), false, printableArea);
 
 		command = starbitmap.getImageRasterDataForPrinting(true);
 
 		return command;
 	}
 
-	private static byte[] convertFromListByteArrayTobyteArray(List<byte[]> ByteArray) {
-		int dataLength = 0;
-		for (int i = 0; i < ByteArray.size(); i++) {
-			dataLength += ByteArray.get(i).length;
-		}
-
-		int distPosition = 0;
-		byte[] byteArray = new byte[dataLength];
-		for (int i = 0; i < ByteArray.size(); i++) {
-			System.arraycopy(ByteArray.get(i), 0, byteArray, distPosition, ByteArray.get(i).length);
-			distPosition += ByteArray.get(i).length;
-		}
-
-		return byteArray;
-	}
-
 	private static void sendCommand(Context context, String portName, String portSettings, ArrayList<byte[]> byteList) {
-		StarIOPort port = null;
-		try {
-			/*
-			 * using StarIOPort3.1.jar (support USB Port) Android OS Version: upper 2.2
-			 */
-			port = StarIOPort.getPort(portName, portSettings, 10000, context);
-			/*
-			 * using StarIOPort.jar Android OS Version: under 2.1 port = StarIOPort.getPort(portName, portSettings, 10000);
-			 */
-			try {
-				Thread.sleep(100); } catch (InterruptedException e) {
-			}
-
-			/*
-			 * Using Begin / End Checked Block method When sending large amounts of raster data, 
-			 * adjust the value in the timeout in the "StarIOPort.getPort" in order to prevent 
-			 * "timeout" of the "endCheckedBlock method" while a printing.
-			 * 
-			 * If receipt print is success but timeout error occurs(Show message which is "There 
-			 * was no response of the printer within the timeout period." ), need to change value 
-			 * of timeout more longer in "StarIOPort.getPort" method. 
-			 * (e.g.) 10000 -> 30000
-			 */
-			StarPrinterStatus status = port.beginCheckedBlock();
-
-			if (true == status.offline) {
-				throw new StarIOPortException("A printer is offline");
-			}
+		// The job runs on the print worker of this printer; failures are shown by the notifier on the UI thread
+		PrintService.print(context, portName, portSettings, byteList, new PrintFailureNotifier(context));
+	}
 
-			byte[] commandToSendToPrinter = convertFromListByteArrayTobyteArray(byteList);
-			port.writePort(commandToSendToPrinter, 0, commandToSendToPrinter.length);
+	private static PrintJob sendCommand(Context context, String portName, String portSettings, ArrayList<byte[]> header, RasterPipeline raster, ArrayList<byte[]> trailer) {
+		PrintJob job = new PrintJob(portName, portSettings, header, raster, trailer);
+		job.addListener(new PrintFailureNotifier(context));
 
-			port.setEndCheckedBlockTimeoutMillis(30000);// Change the timeout time of endCheckedBlock method.
-			status = port.endCheckedBlock();
+		return PrintService.submit(context, job);
+	}
 
-			if (status.coverOpen == true) {
-				throw new StarIOPortException("Printer cover is open");
-			} else if (status.receiptPaperEmpty == true) {
-				throw new StarIOPortException("Receipt paper is empty");
-			} else if (status.offline == true) {
-				throw new StarIOPortException("Printer is offline");
-			}
-		} catch (StarIOPortException e) {
-			Builder dialog = new AlertDialog.Builder(context);
-			dialog.setNegativeButton("OK", null);
-			AlertDialog alert = dialog.create();
-			alert.setTitle("Failure");
-			alert.setMessage(e.getMessage());
-			alert.setCancelable(false);
-			alert.show();
-		} finally {
-			if (port != null) {
-				try {
-					StarIOPort.releasePort(port);
-				} catch (StarIOPortException e) {
-				}
-			}
-		}
+	private static void showPrinterBusy(Context context) {
+		Builder dialog = new AlertDialog.Builder(context);
+		dialog.setNegativeButton("OK", null);
+		AlertDialog alert = dialog.create();
+		alert.setTitle("Printer");
+		alert.setMessage("Printer is busy, please try again when the print job has finished");
+		alert.setCancelable(false);
+		alert.show();
 	}
 }
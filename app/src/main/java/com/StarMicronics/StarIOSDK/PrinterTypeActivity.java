@@ -1,11 +1,17 @@
 package com.StarMicronics.StarIOSDK;
 
+import java.io.File;
+import java.io.IOException;
+
 import com.starmicronics.stario.StarIOPort;
 
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.AlertDialog.Builder;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.Editor;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
@@ -17,8 +23,11 @@ import android.view.View;
 public class PrinterTypeActivity extends Activity {
 	/** Called when the activity is first created. */
 	private static PrinterTypeActivity me;
+	private static final int METRICS_PORT = 8089;
 	private String portName;
 	private String portSettings;
+	private String drawerPortName;
+	private String drawerPortSettings;
 
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
@@ -26,6 +35,48 @@ public class PrinterTypeActivity extends Activity {
 		setContentView(R.layout.printertype);
 
 		me = this;
+
+		// The ports of the last session, so that the warm-up can open them before the first job
+		SharedPreferences pref = getSharedPreferences("pref", MODE_PRIVATE);
+		portName = pref.getString("lastPortName", null);
+		portSettings = pref.getString("lastPortSettings", null);
+		drawerPortName = pref.getString("lastDrawerPortName", null);
+		drawerPortSettings = pref.getString("lastDrawerPortSettings", null);
+	}
+
+	@Override
+	protected void onResume() {
+		super.onResume();
+
+		PrintWarmUp.start(this, new String[] { portName, drawerPortName }, new String[] { portSettings, drawerPortSettings });
+
+		// Debug builds serve the print metrics to "adb forward tcp:8089 tcp:8089"
+		if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+			try {
+				MetricsEndpoint.start(METRICS_PORT);
+			} catch (IOException e) {
+				// The port is taken, the snapshot file is still written
+			}
+		}
+	}
+
+	@Override
+	protected void onPause() {
+		super.onPause();
+
+		try {
+			PrintMetrics.writeSnapshot(new File(getFilesDir(), "print_metrics.json"));
+		} catch (IOException e) {
+			// The metrics are only for diagnosis
+		}
+	}
+
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+
+		// Close the printer connections kept open between jobs
+		PortPool.closeAll();
 	}
 
 	private final int Menu1 = Menu.FIRST;
@@ -126,10 +177,45 @@ public class PrinterTypeActivity extends Activity {
 
 	public static void setPortName(String portName) {
 		me.portName = portName;
+		savePort("lastPortName", portName);
 	}
 
 	public static void setPortSettings(String portSettings) {
 		me.portSettings = portSettings;
+		savePort("lastPortSettings", portSettings);
+	}
+
+	public static String getDrawerPortName() {
+		return me.drawerPortName;
+	}
+
+	public static String getDrawerPortSettings() {
+		return me.drawerPortSettings;
+	}
+
+	public static void setDrawerPortName(String drawerPortName) {
+		me.drawerPortName = drawerPortName;
+		savePort("lastDrawerPortName", drawerPortName);
+	}
+
+	public static void setDrawerPortSettings(String drawerPortSettings) {
+		me.drawerPortSettings = drawerPortSettings;
+		savePort("lastDrawerPortSettings", drawerPortSettings);
+	}
+
+	private static void savePort(String key, String value) {
+		SharedPreferences pref = me.getSharedPreferences("pref", MODE_PRIVATE);
+
+		// Most calls set the port again on resume, which needs no write
+		String saved = pref.getString(key, null);
+		if ((saved != null) && (saved.equals(value) == true)) {
+			return;
+		}
+
+		// Called on the UI thread, so the value is written to disk in the background
+		Editor editor = pref.edit();
+		editor.putString(key, value);
+		editor.apply();
 	}
 
 	public static String HTMLCSS() {
@@ -0,0 +1,46 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.HashMap;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+public class RasterAssets {
+	// Keeps the raster commands of the fixed images of the receipts, so that each drawable is decoded and converted once per process
+
+	private static final HashMap<String, byte[]> cache = new HashMap<String, byte[]>();
+
+	/**
+	 * This function returns the compressed raster commands of a drawable without dithering, converting it on the first call. The array is shared by every job and must not be modified.
+	 *
+	 * @param res
+	 *     The resources object containing the image data
+	 * @param resId
+	 *     The resource id of the image data
+	 * @param maxWidth
+	 *     Width in dots the image is scaled down to if it is wider
+	 */
+	public static byte[] getRasterData(Resources res, int resId, int maxWidth) {
+		String key = resId + "/" + maxWidth;
+
+		synchronized (cache) {
+			byte[] data = cache.get(key);
+			if (data != null) {
+				return data;
+			}
+		}
+
+		// Converted outside the lock, two threads may convert the same image once
+		Bitmap bm = BitmapFactory.decodeResource(res, resId);
+		StarBitmap starbitmap = new StarBitmap(new BitmapPixelSource(bm), false, maxWidth);
+		byte[] data = starbitmap.getImageRasterDataForPrinting(true);
+		bm.recycle();
+
+		synchronized (cache) {
+			cache.put(key, data);
+		}
+
+		return data;
+	}
+}
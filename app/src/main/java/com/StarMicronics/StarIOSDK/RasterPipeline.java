@@ -0,0 +1,159 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+import com.starmicronics.stario.StarIOPortException;
+
+public class RasterPipeline {
+	// Converts a StarBitmap band by band on its own thread while the print worker writes the finished bands to the port
+
+	private static final int DEFAULT_ROWS_PER_BAND = 64;
+	private static final int DEFAULT_MAX_QUEUED_BANDS = 8;
+
+	private static final byte[] END_OF_BANDS = new byte[0];
+
+	private StarBitmap mBitmap;
+	private boolean mCompressionEnable;
+	private int mRowsPerBand;
+	private final ArrayBlockingQueue<byte[]> mBands;
+
+	private Thread mProducer = null;
+	private boolean mCancelled = false;
+	private volatile Throwable mError = null;
+	private volatile long mEncodeNanos = -1;
+
+	public RasterPipeline(StarBitmap bitmap, boolean compressionEnable) {
+		this(bitmap, compressionEnable, DEFAULT_ROWS_PER_BAND, DEFAULT_MAX_QUEUED_BANDS);
+	}
+
+	/**
+	 * @param bitmap
+	 *     Image to convert
+	 * @param compressionEnable
+	 *     Trim trailing blank bytes of each row and send blank rows as a feed
+	 * @param rowsPerBand
+	 *     Number of image rows in each band
+	 * @param maxQueuedBands
+	 *     Number of finished bands that may wait for the port. The conversion pauses when the queue is full, which bounds the memory used for a tall image.
+	 */
+	public RasterPipeline(StarBitmap bitmap, boolean compressionEnable, int rowsPerBand, int maxQueuedBands) {
+		mBitmap = bitmap;
+		mCompressionEnable = compressionEnable;
+		mRowsPerBand = Math.max(1, rowsPerBand);
+		mBands = new ArrayBlockingQueue<byte[]>(Math.max(1, maxQueuedBands));
+	}
+
+	public int getRowCount() {
+		return mBitmap.getHeight();
+	}
+
+	public int getRowsPerBand() {
+		return mRowsPerBand;
+	}
+
+	public int getBandCount() {
+		return (mBitmap.getHeight() + mRowsPerBand - 1) / mRowsPerBand;
+	}
+
+	/**
+	 * @return
+	 *     size of the raster data when no row can be compressed
+	 */
+	public long getMaxBytes() {
+		return (long) mBitmap.getHeight() * (3 + (mBitmap.getWidth() + 7) / 8);
+	}
+
+	/**
+	 * @return
+	 *     time the conversion took without the time it waited for room in the queue, or -1 while it has not finished
+	 */
+	public long getEncodeNanos() {
+		return mEncodeNanos;
+	}
+
+	/**
+	 * This function starts the conversion. It is called by PrintService when the job is submitted so that the conversion overlaps with opening the port.
+	 */
+	public synchronized void start() {
+		if ((mProducer != null) || (mCancelled == true)) {
+			return;
+		}
+
+		mProducer = new Thread("RasterPipeline") {
+			@Override
+			public void run() {
+				final long[] waitNanos = new long[1];
+				long start = System.nanoTime();
+
+				try {
+					mBitmap.encodeRasterBands(mCompressionEnable, mRowsPerBand, new StarBitmap.BandSink() {
+						public void onBand(byte[] band) throws InterruptedException {
+							long putStart = System.nanoTime();
+							mBands.put(band);
+							waitNanos[0] += System.nanoTime() - putStart;
+						}
+					});
+					mEncodeNanos = System.nanoTime() - start - waitNanos[0];
+				} catch (InterruptedException e) {
+					// Cancelled, nobody reads the queue any more
+					return;
+				} catch (Throwable e) {
+					mError = e;
+				}
+
+				try {
+					mBands.put(END_OF_BANDS);
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		mProducer.setDaemon(true);
+		mProducer.start();
+	}
+
+	/**
+	 * This function waits for the next finished band
+	 *
+	 * @return
+	 *     raster commands of the band, or null when the whole image has been handed out
+	 */
+	public byte[] nextBand() throws StarIOPortException {
+		synchronized (this) {
+			if (mCancelled == true) {
+				throw new StarIOPortException("Image conversion was cancelled");
+			}
+		}
+		start();
+
+		byte[] band;
+		try {
+			band = mBands.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StarIOPortException("Interrupted while converting the image");
+		}
+
+		if (band == END_OF_BANDS) {
+			// Keep the marker so that later calls also see the end
+			mBands.offer(END_OF_BANDS);
+
+			if (mError != null) {
+				throw new StarIOPortException("Image conversion failed: " + mError);
+			}
+			return null;
+		}
+
+		return band;
+	}
+
+	/**
+	 * This function stops the conversion and drops the bands that have not been sent
+	 */
+	public synchronized void cancel() {
+		mCancelled = true;
+		if (mProducer != null) {
+			mProducer.interrupt();
+		}
+		mBands.clear();
+	}
+}
@@ -4,8 +4,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.starmicronics.stario.PortInfo;
-import com.starmicronics.stario.StarIOPort;
-import com.starmicronics.stario.StarIOPortException;
 
 import android.app.Activity;
 import android.app.AlertDialog;
@@ -180,46 +178,11 @@ public class StarIOSDKMobilePrinterActivity extends Activity {
 	public void PortDiscovery(View view) {
 		if (!checkClick.isClickEvent())
 			return;
-		List<PortInfo> BTPortList;
+		final EditText editPortName = new EditText(this);
+		final ArrayList<PortInfo> arrayDiscovery = new ArrayList<PortInfo>();
+		final ArrayAdapter<String> arrayPortName = new ArrayAdapter<String>(this, android.R.layout.select_dialog_item);
 
-		final EditText editPortName;
-		final ArrayList<PortInfo> arrayDiscovery;
-
-		ArrayList<String> arrayPortName;
-
-		arrayDiscovery = new ArrayList<PortInfo>();
-		arrayPortName = new ArrayList<String>();
-
-		try {
-			BTPortList = StarIOPort.searchPrinter("BT:"); // "port discovery" of Portable printer is support only Bluetooth port
-
-			for (PortInfo portInfo : BTPortList) {
-				arrayDiscovery.add(portInfo);
-			}
-
-			arrayPortName = new ArrayList<String>();
-
-			for (PortInfo discovery : arrayDiscovery) {
-				String portName;
-
-				portName = discovery.getPortName();
-
-				if (discovery.getMacAddress().equals("") == false) {
-					portName += "\n - " + discovery.getMacAddress();
-					if (discovery.getModelName().equals("") == false) {
-						portName += "\n - " + discovery.getModelName();
-					}
-				}
-				arrayPortName.add(portName);
-			}
-
-		} catch (StarIOPortException e) {
-			e.printStackTrace();
-		}
-
-		editPortName = new EditText(this);
-
-		new AlertDialog.Builder(this).setIcon(R.drawable.icon).setTitle("Please Select IP Address or Input Port Name").setCancelable(false).setView(editPortName).setPositiveButton("OK", new DialogInterface.OnClickListener() {
+		final AlertDialog dialog = new AlertDialog.Builder(this).setIcon(R.drawable.icon).setTitle("Searching for printers...").setCancelable(false).setView(editPortName).setPositiveButton("OK", new DialogInterface.OnClickListener() {
 			public void onClick(DialogInterface dialog, int button) {
 				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(false);
 				((AlertDialog) dialog).getButton(DialogInterface.BUTTON_NEGATIVE).setEnabled(false);
@@ -234,7 +197,7 @@ public class StarIOSDKMobilePrinterActivity extends Activity {
 		}).setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
 			public void onClick(DialogInterface dialog, int button) {
 			}
-		}).setItems(arrayPortName.toArray(new String[0]), new DialogInterface.OnClickListener() {
+		}).setAdapter(arrayPortName, new DialogInterface.OnClickListener() {
 			public void onClick(DialogInterface dialog, int select) {
 				EditText portNameField = (EditText) findViewById(R.id.editText_PortName);
 				portNameField.setText(arrayDiscovery.get(select).getPortName());
@@ -245,6 +208,33 @@ public class StarIOSDKMobilePrinterActivity extends Activity {
 				editor.commit();
 			}
 		}).show();
+
+		// "port discovery" of Portable printer is support only Bluetooth port
+		final PortDiscovery discovery = PortDiscovery.start(this, new String[] { "BT:" }, new PortDiscovery.Listener() {
+			public void onPortFound(PortInfo portInfo) {
+				String portName = portInfo.getPortName();
+
+				if (portInfo.getMacAddress().equals("") == false) {
+					portName += "\n - " + portInfo.getMacAddress();
+					if (portInfo.getModelName().equals("") == false) {
+						portName += "\n - " + portInfo.getModelName();
+					}
+				}
+
+				arrayDiscovery.add(portInfo);
+				arrayPortName.add(portName);
+			}
+
+			public void onDiscoveryFinished(List<PortInfo> ports) {
+				dialog.setTitle("Please Select IP Address or Input Port Name");
+			}
+		});
+
+		dialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+			public void onDismiss(DialogInterface dialog) {
+				discovery.cancel();
+			}
+		});
 	}
 
 	private void InitializeComponent() { // delete view of some function button for Portable Printer
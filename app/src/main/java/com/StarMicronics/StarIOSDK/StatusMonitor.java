@@ -0,0 +1,294 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import android.content.Context;
+
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+import com.starmicronics.stario.StarPrinterStatus;
+
+public class StatusMonitor {
+	// Polls the status of one printer or drawer for all of its listeners and reports only the changes
+
+	public enum Transition {
+		Reachable, Unreachable, Online, Offline, CoverOpened, CoverClosed, PaperEmpty, PaperLoaded, DrawerOpened, DrawerClosed
+	};
+
+	public interface Listener {
+		/**
+		 * Called on the monitor thread when the status has changed, and once with the current status when the listener is added
+		 *
+		 * @param status
+		 *     latest status, or null if the device could not be reached
+		 * @param transitions
+		 *     changes since the previous status
+		 */
+		void onStatusChanged(StatusMonitor monitor, StarPrinterStatus status, List<Transition> transitions);
+	}
+
+	private static final long FAST_INTERVAL_MILLIS = 150;
+	private static final long IDLE_INTERVAL_MILLIS = 2000;
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+
+	private static final HashMap<String, StatusMonitor> monitors = new HashMap<String, StatusMonitor>();
+
+	private Context mContext;
+	private String mPortName;
+	private String mPortSettings;
+
+	private final ArrayList<Listener> mListeners = new ArrayList<Listener>();
+	private StarPrinterStatus mStatus = null;
+	private boolean mReachable = true;
+	private int mActivity = 0;
+	private Thread mPoller = null;
+
+	private StatusMonitor(Context context, String portName, String portSettings) {
+		mContext = context;
+		mPortName = portName;
+		mPortSettings = portSettings;
+	}
+
+	/**
+	 * This function returns the monitor of a device, creating it on first use. All callers for the same port name and port settings share one monitor.
+	 *
+	 * @param context
+	 *     Context used by StarIOPort to open USB ports
+	 * @param portName
+	 *     Port name to use for communication. This should be (TCP:<IPAddress> or BT:<Device pair name>)
+	 * @param portSettings
+	 *     The port settings to use
+	 */
+	public static StatusMonitor get(Context context, String portName, String portSettings) {
+		synchronized (monitors) {
+			String key = portName + "\n" + portSettings;
+			StatusMonitor monitor = monitors.get(key);
+			if (monitor == null) {
+				monitor = new StatusMonitor(context.getApplicationContext(), portName, portSettings);
+				monitors.put(key, monitor);
+			}
+			return monitor;
+		}
+	}
+
+	/**
+	 * @return
+	 *     the monitor of the device, or null if nobody has asked for one
+	 */
+	public static StatusMonitor find(String portName, String portSettings) {
+		synchronized (monitors) {
+			return monitors.get(portName + "\n" + portSettings);
+		}
+	}
+
+	public String getPortName() {
+		return mPortName;
+	}
+
+	public String getPortSettings() {
+		return mPortSettings;
+	}
+
+	/**
+	 * @return
+	 *     latest status read from the device, or null if none has been read yet
+	 */
+	public synchronized StarPrinterStatus getStatus() {
+		return mStatus;
+	}
+
+	/**
+	 * This function registers a listener and starts polling if it is the first one
+	 */
+	public void addListener(Listener listener) {
+		StarPrinterStatus status;
+
+		synchronized (this) {
+			mListeners.add(listener);
+			status = mStatus;
+
+			if (mPoller == null) {
+				mPoller = new Thread("StatusMonitor " + mPortName) {
+					@Override
+					public void run() {
+						poll();
+					}
+				};
+				mPoller.setDaemon(true);
+				mPoller.start();
+			}
+		}
+
+		if (status != null) {
+			listener.onStatusChanged(this, status, new ArrayList<Transition>());
+		}
+	}
+
+	/**
+	 * This function unregisters a listener. Polling stops with the last one.
+	 */
+	public synchronized void removeListener(Listener listener) {
+		mListeners.remove(listener);
+		notifyAll();
+	}
+
+	/**
+	 * This function makes the monitor poll fast until endActivity is called, e.g. while a job is printing or a drawer is expected to move
+	 */
+	public synchronized void beginActivity() {
+		mActivity++;
+		notifyAll();
+	}
+
+	public synchronized void endActivity() {
+		if (mActivity > 0) {
+			mActivity--;
+		}
+	}
+
+	/**
+	 * This function reads the status at once, waiting for the port if a job is using it, and publishes it to the listeners. It blocks for up to the connect timeout and must not be called on the UI thread.
+	 *
+	 * @return
+	 *     status of the device
+	 */
+	public StarPrinterStatus readStatus() throws StarIOPortException {
+		StarIOPort port = null;
+		try {
+			port = PortPool.lease(mContext, mPortName, mPortSettings, CONNECT_TIMEOUT_MILLIS);
+
+			StarPrinterStatus status = port.retreiveStatus();
+			publish(status);
+			return status;
+		} catch (StarIOPortException e) {
+			publish(null);
+
+			PortPool.evict(port);
+			port = null;
+			throw e;
+		} finally {
+			PortPool.giveBack(port);
+		}
+	}
+
+	/**
+	 * This function publishes a status read by someone else on the same device, e.g. the result of a checked block, so that it does not have to be polled again
+	 */
+	public static void report(String portName, String portSettings, StarPrinterStatus status) {
+		StatusMonitor monitor = find(portName, portSettings);
+		if ((monitor != null) && (status != null)) {
+			monitor.publish(status);
+		}
+	}
+
+	private void poll() {
+		while (true) {
+			synchronized (this) {
+				if (mListeners.isEmpty() == true) {
+					mPoller = null;
+					return;
+				}
+			}
+
+			StarIOPort port = null;
+			try {
+				// A print job holding the port reports its own statuses, so the poll is skipped
+				port = PortPool.leaseIfIdle(mContext, mPortName, mPortSettings, CONNECT_TIMEOUT_MILLIS);
+
+				if (port != null) {
+					publish(port.retreiveStatus());
+				}
+			} catch (StarIOPortException e) {
+				publish(null);
+
+				PortPool.evict(port);
+				port = null;
+			} finally {
+				// The poll does not keep the port open past the idle timeout
+				PortPool.giveBackUnused(port);
+			}
+
+			synchronized (this) {
+				try {
+					wait(getInterval());
+				} catch (InterruptedException e) {
+					mPoller = null;
+					return;
+				}
+			}
+		}
+	}
+
+	private long getInterval() {
+		// An open drawer is watched closely because the user is about to close it
+		if ((mActivity > 0) || ((mStatus != null) && (mStatus.compulsionSwitch == true))) {
+			return FAST_INTERVAL_MILLIS;
+		}
+		return IDLE_INTERVAL_MILLIS;
+	}
+
+	private void publish(StarPrinterStatus status) {
+		ArrayList<Transition> transitions = new ArrayList<Transition>();
+		ArrayList<Listener> listeners;
+
+		synchronized (this) {
+			if (status == null) {
+				if (mReachable == true) {
+					transitions.add(Transition.Unreachable);
+				}
+				mReachable = false;
+			} else {
+				if (mReachable == false) {
+					transitions.add(Transition.Reachable);
+				}
+				mReachable = true;
+
+				// Unchanged snapshots are dropped
+				if ((mStatus == null) || (isSame(mStatus, status) == false)) {
+					StarPrinterStatus previous = mStatus;
+					addTransition(transitions, previous == null ? null : previous.offline, status.offline, Transition.Offline, Transition.Online);
+					addTransition(transitions, previous == null ? null : previous.coverOpen, status.coverOpen, Transition.CoverOpened, Transition.CoverClosed);
+					addTransition(transitions, previous == null ? null : previous.receiptPaperEmpty, status.receiptPaperEmpty, Transition.PaperEmpty, Transition.PaperLoaded);
+					addTransition(transitions, previous == null ? null : previous.compulsionSwitch, status.compulsionSwitch, Transition.DrawerOpened, Transition.DrawerClosed);
+
+					mStatus = status;
+				}
+			}
+
+			if (transitions.isEmpty() == true) {
+				return;
+			}
+
+			listeners = new ArrayList<Listener>(mListeners);
+		}
+
+		for (Listener listener : listeners) {
+			try {
+				listener.onStatusChanged(this, status, transitions);
+			} catch (RuntimeException e) {
+				// A failing listener must not stop the monitor
+			}
+		}
+	}
+
+	private static void addTransition(List<Transition> transitions, Boolean previous, boolean current, Transition set, Transition cleared) {
+		if ((previous == null) || (previous.booleanValue() != current)) {
+			transitions.add(current ? set : cleared);
+		}
+	}
+
+	private static boolean isSame(StarPrinterStatus a, StarPrinterStatus b) {
+		if ((a.rawLength > 0) && (a.rawLength == b.rawLength)) {
+			for (int i = 0; i < a.rawLength; i++) {
+				if (a.raw[i] != b.raw[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		return (a.offline == b.offline) && (a.coverOpen == b.coverOpen) && (a.receiptPaperEmpty == b.receiptPaperEmpty) && (a.compulsionSwitch == b.compulsionSwitch);
+	}
+}
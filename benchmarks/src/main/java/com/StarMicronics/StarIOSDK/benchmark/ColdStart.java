@@ -0,0 +1,289 @@
+package com.StarMicronics.StarIOSDK.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import com.StarMicronics.StarIOSDK.ChunkedWriter;
+import com.StarMicronics.StarIOSDK.LineCommands;
+import com.StarMicronics.StarIOSDK.PortReadiness;
+import com.StarMicronics.StarIOSDK.RasterDocument;
+import com.StarMicronics.StarIOSDK.RasterDocument.RasPageEndMode;
+import com.StarMicronics.StarIOSDK.RasterDocument.RasSpeed;
+import com.StarMicronics.StarIOSDK.RasterDocument.RasTopMargin;
+import com.StarMicronics.StarIOSDK.StarBitmap;
+import com.StarMicronics.StarIOSDK.emulator.PrinterEmulator;
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+import com.starmicronics.stario.StarPrinterStatus;
+
+public class ColdStart {
+	// Measures the first receipt of a fresh process against the second one, phase by phase.
+	// Each run starts a new JVM that prints a logo from the drawables of the app and a text receipt to an emulated printer in this process, so the emulator does not warm up the classes of the run.
+
+	enum Phase {
+		Load, Decode, Build, Connect, Begin, FirstByte, Write, End, Release
+	};
+
+	// The classes the print path of the app needs from the core module and StarIO
+	private static final String[] PRINT_CLASSES = {
+		"com.StarMicronics.StarIOSDK.LineCommands",
+		"com.StarMicronics.StarIOSDK.SampleReceipts",
+		"com.StarMicronics.StarIOSDK.RasterDocument",
+		"com.StarMicronics.StarIOSDK.StarBitmap",
+		"com.StarMicronics.StarIOSDK.PortReadiness",
+		"com.StarMicronics.StarIOSDK.ChunkedWriter",
+		"com.starmicronics.stario.StarIOPort",
+		"com.starmicronics.stario.StarPrinterStatus"
+	};
+
+	private static final int STARIO_PORT = 9100;
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final int TIMEOUT_MILLIS = 10000;
+	private static final int PAPER_WIDTH = 576;
+	private static final int FIRST_WRITE_BYTES = 1024; // StarIO writes to TCP in blocks of 1024 bytes
+
+	private static void usage() {
+		System.err.println("Usage: ColdStart [--runs n] [--speed mm/s] [--receipt language] [--logo file]");
+		System.err.println("  --runs     number of fresh processes (default 10)");
+		System.err.println("  --speed    print speed of the printer in mm/s, 0 prints without delay (default 0)");
+		System.err.println("  --receipt  english, japanese, simplifiedChinese or traditionalChinese (default english)");
+		System.err.println("  --logo     image printed above the receipt (default app/src/main/res/drawable-hdpi/qrcode.gif)");
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		long mainNanos = System.nanoTime();
+		long mainMillis = System.currentTimeMillis();
+
+		int runs = 10;
+		double speed = 0;
+		String receipt = TestReceipts.Language.english.name();
+		String logo = "app/src/main/res/drawable-hdpi/qrcode.gif";
+		String portName = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("--runs") == true) {
+					runs = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--speed") == true) {
+					speed = Double.parseDouble(args[++i]);
+				} else if (args[i].equals("--receipt") == true) {
+					receipt = args[++i];
+				} else if (args[i].equals("--logo") == true) {
+					logo = args[++i];
+				} else if (args[i].equals("--child") == true) {
+					portName = args[++i];
+				} else {
+					usage();
+					System.exit(2);
+				}
+			}
+		} catch (RuntimeException e) {
+			usage();
+			System.exit(2);
+		}
+
+		if (portName != null) {
+			// Nothing of the print path has been loaded before this point
+			runChild(portName, TestReceipts.Language.valueOf(receipt), logo, mainNanos, mainMillis);
+			return;
+		}
+
+		try {
+			TestReceipts.Language.valueOf(receipt);
+		} catch (IllegalArgumentException e) {
+			usage();
+			System.exit(2);
+		}
+		if ((runs < 1) || (new File(logo).isFile() == false)) {
+			usage();
+			System.exit(2);
+		}
+
+		PrinterEmulator emulator = new PrinterEmulator(InetAddress.getByAddress(new byte[] { 127, 0, 0, 1 }), STARIO_PORT, BUFFER_SIZE, speed, PrinterEmulator.Dialect.StarLine);
+		emulator.setVerbose(false);
+		emulator.start();
+
+		System.out.println(String.format("%d fresh processes, %s receipt below %s, %.0f mm/s", runs, receipt, logo, speed));
+
+		long[][] first = new long[Phase.values().length][runs];
+		long[][] second = new long[Phase.values().length][runs];
+		long[] jvmMillis = new long[runs];
+		int failed = 0;
+
+		for (int run = 0; run < runs; run++) {
+			ProcessBuilder builder = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+					"-cp", System.getProperty("java.class.path"), ColdStart.class.getName(),
+					"--child", "TCP:127.0.0.1", "--receipt", receipt, "--logo", logo);
+			builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+			Process process = builder.start();
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			ArrayList<String> lines = new ArrayList<String>();
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				lines.add(line);
+			}
+			reader.close();
+
+			if ((process.waitFor() != 0) || (lines.size() != 3)) {
+				failed++;
+				continue;
+			}
+
+			jvmMillis[run - failed] = Long.parseLong(lines.get(0));
+			parseTimes(lines.get(1), first, run - failed);
+			parseTimes(lines.get(2), second, run - failed);
+		}
+
+		emulator.stop();
+
+		int passed = runs - failed;
+		if (failed != 0) {
+			System.out.println(String.format("%d of %d runs failed", failed, runs));
+		}
+		if (passed == 0) {
+			System.exit(1);
+		}
+
+		report(Arrays.copyOf(jvmMillis, passed), first, second, passed);
+	}
+
+	private static void parseTimes(String line, long[][] times, int run) {
+		String[] values = line.split(" ");
+		for (int i = 0; i < times.length; i++) {
+			times[i][run] = Long.parseLong(values[i]);
+		}
+	}
+
+	private static void report(long[] jvmMillis, long[][] first, long[][] second, int runs) {
+		Arrays.sort(jvmMillis);
+		System.out.println(String.format("JVM start to main: median %d ms", jvmMillis[runs / 2]));
+
+		long[] firstTotals = new long[runs];
+		long[] secondTotals = new long[runs];
+		long[] firstBytes = new long[runs];
+
+		System.out.println("Phase      first ms  second ms  penalty ms   (medians)");
+		for (Phase phase : Phase.values()) {
+			long[] a = Arrays.copyOf(first[phase.ordinal()], runs);
+			long[] b = Arrays.copyOf(second[phase.ordinal()], runs);
+			for (int run = 0; run < runs; run++) {
+				firstTotals[run] += a[run];
+				secondTotals[run] += b[run];
+				if (phase.ordinal() <= Phase.FirstByte.ordinal()) {
+					firstBytes[run] += a[run];
+				}
+			}
+
+			Arrays.sort(a);
+			Arrays.sort(b);
+			System.out.println(String.format("%-9s %9.2f %10.2f %11.2f", phase, a[runs / 2] / 1e6, b[runs / 2] / 1e6, (a[runs / 2] - b[runs / 2]) / 1e6));
+		}
+
+		Arrays.sort(firstTotals);
+		Arrays.sort(secondTotals);
+		Arrays.sort(firstBytes);
+		System.out.println(String.format("Time to first byte from main: median %.1f ms, max %.1f ms", firstBytes[runs / 2] / 1e6, firstBytes[runs - 1] / 1e6));
+		System.out.println(String.format("Time to completion from main: first receipt median %.1f ms, max %.1f ms; second receipt median %.1f ms",
+				firstTotals[runs / 2] / 1e6, firstTotals[runs - 1] / 1e6, secondTotals[runs / 2] / 1e6));
+	}
+
+	/**
+	 * This function prints the first and the second receipt of the process and writes the JVM start time and the times of the phases to standard output
+	 */
+	private static void runChild(String portName, TestReceipts.Language language, String logo, long mainNanos, long mainMillis) {
+		long[] first = new long[Phase.values().length];
+		long[] second = new long[Phase.values().length];
+
+		try {
+			printReceipt(portName, language, logo, mainNanos, first);
+			printReceipt(portName, language, logo, System.nanoTime(), second);
+		} catch (Exception e) {
+			System.err.println("Cold start run failed: " + e.getMessage());
+			System.exit(1);
+		}
+
+		System.out.println(mainMillis - ManagementFactory.getRuntimeMXBean().getStartTime());
+		System.out.println(formatTimes(first));
+		System.out.println(formatTimes(second));
+	}
+
+	private static String formatTimes(long[] times) {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < times.length; i++) {
+			if (i != 0) {
+				line.append(' ');
+			}
+			line.append(times[i]);
+		}
+		return line.toString();
+	}
+
+	private static void printReceipt(String portName, TestReceipts.Language language, String logo, long startNanos, long[] times) throws ClassNotFoundException, IOException, StarIOPortException {
+		long last = startNanos;
+
+		for (String name : PRINT_CLASSES) {
+			Class.forName(name);
+		}
+		last = mark(times, Phase.Load, last);
+
+		// BitmapFactory.decodeResource on the device
+		BufferedImage image = ImageIO.read(new File(logo));
+		int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+		TestImages.ArrayPixelSource picture = new TestImages.ArrayPixelSource(pixels, image.getWidth(), image.getHeight());
+		last = mark(times, Phase.Decode, last);
+
+		RasterDocument rasterDoc = new RasterDocument(RasSpeed.Medium, RasPageEndMode.None, RasPageEndMode.None, RasTopMargin.Standard, 0, 0, 0);
+		StarBitmap starbitmap = new StarBitmap(picture, false, PAPER_WIDTH);
+		ArrayList<byte[]> list = new ArrayList<byte[]>();
+		list.add(rasterDoc.BeginDocumentCommandData());
+		list.add(starbitmap.getImageRasterDataForPrinting(true));
+		list.add(rasterDoc.EndDocumentCommandData());
+		list.addAll(TestReceipts.create(language));
+		byte[] data = LineCommands.convertFromListByteArrayTobyteArray(list);
+		last = mark(times, Phase.Build, last);
+
+		StarIOPort port = StarIOPort.getPort(portName, "", TIMEOUT_MILLIS);
+		try {
+			PortReadiness.waitUntilReady(portName, port);
+			last = mark(times, Phase.Connect, last);
+
+			StarPrinterStatus status = port.beginCheckedBlock();
+			if (true == status.offline) {
+				throw new StarIOPortException("A printer is offline");
+			}
+			last = mark(times, Phase.Begin, last);
+
+			ChunkedWriter writer = new ChunkedWriter(port, portName);
+			int firstWrite = Math.min(FIRST_WRITE_BYTES, data.length);
+			writer.write(data, 0, firstWrite);
+			last = mark(times, Phase.FirstByte, last);
+
+			writer.write(data, firstWrite, data.length - firstWrite);
+			last = mark(times, Phase.Write, last);
+
+			status = port.endCheckedBlock();
+			if (true == status.offline) {
+				throw new StarIOPortException("A printer is offline");
+			}
+			last = mark(times, Phase.End, last);
+		} finally {
+			StarIOPort.releasePort(port);
+		}
+		mark(times, Phase.Release, last);
+	}
+
+	private static long mark(long[] times, Phase phase, long last) {
+		long now = System.nanoTime();
+		times[phase.ordinal()] = now - last;
+		return now;
+	}
+}
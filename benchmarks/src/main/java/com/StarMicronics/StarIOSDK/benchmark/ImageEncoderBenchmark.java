@@ -0,0 +1,100 @@
+package com.StarMicronics.StarIOSDK.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.StarMicronics.StarIOSDK.StarBitmap;
+import com.starmicronics.stario.StarIOPortException;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageEncoderBenchmark {
+	// Measures the image encoders of StarBitmap for the paper widths of the portable, 80mm and 112mm printers.
+	// Run with -prof gc for the allocation rate; the bytes counter divided by the ops gives the size of the output.
+
+	@Param({ "384", "576", "832" })
+	public int width;
+
+	@Param({ "200", "2000", "8000" })
+	public int height;
+
+	@Param({ "text", "photo", "barcode" })
+	public TestImages.Content content;
+
+	@Param({ "false", "true" })
+	public boolean compression;
+
+	@Param({ "false", "true" })
+	public boolean dithering;
+
+	private TestImages.ArrayPixelSource mSource;
+	private StarBitmap mBitmap;
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Output {
+		// Reported as bytes per second
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void createImage() {
+		mSource = TestImages.create(content, width, height);
+	}
+
+	@Setup(Level.Invocation)
+	public void createBitmap() {
+		// StarBitmap keeps its output and dithers its pixels in place, so every call starts from a new one
+		mBitmap = new StarBitmap(mSource, dithering, width);
+	}
+
+	@Benchmark
+	public byte[] starRaster(Output output) {
+		byte[] data = mBitmap.getImageRasterDataForPrinting(compression);
+		output.bytes += data.length;
+		return data;
+	}
+
+	@Benchmark
+	public byte[] escPosRaster(Output output) {
+		byte[] data = mBitmap.getImageESCPOSRasterDataForPrinting();
+		output.bytes += data.length;
+		return data;
+	}
+
+	@Benchmark
+	public byte[] escPosPageMode(Output output) throws StarIOPortException {
+		byte[] data = mBitmap.getImageEscPosDataForPrinting(compression, true);
+		output.bytes += data.length;
+		return data;
+	}
+
+	@Benchmark
+	public byte[] impact(Output output) {
+		byte[] data = mBitmap.getImageImpactPrinterForPrinting();
+		output.bytes += data.length;
+		return data;
+	}
+}
@@ -0,0 +1,92 @@
+package com.StarMicronics.StarIOSDK.benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.StarMicronics.StarIOSDK.LineCommands;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineCommandBenchmark {
+	// Measures the line mode command assembly: sample receipts built into the bytes written to the port, and the text commands of PrintText in each encoding.
+	// Run with -prof gc for the allocations per receipt (gc.alloc.rate.norm). The bytes counter is reported as time per byte, so the score divided by it gives the size of one receipt.
+
+	@State(Scope.Thread)
+	public static class Receipt {
+		@Param({ "english", "japanese", "simplifiedChinese", "traditionalChinese" })
+		public TestReceipts.Language language;
+	}
+
+	@State(Scope.Thread)
+	public static class Text {
+		@Param({ "", "Shift_JIS", "ISO2022JP", "Big5", "GB2312" })
+		public String encode;
+
+		public byte[] textData;
+
+		@Setup
+		public void createText() {
+			// PrintText gets the text of an EditText in the default charset
+			if (encode.startsWith("Big5")) {
+				textData = "電子發票證明聯 烏龍袋茶2g20入 55 x2 110TX 商品退換請持本聯及銷貨明細表。".getBytes();
+			} else if (encode.startsWith("GB2312")) {
+				textData = "欢迎光临 罐装可乐 * Coke 1 7.00 薯片(50克装) 交易编号 : 88888".getBytes();
+			} else if (encode.length() != 0) {
+				textData = "修理報告書　兼領収書 制御基板 1 10,000 配達 この度は修理をご用命頂き有難うございます。".getBytes();
+			} else {
+				textData = "Star Clothing Boutique 300678566 PLAIN T-SHIRT 10.99 Visa XXXX-XXXX-XXXX-0123".getBytes();
+			}
+		}
+	}
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Output {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+	@Benchmark
+	public byte[] receipt(Receipt receipt, Output output) {
+		ArrayList<byte[]> list = TestReceipts.create(receipt.language);
+		byte[] data = LineCommands.convertFromListByteArrayTobyteArray(list);
+		output.bytes += data.length;
+		return data;
+	}
+
+	@Benchmark
+	public byte[] printText(Text text, Output output) {
+		ArrayList<byte[]> commands = LineCommands.createTextCommands(false, false, false, true, false, false, 1, 1, (byte) 0, LineCommands.ALIGN_CENTER, text.textData, text.encode);
+		byte[] data = LineCommands.convertFromListByteArrayTobyteArray(commands);
+		output.bytes += data.length;
+		return data;
+	}
+
+	@Benchmark
+	public byte[] encodeText(Text text, Output output) {
+		byte[] data = LineCommands.encodeText(text.textData, text.encode);
+		output.bytes += data.length;
+		return data;
+	}
+}
@@ -0,0 +1,177 @@
+package com.StarMicronics.StarIOSDK.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.StarMicronics.StarIOSDK.ChunkedWriter;
+import com.StarMicronics.StarIOSDK.LineCommands;
+import com.StarMicronics.StarIOSDK.PortReadiness;
+import com.StarMicronics.StarIOSDK.RasterDocument;
+import com.StarMicronics.StarIOSDK.RasterDocument.RasPageEndMode;
+import com.StarMicronics.StarIOSDK.RasterDocument.RasSpeed;
+import com.StarMicronics.StarIOSDK.RasterDocument.RasTopMargin;
+import com.StarMicronics.StarIOSDK.StarBitmap;
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+import com.starmicronics.stario.StarPrinterStatus;
+
+class ReceiptClient extends Thread {
+	// Prints one receipt after the other to one printer, like the print worker of PrintService.
+	// Every receipt takes the path of PrintService.transmit: open and wait for the port as PortPool.lease does, beginCheckedBlock, write through ChunkedWriter, endCheckedBlock, release.
+
+	enum Phase {
+		Build, Connect, Begin, Write, End, Release
+	};
+
+	private static final int TIMEOUT_MILLIS = 10000;
+	private static final int RASTER_WIDTH = 576;
+	private static final int RASTER_HEIGHT = 800;
+
+	private final String mPortName;
+	private final TestReceipts.Language mLanguage;
+	private final int mRasterEvery;
+	private final boolean mKeepOpen;
+	private final boolean mRecordLatencies;
+	private final long mMeasureFromNanos;
+	private final long mDeadlineNanos;
+
+	private TestImages.ArrayPixelSource mImage = null;
+	private volatile boolean mStopped = false;
+
+	final long[] phaseNanos = new long[Phase.values().length];
+	long[] latencies = new long[1024];
+	volatile int receipts = 0;
+	volatile int errors = 0;
+	volatile String lastError = null;
+
+	/**
+	 * @param portName
+	 *     Port name of the printer, e.g. TCP:127.0.0.1
+	 * @param language
+	 *     Text receipt to print
+	 * @param rasterEvery
+	 *     Every n-th receipt is a photo printed with raster commands through StarBitmap, 0 prints text receipts only
+	 * @param keepOpen
+	 *     Keep the port open between receipts like PortPool, instead of opening it for every receipt
+	 * @param recordLatencies
+	 *     Keep the latency of every receipt for percentiles. A soak test turns it off so that the list does not grow the heap.
+	 * @param measureFromNanos
+	 *     Receipts started before this System.nanoTime() are a warm-up and not counted
+	 * @param deadlineNanos
+	 *     System.nanoTime() after which no receipt is started, Long.MAX_VALUE to print until stopRunning()
+	 */
+	ReceiptClient(String name, String portName, TestReceipts.Language language, int rasterEvery, boolean keepOpen, boolean recordLatencies, long measureFromNanos, long deadlineNanos) {
+		super(name);
+		mPortName = portName;
+		mLanguage = language;
+		mRasterEvery = rasterEvery;
+		mKeepOpen = keepOpen;
+		mRecordLatencies = recordLatencies;
+		mMeasureFromNanos = measureFromNanos;
+		mDeadlineNanos = deadlineNanos;
+	}
+
+	void stopRunning() {
+		mStopped = true;
+	}
+
+	@Override
+	public void run() {
+		long[] times = new long[Phase.values().length + 1];
+		StarIOPort port = null;
+		int count = 0;
+
+		while ((mStopped == false) && (System.nanoTime() - mDeadlineNanos < 0)) {
+			times[0] = System.nanoTime();
+			boolean measured = times[0] - mMeasureFromNanos >= 0;
+			count++;
+
+			try {
+				byte[] data;
+				if ((mRasterEvery > 0) && (count % mRasterEvery == 0)) {
+					data = buildRaster();
+				} else {
+					data = LineCommands.convertFromListByteArrayTobyteArray(TestReceipts.create(mLanguage));
+				}
+				times[1] = System.nanoTime();
+
+				if (port == null) {
+					port = StarIOPort.getPort(mPortName, "", TIMEOUT_MILLIS);
+					PortReadiness.waitUntilReady(mPortName, port);
+				}
+				times[2] = System.nanoTime();
+
+				StarPrinterStatus status = port.beginCheckedBlock();
+				if (true == status.offline) {
+					throw new StarIOPortException("A printer is offline");
+				}
+				times[3] = System.nanoTime();
+
+				new ChunkedWriter(port, mPortName).write(data);
+				times[4] = System.nanoTime();
+
+				status = port.endCheckedBlock();
+				if (true == status.offline) {
+					throw new StarIOPortException("A printer is offline");
+				}
+				times[5] = System.nanoTime();
+
+				if (mKeepOpen == false) {
+					release(port);
+					port = null;
+				}
+				times[6] = System.nanoTime();
+			} catch (StarIOPortException e) {
+				release(port);
+				port = null;
+
+				if (measured == true) {
+					errors++;
+					lastError = e.getMessage();
+				}
+				continue;
+			}
+
+			if (measured == true) {
+				for (int i = 0; i < phaseNanos.length; i++) {
+					phaseNanos[i] += times[i + 1] - times[i];
+				}
+
+				if (mRecordLatencies == true) {
+					if (receipts == latencies.length) {
+						latencies = Arrays.copyOf(latencies, receipts * 2);
+					}
+					latencies[receipts] = times[phaseNanos.length] - times[0];
+				}
+				receipts++;
+			}
+		}
+
+		release(port);
+	}
+
+	private byte[] buildRaster() {
+		if (mImage == null) {
+			mImage = TestImages.create(TestImages.Content.photo, RASTER_WIDTH, RASTER_HEIGHT);
+		}
+
+		RasterDocument rasterDoc = new RasterDocument(RasSpeed.Medium, RasPageEndMode.FeedAndFullCut, RasPageEndMode.FeedAndFullCut, RasTopMargin.Standard, 0, 0, 0);
+		StarBitmap starbitmap = new StarBitmap(mImage, true, RASTER_WIDTH);
+
+		ArrayList<byte[]> list = new ArrayList<byte[]>();
+		list.add(rasterDoc.BeginDocumentCommandData());
+		list.add(starbitmap.getImageRasterDataForPrinting(true));
+		list.add(rasterDoc.EndDocumentCommandData());
+
+		return LineCommands.convertFromListByteArrayTobyteArray(list);
+	}
+
+	private static void release(StarIOPort port) {
+		if (port != null) {
+			try {
+				StarIOPort.releasePort(port);
+			} catch (StarIOPortException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package com.StarMicronics.StarIOSDK.benchmark;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+
+import com.StarMicronics.StarIOSDK.LineCommands;
+import com.StarMicronics.StarIOSDK.emulator.PrinterEmulator;
+
+public class ReceiptThroughput {
+	// Prints receipts end to end through StarIO to emulated LAN printers on loopback and reports receipts per second, latency and the time spent in each phase.
+	// Each client prints with the sequence of PrintService.transmit, see ReceiptClient.
+
+	private static final int STARIO_PORT = 9100;
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private static void usage() {
+		System.err.println("Usage: ReceiptThroughput [--printers n] [--clients n] [--seconds n] [--warmup n] [--speed mm/s] [--receipt language] [--raster n] [--keep-open]");
+		System.err.println("  --printers   number of emulated printers, on 127.0.0.1, 127.0.0.2, ... (default 1)");
+		System.err.println("  --clients    number of threads printing at the same time, spread over the printers (default 1)");
+		System.err.println("  --seconds    length of the measurement (default 30)");
+		System.err.println("  --warmup     seconds printed before the measurement starts (default 5)");
+		System.err.println("  --speed      print speed of the printers in mm/s, 0 prints without delay (default 0)");
+		System.err.println("  --receipt    english, japanese, simplifiedChinese or traditionalChinese (default english)");
+		System.err.println("  --raster     print every n-th receipt as a 576 x 800 photo with raster commands (default 0, text only)");
+		System.err.println("  --keep-open  keep the port open between receipts like PortPool, one client per printer");
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int printers = 1;
+		int clients = 1;
+		int seconds = 30;
+		int warmup = 5;
+		double speed = 0;
+		TestReceipts.Language language = TestReceipts.Language.english;
+		int rasterEvery = 0;
+		boolean keepOpen = false;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("--printers") == true) {
+					printers = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--clients") == true) {
+					clients = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--seconds") == true) {
+					seconds = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--warmup") == true) {
+					warmup = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--speed") == true) {
+					speed = Double.parseDouble(args[++i]);
+				} else if (args[i].equals("--receipt") == true) {
+					language = TestReceipts.Language.valueOf(args[++i]);
+				} else if (args[i].equals("--raster") == true) {
+					rasterEvery = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--keep-open") == true) {
+					keepOpen = true;
+				} else {
+					usage();
+					System.exit(2);
+				}
+			}
+		} catch (RuntimeException e) {
+			usage();
+			System.exit(2);
+		}
+
+		if ((printers < 1) || (printers > 254) || (clients < 1) || (seconds < 1) || ((keepOpen == true) && (clients > printers))) {
+			// An open port holds the printer, a second client of the same printer would wait for it until it times out
+			usage();
+			System.exit(2);
+		}
+
+		// StarIO always connects to port 9100, so each printer gets its own loopback address
+		PrinterEmulator[] emulators = new PrinterEmulator[printers];
+		for (int i = 0; i < printers; i++) {
+			InetAddress address = InetAddress.getByAddress(new byte[] { 127, 0, 0, (byte) (i + 1) });
+			emulators[i] = new PrinterEmulator(address, STARIO_PORT, BUFFER_SIZE, speed, PrinterEmulator.Dialect.StarLine);
+			emulators[i].setVerbose(false);
+			emulators[i].start();
+		}
+
+		int receiptBytes = LineCommands.convertFromListByteArrayTobyteArray(TestReceipts.create(language)).length;
+		System.out.println(String.format("%d printers, %d clients, %s receipt of %d bytes, %.0f mm/s, %s, %d s after %d s warm-up",
+				printers, clients, language, receiptBytes, speed, (keepOpen == true) ? "port kept open" : "port opened per receipt", seconds, warmup));
+
+		long measureFromNanos = System.nanoTime() + warmup * 1000000000L;
+		long deadlineNanos = measureFromNanos + seconds * 1000000000L;
+
+		ReceiptClient[] threads = new ReceiptClient[clients];
+		for (int i = 0; i < clients; i++) {
+			threads[i] = new ReceiptClient("Client " + i, "TCP:127.0.0." + (i % printers + 1), language, rasterEvery, keepOpen, true, measureFromNanos, deadlineNanos);
+			threads[i].start();
+		}
+		for (ReceiptClient thread : threads) {
+			thread.join();
+		}
+
+		for (PrinterEmulator emulator : emulators) {
+			emulator.stop();
+		}
+
+		report(threads, seconds);
+	}
+
+	private static void report(ReceiptClient[] threads, int seconds) {
+		long[] phaseNanos = new long[ReceiptClient.Phase.values().length];
+		int receipts = 0;
+		int errors = 0;
+		String lastError = null;
+
+		for (ReceiptClient thread : threads) {
+			receipts += thread.receipts;
+			errors += thread.errors;
+			if (thread.lastError != null) {
+				lastError = thread.lastError;
+			}
+			for (int i = 0; i < phaseNanos.length; i++) {
+				phaseNanos[i] += thread.phaseNanos[i];
+			}
+		}
+
+		long[] latencies = new long[receipts];
+		int count = 0;
+		for (ReceiptClient thread : threads) {
+			System.arraycopy(thread.latencies, 0, latencies, count, thread.receipts);
+			count += thread.receipts;
+		}
+		Arrays.sort(latencies);
+
+		System.out.println(String.format("Receipts: %d (%.1f/s), errors: %d%s", receipts, receipts / (double) seconds, errors, (lastError != null) ? " (" + lastError + ")" : ""));
+
+		if (receipts == 0) {
+			return;
+		}
+
+		System.out.println(String.format("Latency ms: p50 %.2f, p99 %.2f, max %.2f", percentile(latencies, 50) / 1e6, percentile(latencies, 99) / 1e6, latencies[receipts - 1] / 1e6));
+
+		long total = 0;
+		for (long nanos : phaseNanos) {
+			total += nanos;
+		}
+
+		System.out.println("Phase      mean ms   share");
+		for (ReceiptClient.Phase phase : ReceiptClient.Phase.values()) {
+			long nanos = phaseNanos[phase.ordinal()];
+			System.out.println(String.format("%-8s %9.3f  %5.1f%%", phase, nanos / 1e6 / receipts, (total > 0) ? nanos * 100.0 / total : 0));
+		}
+	}
+
+	private static long percentile(long[] sorted, int percent) {
+		// Nearest rank
+		int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+}
@@ -0,0 +1,310 @@
+package com.StarMicronics.StarIOSDK.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import com.StarMicronics.StarIOSDK.emulator.PrinterEmulator;
+
+public class SoakTest {
+	// Prints for hours to emulated LAN printers on loopback and samples the heap after GC, GC time, open sockets and threads.
+	// Exits with 1 when one of them grows steadily after the warm-up, so that a leaked port or bitmap is found before it reaches a store.
+
+	private static final int STARIO_PORT = 9100;
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final int WINDOWS = 4;
+	private static final long MIN_HEAP_GROWTH = 1024 * 1024;
+
+	private static class Sample {
+		long seconds;
+		long heapAfterGc;
+		long gcMillis;
+		long gcCount;
+		int sockets;
+		int threads;
+		int receipts;
+		int errors;
+	}
+
+	private static void usage() {
+		System.err.println("Usage: SoakTest [--printers n] [--clients n] [--minutes n] [--warmup n] [--sample s] [--speed mm/s] [--receipt language] [--raster n] [--keep-open] [--csv file]");
+		System.err.println("  --printers   number of emulated printers, on 127.0.0.1, 127.0.0.2, ... (default 1)");
+		System.err.println("  --clients    number of threads printing at the same time, spread over the printers (default 1)");
+		System.err.println("  --minutes    length of the soak (default 240)");
+		System.err.println("  --warmup     minutes before growth is checked (default 5)");
+		System.err.println("  --sample     seconds between samples (default 30)");
+		System.err.println("  --speed      print speed of the printers in mm/s, 0 prints without delay (default 0)");
+		System.err.println("  --receipt    english, japanese, simplifiedChinese or traditionalChinese (default english)");
+		System.err.println("  --raster     print every n-th receipt as a 576 x 800 photo with raster commands, 0 prints text only (default 10)");
+		System.err.println("  --keep-open  keep the port open between receipts like PortPool, one client per printer");
+		System.err.println("  --csv        also write the samples to this file");
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int printers = 1;
+		int clients = 1;
+		int minutes = 240;
+		int warmup = 5;
+		int sampleSeconds = 30;
+		double speed = 0;
+		TestReceipts.Language language = TestReceipts.Language.english;
+		int rasterEvery = 10;
+		boolean keepOpen = false;
+		String csv = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("--printers") == true) {
+					printers = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--clients") == true) {
+					clients = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--minutes") == true) {
+					minutes = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--warmup") == true) {
+					warmup = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--sample") == true) {
+					sampleSeconds = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--speed") == true) {
+					speed = Double.parseDouble(args[++i]);
+				} else if (args[i].equals("--receipt") == true) {
+					language = TestReceipts.Language.valueOf(args[++i]);
+				} else if (args[i].equals("--raster") == true) {
+					rasterEvery = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--keep-open") == true) {
+					keepOpen = true;
+				} else if (args[i].equals("--csv") == true) {
+					csv = args[++i];
+				} else {
+					usage();
+					System.exit(2);
+				}
+			}
+		} catch (RuntimeException e) {
+			usage();
+			System.exit(2);
+		}
+
+		if ((printers < 1) || (printers > 254) || (clients < 1) || (minutes < 1) || (warmup < 0) || (warmup >= minutes) || (sampleSeconds < 1) || ((keepOpen == true) && (clients > printers))) {
+			usage();
+			System.exit(2);
+		}
+
+		PrinterEmulator[] emulators = new PrinterEmulator[printers];
+		for (int i = 0; i < printers; i++) {
+			InetAddress address = InetAddress.getByAddress(new byte[] { 127, 0, 0, (byte) (i + 1) });
+			emulators[i] = new PrinterEmulator(address, STARIO_PORT, BUFFER_SIZE, speed, PrinterEmulator.Dialect.StarLine);
+			emulators[i].setVerbose(false);
+			emulators[i].start();
+		}
+
+		PrintWriter csvWriter = null;
+		if (csv != null) {
+			csvWriter = new PrintWriter(new FileWriter(csv));
+			csvWriter.println("seconds,heap_after_gc,gc_ms,gc_count,sockets,threads,receipts,errors");
+		}
+
+		System.out.println(String.format("%d printers, %d clients, %s receipts, raster every %d, %.0f mm/s, %s, %d min after %d min warm-up, sample every %d s",
+				printers, clients, language, rasterEvery, speed, (keepOpen == true) ? "port kept open" : "port opened per receipt", minutes - warmup, warmup, sampleSeconds));
+		System.out.println("    time  heap KB  gc ms  gcs  sockets  threads  receipts  errors");
+
+		long startNanos = System.nanoTime();
+		ReceiptClient[] threads = new ReceiptClient[clients];
+		for (int i = 0; i < clients; i++) {
+			threads[i] = new ReceiptClient("Client " + i, "TCP:127.0.0." + (i % printers + 1), language, rasterEvery, keepOpen, false, startNanos, Long.MAX_VALUE);
+			threads[i].start();
+		}
+
+		ArrayList<Sample> samples = new ArrayList<Sample>();
+		long[] gc = new long[2];
+		readGc(gc);
+		long lastGcMillis = gc[0];
+		long lastGcCount = gc[1];
+		String stalled = null;
+
+		for (long seconds = sampleSeconds; seconds <= minutes * 60L; seconds += sampleSeconds) {
+			long wakeNanos = startNanos + seconds * 1000000000L;
+			while (System.nanoTime() - wakeNanos < 0) {
+				Thread.sleep(Math.max(1, (wakeNanos - System.nanoTime()) / 1000000));
+			}
+
+			Sample sample = new Sample();
+			sample.seconds = seconds;
+
+			// GC time of the printing only, the collection forced for the heap sample is left out
+			readGc(gc);
+			sample.gcMillis = gc[0] - lastGcMillis;
+			sample.gcCount = gc[1] - lastGcCount;
+			System.gc();
+			readGc(gc);
+			lastGcMillis = gc[0];
+			lastGcCount = gc[1];
+
+			sample.heapAfterGc = heapAfterGc();
+			sample.sockets = openSockets();
+			sample.threads = ManagementFactory.getThreadMXBean().getThreadCount();
+			for (ReceiptClient thread : threads) {
+				sample.receipts += thread.receipts;
+				sample.errors += thread.errors;
+			}
+
+			if ((samples.size() > 0) && (sample.receipts == samples.get(samples.size() - 1).receipts)) {
+				stalled = String.format("no receipt printed between %d s and %d s", seconds - sampleSeconds, seconds);
+			}
+			samples.add(sample);
+
+			String line = String.format("%6d:%02d %8d %6d %4d %8d %8d %9d %7d",
+					seconds / 60, seconds % 60, sample.heapAfterGc / 1024, sample.gcMillis, sample.gcCount, sample.sockets, sample.threads, sample.receipts, sample.errors);
+			System.out.println(line);
+			if (csvWriter != null) {
+				csvWriter.println(String.format("%d,%d,%d,%d,%d,%d,%d,%d",
+						seconds, sample.heapAfterGc, sample.gcMillis, sample.gcCount, sample.sockets, sample.threads, sample.receipts, sample.errors));
+				csvWriter.flush();
+			}
+
+			if (stalled != null) {
+				break;
+			}
+		}
+
+		for (ReceiptClient thread : threads) {
+			thread.stopRunning();
+		}
+		for (ReceiptClient thread : threads) {
+			thread.join();
+		}
+		for (PrinterEmulator emulator : emulators) {
+			emulator.stop();
+		}
+		if (csvWriter != null) {
+			csvWriter.close();
+		}
+
+		for (ReceiptClient thread : threads) {
+			if (thread.lastError != null) {
+				System.out.println("Last error: " + thread.lastError);
+				break;
+			}
+		}
+
+		ArrayList<String> failures = new ArrayList<String>();
+		if (stalled != null) {
+			failures.add(stalled);
+		}
+
+		int from = 0;
+		while ((from < samples.size()) && (samples.get(from).seconds <= warmup * 60L)) {
+			from++;
+		}
+		int count = samples.size() - from;
+		if (count < WINDOWS * 2) {
+			System.out.println(String.format("Only %d samples after the warm-up, growth is not checked below %d", count, WINDOWS * 2));
+		} else {
+			long[] heap = new long[count];
+			long[] sockets = new long[count];
+			long[] threadCounts = new long[count];
+			for (int i = 0; i < count; i++) {
+				Sample sample = samples.get(from + i);
+				heap[i] = sample.heapAfterGc;
+				sockets[i] = sample.sockets;
+				threadCounts[i] = sample.threads;
+			}
+
+			long[] heapMinima = windowMinima(heap);
+			checkGrowth(failures, "heap after GC", heapMinima, Math.max(MIN_HEAP_GROWTH, heapMinima[0] / 10));
+			if (sockets[0] >= 0) {
+				checkGrowth(failures, "open sockets", windowMinima(sockets), 1);
+			}
+			checkGrowth(failures, "threads", windowMinima(threadCounts), 1);
+		}
+
+		if (failures.isEmpty() == true) {
+			System.out.println("PASS");
+			System.exit(0);
+		}
+		for (String failure : failures) {
+			System.out.println("FAIL: " + failure);
+		}
+		System.exit(1);
+	}
+
+	private static long[] windowMinima(long[] values) {
+		// The minimum of a window is what is left after the receipts in flight are done, a leak raises it in every window
+		long[] minima = new long[WINDOWS];
+		for (int w = 0; w < WINDOWS; w++) {
+			int begin = values.length * w / WINDOWS;
+			int end = values.length * (w + 1) / WINDOWS;
+			minima[w] = Long.MAX_VALUE;
+			for (int i = begin; i < end; i++) {
+				minima[w] = Math.min(minima[w], values[i]);
+			}
+		}
+		return minima;
+	}
+
+	private static void checkGrowth(ArrayList<String> failures, String name, long[] minima, long threshold) {
+		for (int w = 1; w < minima.length; w++) {
+			if (minima[w] <= minima[w - 1]) {
+				return;
+			}
+		}
+
+		if (minima[minima.length - 1] - minima[0] >= threshold) {
+			StringBuilder text = new StringBuilder(name + " grows in every quarter, minima");
+			for (long minimum : minima) {
+				text.append(' ').append(minimum);
+			}
+			failures.add(text.toString());
+		}
+	}
+
+	private static long heapAfterGc() {
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				MemoryUsage usage = pool.getCollectionUsage();
+				if (usage != null) {
+					used += usage.getUsed();
+				}
+			}
+		}
+		return used;
+	}
+
+	private static void readGc(long[] gc) {
+		gc[0] = 0;
+		gc[1] = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gc[0] += Math.max(0, collector.getCollectionTime());
+			gc[1] += Math.max(0, collector.getCollectionCount());
+		}
+	}
+
+	private static int openSockets() {
+		// Sockets of the clients and of the emulators, -1 where there is no /proc
+		File[] fds = new File("/proc/self/fd").listFiles();
+		if (fds == null) {
+			return -1;
+		}
+
+		int sockets = 0;
+		for (File fd : fds) {
+			try {
+				if (Files.readSymbolicLink(fd.toPath()).toString().startsWith("socket:") == true) {
+					sockets++;
+				}
+			} catch (IOException e) {
+				// Closed while listing
+			}
+		}
+		return sockets;
+	}
+}
@@ -0,0 +1,144 @@
+package com.StarMicronics.StarIOSDK.benchmark;
+
+import java.util.Random;
+
+import com.StarMicronics.StarIOSDK.PixelSource;
+
+public class TestImages {
+	// Images with the content of real print jobs, drawn without Android so the encoders can be measured on a plain JVM
+
+	public enum Content {
+		text, photo, barcode
+	};
+
+	private static final int WHITE = 0xFFFFFFFF;
+	private static final int BLACK = 0xFF000000;
+
+	public static class ArrayPixelSource implements PixelSource {
+		private final int[] mPixels;
+		private final int mWidth;
+		private final int mHeight;
+
+		public ArrayPixelSource(int[] pixels, int width, int height) {
+			mPixels = pixels;
+			mWidth = width;
+			mHeight = height;
+		}
+
+		public int getWidth() {
+			return mWidth;
+		}
+
+		public int getHeight() {
+			return mHeight;
+		}
+
+		public void getPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+			for (int row = 0; row < height; row++) {
+				System.arraycopy(mPixels, (y + row) * mWidth + x, pixels, offset + row * stride, width);
+			}
+		}
+	}
+
+	/**
+	 * This function draws an image. The same arguments always give the same pixels, so runs can be compared.
+	 */
+	public static ArrayPixelSource create(Content content, int width, int height) {
+		int[] pixels = new int[width * height];
+		Random random = new Random(width * 31 + height);
+
+		switch (content) {
+		case text:
+			drawText(pixels, width, height, random);
+			break;
+		case photo:
+			drawPhoto(pixels, width, height, random);
+			break;
+		case barcode:
+			drawBarcode(pixels, width, height, random);
+			break;
+		}
+
+		return new ArrayPixelSource(pixels, width, height);
+	}
+
+	/**
+	 * Lines of 12 x 24 dot characters with a 10 dot gap, the strokes of each character at random, the right end of each line left blank
+	 */
+	private static void drawText(int[] pixels, int width, int height, Random random) {
+		java.util.Arrays.fill(pixels, WHITE);
+
+		for (int top = 0; top + 24 <= height; top += 34) {
+			int characters = (width / 12) * (40 + random.nextInt(60)) / 100;
+
+			for (int c = 0; c < characters; c++) {
+				int left = c * 12;
+				if (random.nextInt(6) == 0) {
+					continue; // Space
+				}
+
+				for (int stroke = 0; stroke < 4; stroke++) {
+					if (random.nextBoolean() == true) {
+						// Horizontal stroke
+						int y = top + 2 + random.nextInt(20);
+						fill(pixels, width, left + 1, y, 9, 2);
+					} else {
+						// Vertical stroke
+						int x = left + 1 + random.nextInt(8);
+						fill(pixels, width, x, top + 2, 2, 20);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Continuous tone with soft gradients and noise, the worst case for the dithering and for compression
+	 */
+	private static void drawPhoto(int[] pixels, int width, int height, Random random) {
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				double level = 128 + 90 * Math.sin(x / 37.0) * Math.cos(y / 53.0) + random.nextInt(61) - 30;
+				int gray = Math.max(0, Math.min(255, (int) level));
+				pixels[y * width + x] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+			}
+		}
+	}
+
+	/**
+	 * 1D barcodes of full width bars, 200 dots high with a 100 dot gap between them
+	 */
+	private static void drawBarcode(int[] pixels, int width, int height, Random random) {
+		java.util.Arrays.fill(pixels, WHITE);
+
+		int[] bars = new int[width];
+		int x = 20;
+		while (x < width - 20) {
+			int bar = 2 + random.nextInt(7);
+			int space = 2 + random.nextInt(7);
+			for (int i = x; (i < x + bar) && (i < width - 20); i++) {
+				bars[i] = 1;
+			}
+			x += bar + space;
+		}
+
+		for (int y = 0; y < height; y++) {
+			if ((y % 300) >= 200) {
+				continue;
+			}
+			for (x = 0; x < width; x++) {
+				if (bars[x] == 1) {
+					pixels[y * width + x] = BLACK;
+				}
+			}
+		}
+	}
+
+	private static void fill(int[] pixels, int width, int left, int top, int w, int h) {
+		for (int y = top; y < top + h; y++) {
+			for (int x = left; (x < left + w) && (x < width); x++) {
+				pixels[y * width + x] = BLACK;
+			}
+		}
+	}
+}
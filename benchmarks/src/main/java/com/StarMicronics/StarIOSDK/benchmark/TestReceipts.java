@@ -0,0 +1,121 @@
+package com.StarMicronics.StarIOSDK.benchmark;
+
+import java.util.ArrayList;
+
+import com.StarMicronics.StarIOSDK.SampleReceipts;
+
+public class TestReceipts {
+	// The 3 inch line mode sample receipts of the app, built by the same code in the core module. The Japanese and Chinese ones read their text from the Android resources in the app, so the text of strings.xml is repeated here.
+
+	public enum Language {
+		english, japanese, simplifiedChinese, traditionalChinese
+	};
+
+	public static ArrayList<byte[]> create(Language language) {
+		switch (language) {
+		case japanese:
+			return SampleReceipts.createReceiptJp3inch(japaneseText());
+		case simplifiedChinese:
+			return SampleReceipts.createReceiptCHS3inch(simplifiedChineseText());
+		case traditionalChinese:
+			return SampleReceipts.createReceiptCHTbyDotPrinter(traditionalChineseText());
+		default:
+			return SampleReceipts.createReceipt3inch();
+		}
+	}
+
+	private static SampleReceipts.JapaneseText japaneseText() {
+		SampleReceipts.JapaneseText text = new SampleReceipts.JapaneseText();
+
+		text.companyName = "スター電機";
+		text.receiptName = "修理報告書　兼領収書";
+		text.year = "年";
+		text.month = "月";
+		text.day = "日";
+		text.hour = "時";
+		text.min = "分";
+		text.date = "発行日時:";
+		text.kana = "           ｲｹﾆｼ   ｹｲｺ   ｻﾏ";
+		text.personalInfo = "　お名前：池西　圭子　様" +
+				"\n　御住所：静岡市清水区七ツ新屋" +
+				"\n　　　　　５３６番地" +
+				"\n　伝票番号：No.12345-67890" +
+				"\n\n　この度は修理をご用命頂き有難うございます。今後も故障など発生した場合はお気軽にご連絡ください。" +
+				"\n\n";
+		text.itemInfo = "品名／型名　          数量　　 金額　   備考" +
+				"\n------------------------------------------------" +
+				"\n制御基板  \u0009        1      10,000	     配達" +
+				"\n操作スイッチ  \u0009        1       3,800	     配達" +
+				"\nパネル  \u0009        1       2,000	     配達" +
+				"\n技術料  \u0009        1      15,000" +
+				"\n出張費用  \u0009        1       5,000" +
+				"\n------------------------------------------------" +
+				"\n";
+		text.subtotal = "\n\u0009                小計\u0009   \\ ";
+		text.tax = "\u0009                内税\u0009   \\  ";
+		text.total = "\u0009                合計\u0009   \\ ";
+		text.phone = "　お問合わせ番号　　12345‐67890";
+
+		return text;
+	}
+
+	private static SampleReceipts.SimplifiedChineseText simplifiedChineseText() {
+		SampleReceipts.SimplifiedChineseText text = new SampleReceipts.SimplifiedChineseText();
+
+		text.companyName = "STAR便利店";
+		text.receiptName = "欢迎光临";
+		text.address = "Unit 1906-08, 19/F, Enterprise Square 2," + "\n　3 Sheung Yuet Road, Kowloon Bay, KLN" + "\n";
+		text.phone = "\nTel : (852) 2795 2335";
+		text.itemInfo = "\n货品名称   　          数量  　   价格　   " +
+				"\n--------------------------------------------" +
+				"\n罐装可乐" +
+				"\n* Coke  \u0009         1        7.00" +
+				"\n纸包柠檬茶" +
+				"\n* Lemon Tea  \u0009         2       10.00" +
+				"\n热狗" +
+				"\n* Hot Dog   \u0009         1       10.00" +
+				"\n薯片(50克装)" +
+				"\n* Potato Chips(50g)\u0009      1       11.00" +
+				"\n--------------------------------------------" +
+				"\n";
+		text.total = "\u0009      总数 :\u0009     38.00";
+		text.cash = "\u0009      现金 :\u0009     38.00";
+		text.change = "\u0009      找赎 :\u0009      0.00";
+		text.cardNumber = "\n卡号码 Card No.       : 88888888";
+		text.cardBalance = "卡余额 Remaining Val. : 88.00";
+		text.machineNumber = "机号   Device No.     : 1234F1";
+		text.receiptInfo = "\n\nDD/MM/YYYY  HH:MM:SS  交易编号 : 88888";
+		text.cashier = "\n收银机 : 001  收银员 : 180";
+
+		return text;
+	}
+
+	private static SampleReceipts.TraditionalChineseText traditionalChineseText() {
+		SampleReceipts.TraditionalChineseText text = new SampleReceipts.TraditionalChineseText();
+
+		text.companyName = "Star Micronics";
+		text.receiptName = "電子發票證明聯";
+		text.period = "103年01-02月";
+		text.invoiceNumber = "EV-99999999";
+		text.date = "2014/01/15 13:00";
+		text.randomCode = "隨機碼 : 9999    總計 : 999";
+		text.seller = "賣方 : 99999999";
+		text.itemList = "商品退換請持本聯及銷貨明細表。";
+		text.itemListNumber = "9999999-9999999 999999-999999 9999";
+		text.salesSchedule = "銷貨明細表 　(銷售)";
+		text.date2 = "2014-01-15 13:00:02";
+		text.itemInfo = "\n烏龍袋茶2g20入  \u0009           55 x2 110TX" +
+				"\n茉莉烏龍茶2g20入  \u0009         55 x2 110TX" +
+				"\n天仁觀音茶2g*20   \u0009         55 x2 110TX";
+		text.subtotal = "      小　 計 :\u0009             330";
+		text.total = "      總   計 :\u0009             330";
+		text.cash = "現 金\u0009             400";
+		text.change = "      找　 零 :\u0009             70";
+		text.invoice = " 101 發票金額 :\u0009             330";
+		text.date3 = "2014-01-15 13:00";
+		text.info = "商品退換、贈品及停車兌換請持本聯。";
+		text.infoNumber = "9999999-9999999 999999-999999 9999";
+
+		return text;
+	}
+}
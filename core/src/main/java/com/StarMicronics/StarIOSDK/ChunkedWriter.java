@@ -0,0 +1,234 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.HashMap;
+
+import com.StarMicronics.StarIOSDK.PortReadiness.Transport;
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+
+public class ChunkedWriter {
+	// Writes print data in chunks paced against the receive buffer of the printer instead of in one writePort call
+
+	public static class TransportProfile {
+		final int initialChunkBytes;
+		final int minChunkBytes;
+		final int maxChunkBytes;
+		final int linkBytesPerSecond;
+		final int bufferBytes;
+		final int drainBytesPerSecond;
+
+		/**
+		 * @param initialChunkBytes
+		 *     Chunk size used until a better one has been learned
+		 * @param minChunkBytes
+		 *     Smallest chunk size, also the step by which the chunk grows
+		 * @param maxChunkBytes
+		 *     Largest chunk size
+		 * @param linkBytesPerSecond
+		 *     Expected speed of the link, used to judge the write latency
+		 * @param bufferBytes
+		 *     Receive buffer of the printer. 0 means the transport has its own flow control and the writer does not pace.
+		 * @param drainBytesPerSecond
+		 *     Rate at which the printer empties its receive buffer while printing
+		 */
+		public TransportProfile(int initialChunkBytes, int minChunkBytes, int maxChunkBytes, int linkBytesPerSecond, int bufferBytes, int drainBytesPerSecond) {
+			this.initialChunkBytes = initialChunkBytes;
+			this.minChunkBytes = minChunkBytes;
+			this.maxChunkBytes = maxChunkBytes;
+			this.linkBytesPerSecond = linkBytesPerSecond;
+			this.bufferBytes = bufferBytes;
+			this.drainBytesPerSecond = drainBytesPerSecond;
+		}
+	}
+
+	private static final long LATENCY_ALLOWANCE_MILLIS = 20;
+	private static final double DOTS_PER_MM = 8; // 203 dpi
+
+	private static final HashMap<Transport, TransportProfile> profiles = new HashMap<Transport, TransportProfile>();
+	private static final HashMap<Transport, Integer> chunkBytes = new HashMap<Transport, Integer>();
+
+	static {
+		// Bluetooth printers are 2 inch portable printers (384 dots) which sustain about 40 mm per second, USB printers are 3 inch desktop printers (576 dots) at 150 mm per second
+		int portableDrain = getRasterDrainBytesPerSecond(40, 384);
+		int desktopDrain = getRasterDrainBytesPerSecond(150, 576);
+
+		profiles.put(Transport.TCP, new TransportProfile(8192, 1024, 65536, 1000000, 0, 0));
+		profiles.put(Transport.BT, new TransportProfile(1024, 256, 4096, 20000, 4096, portableDrain));
+		profiles.put(Transport.USB, new TransportProfile(4096, 512, 16384, 500000, 16384, desktopDrain));
+		profiles.put(Transport.Other, new TransportProfile(1024, 256, 4096, 20000, 4096, portableDrain));
+	}
+
+	private StarIOPort mPort;
+	private String mPortName;
+	private Transport mTransport;
+	private TransportProfile mProfile;
+
+	private double mBufferedBytes = 0;
+	private long mLastUpdateNanos = System.nanoTime();
+
+	/**
+	 * @param port
+	 *     Port to write to
+	 * @param portName
+	 *     Port name used to open the port. The prefix selects the transport profile (TCP, BT or USB).
+	 */
+	public ChunkedWriter(StarIOPort port, String portName) {
+		mPort = port;
+		mPortName = portName;
+		mTransport = PortReadiness.transportOf(portName);
+		mProfile = getProfile(mTransport);
+	}
+
+	/**
+	 * This function replaces the profile of a transport, e.g. for a printer with a larger receive buffer
+	 */
+	public static void setProfile(Transport transport, TransportProfile profile) {
+		synchronized (chunkBytes) {
+			profiles.put(transport, profile);
+			chunkBytes.remove(transport);
+		}
+	}
+
+	/**
+	 * This function returns the rate at which the print mechanism empties the receive buffer when it prints full width raster rows, the densest data it receives. Text takes fewer bytes per dot row, so the buffer is never modelled as emptier than it is.
+	 *
+	 * @param mmPerSecond
+	 *     Print speed of the printer
+	 * @param dotsPerRow
+	 *     Print width in dots, e.g. 384 for 2 inch or 576 for 3 inch
+	 */
+	public static int getRasterDrainBytesPerSecond(double mmPerSecond, int dotsPerRow) {
+		return (int) (mmPerSecond * DOTS_PER_MM * ((dotsPerRow + 7) / 8));
+	}
+
+	public static TransportProfile getProfile(Transport transport) {
+		synchronized (chunkBytes) {
+			return profiles.get(transport);
+		}
+	}
+
+	/**
+	 * @return
+	 *     chunk size currently learned for the transport
+	 */
+	public static int getChunkBytes(Transport transport) {
+		synchronized (chunkBytes) {
+			Integer learned = chunkBytes.get(transport);
+			if (learned == null) {
+				return profiles.get(transport).initialChunkBytes;
+			}
+			return learned;
+		}
+	}
+
+	/**
+	 * This function writes the data in chunks. Before each chunk it waits until the modelled receive buffer of the printer has room for it, and after each chunk the chunk size is adapted from the write latency: it grows by one step while writes are as fast as the link, and is halved when a write stalls.
+	 *
+	 * @param data
+	 *     Command data to send
+	 * @param offset
+	 *     Position of the first byte to send
+	 * @param length
+	 *     Number of bytes to send
+	 */
+	public void write(byte[] data, int offset, int length) throws StarIOPortException {
+		int end = offset + length;
+
+		while (offset < end) {
+			int chunk = Math.min(getChunkBytes(mTransport), end - offset);
+
+			waitForRoom(chunk);
+
+			long start = System.nanoTime();
+			if (offset == 0) {
+				mPort.writePort(data, 0, chunk);
+			} else {
+				// TCPPort.writePort of StarIO 3.1 goes back to the start of the array after the first 1024 bytes of a write, so a chunk from the middle of the data is passed as an array of its own
+				byte[] copy = new byte[chunk];
+				System.arraycopy(data, offset, copy, 0, chunk);
+				mPort.writePort(copy, 0, chunk);
+			}
+			long latencyNanos = System.nanoTime() - start;
+			long latencyMillis = latencyNanos / 1000000;
+
+			PrintMetrics.record(mPortName, PrintMetrics.Stage.Write, latencyNanos);
+			PrintMetrics.addBytes(mPortName, chunk, latencyNanos);
+
+			adapt(chunk, latencyMillis);
+
+			mBufferedBytes += chunk;
+			offset += chunk;
+		}
+	}
+
+	public void write(byte[] data) throws StarIOPortException {
+		write(data, 0, data.length);
+	}
+
+	/**
+	 * @return
+	 *     time the printer is expected to need for the data still held in its receive buffer
+	 */
+	public long getDrainMillis() {
+		if (mProfile.bufferBytes == 0) {
+			return 0;
+		}
+
+		drain();
+		return (long) (mBufferedBytes * 1000 / mProfile.drainBytesPerSecond);
+	}
+
+	private void drain() {
+		long now = System.nanoTime();
+
+		if (mProfile.bufferBytes != 0) {
+			mBufferedBytes -= (double) mProfile.drainBytesPerSecond * (now - mLastUpdateNanos) / 1000000000L;
+			if (mBufferedBytes < 0) {
+				mBufferedBytes = 0;
+			}
+		}
+
+		mLastUpdateNanos = now;
+	}
+
+	private void waitForRoom(int chunk) throws StarIOPortException {
+		drain();
+
+		if (mProfile.bufferBytes == 0) {
+			return;
+		}
+
+		double overflow = mBufferedBytes + chunk - mProfile.bufferBytes;
+		if (overflow <= 0) {
+			return;
+		}
+
+		try {
+			Thread.sleep((long) Math.ceil(overflow * 1000 / mProfile.drainBytesPerSecond));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StarIOPortException("Interrupted while sending data to the printer");
+		}
+
+		drain();
+	}
+
+	private void adapt(int chunk, long latencyMillis) {
+		long expectedMillis = (long) chunk * 1000 / mProfile.linkBytesPerSecond;
+
+		synchronized (chunkBytes) {
+			int current = getChunkBytes(mTransport);
+
+			if (latencyMillis <= expectedMillis * 2 + LATENCY_ALLOWANCE_MILLIS) {
+				// Only a full chunk shows that the current size works
+				if (chunk == current) {
+					current = Math.min(current + mProfile.minChunkBytes, mProfile.maxChunkBytes);
+				}
+			} else {
+				current = Math.max(current / 2, mProfile.minChunkBytes);
+			}
+
+			chunkBytes.put(mTransport, current);
+		}
+	}
+}
@@ -0,0 +1,713 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CommandDecoder {
+	// Decodes a command stream back into the page it prints, for an on-screen preview before printing and for comparing command streams in tests
+
+	public enum Dialect {
+		StarLine, EscPos
+	};
+
+	private static final int CHARACTER_WIDTH = 12;
+	private static final int CHARACTER_HEIGHT = 24;
+	private static final int STAR_LINE_SPACING = 34; // 4.23 mm
+	private static final int ESCPOS_LINE_SPACING = 30;
+	private static final int ESCPOS_BARCODE_HEIGHT = 162;
+	private static final int PAGE_END_FEED = 120; // 15 mm
+
+	private static final int LF = 0x0a;
+	private static final int FF = 0x0c;
+	private static final int ESC = 0x1b;
+	private static final int FS = 0x1c;
+	private static final int GS = 0x1d;
+	private static final int RS = 0x1e;
+	private static final int ETX = 0x03;
+
+	private final byte[] mData;
+	private final int mWidth;
+	private final int mBytesPerRow;
+	private int mPosition = 0;
+
+	private byte[] mPixels;
+	private int mY = 0;
+	private int mBottom = 0;
+	private final ArrayList<DecodedPage.Element> mElements = new ArrayList<DecodedPage.Element>();
+
+	// Character settings
+	private int mAlignment = 0;
+	private int mScaleX = 1;
+	private int mScaleY = 1;
+	private boolean mEmphasized = false;
+	private int mLineSpacing;
+	private int mBarcodeHeight = ESCPOS_BARCODE_HEIGHT;
+
+	// Characters of the line that has not been fed yet
+	private final StringBuilder mLine = new StringBuilder();
+	private int mLineOffset = 0;
+	private int mLineScaleX = 1;
+	private int mLineScaleY = 1;
+	private boolean mLineEmphasized = false;
+
+	// Raster mode
+	private boolean mRasterMode = false;
+	private DecodedPage.Element mRaster = null;
+	private int mRasterWidth = 0;
+	private boolean mCutAtEndOfDocument = false;
+	private boolean mFeedAtEndOfDocument = false;
+
+	// Data of the 2D barcode to print
+	private String mSymbolData = null;
+
+	private CommandDecoder(byte[] data, int width, Dialect dialect) {
+		mData = data;
+		mWidth = width;
+		mBytesPerRow = (width + 7) / 8;
+		mLineSpacing = (dialect == Dialect.EscPos) ? ESCPOS_LINE_SPACING : STAR_LINE_SPACING;
+		mPixels = new byte[mBytesPerRow * 1024];
+	}
+
+	/**
+	 * This function decodes the commands of a print job
+	 *
+	 * @param commands
+	 *     Byte arrays in the order they are sent to the printer. A command may be split across two of them.
+	 * @param width
+	 *     Printable width in dots, e.g. 576 for 80mm paper or 384 for the portable printers. Graphics beyond it are cut off.
+	 * @param dialect
+	 *     StarLine for line mode and raster commands, EscPos for the portable printers (port settings "mini")
+	 */
+	public static DecodedPage decode(List<byte[]> commands, int width, Dialect dialect) {
+		int length = 0;
+		for (byte[] command : commands) {
+			length += command.length;
+		}
+
+		byte[] data = new byte[length];
+		int position = 0;
+		for (byte[] command : commands) {
+			System.arraycopy(command, 0, data, position, command.length);
+			position += command.length;
+		}
+
+		return decode(data, width, dialect);
+	}
+
+	/**
+	 * This function decodes a command stream. The graphics (raster rows, bit images and bands) are drawn into the page image, the text lines, barcodes, feeds and cuts are listed as elements with the space they take on the paper.
+	 */
+	public static DecodedPage decode(byte[] data, int width, Dialect dialect) {
+		CommandDecoder decoder = new CommandDecoder(data, width, dialect);
+
+		while (decoder.mPosition < data.length) {
+			if (dialect == Dialect.EscPos) {
+				decoder.decodeEscPos();
+			} else {
+				decoder.decodeStarLine();
+			}
+		}
+
+		return decoder.finish();
+	}
+
+	private DecodedPage finish() {
+		flushLine(mData.length, false);
+		endRaster(mData.length);
+
+		int height = Math.max(mY, mBottom);
+		byte[] pixels = Arrays.copyOf(mPixels, height * mBytesPerRow);
+
+		return new DecodedPage(mWidth, height, pixels, mElements);
+	}
+
+	private void decodeStarLine() {
+		int offset = mPosition;
+		int b = next();
+
+		if (mRasterMode == true) {
+			decodeStarRaster(b, offset);
+		} else if (b == LF) {
+			lineFeed(offset);
+		} else if (b == ESC) {
+			decodeStarEscape(next(), offset);
+		} else {
+			character(b, offset);
+		}
+	}
+
+	private void decodeStarRaster(int b, int offset) {
+		if ((b == 'b') || (b == 'k')) {
+			// Raster row 'b' n1 n2 d1 ... dk
+			int length = next() + next() * 256;
+			drawRow(mPosition, length, mY);
+			mRasterWidth = Math.max(mRasterWidth, Math.min(length * 8, mWidth));
+			mY++;
+			skip(length);
+		} else if ((b == ESC) && (peek() == '*')) {
+			next();
+			if (next() == 'r') {
+				decodeRasterCommand(offset);
+			}
+		} else if ((b == ESC) && (peek() == FF)) {
+			// Form feed <ESC> <FF> NUL
+			skip(2);
+		}
+	}
+
+	private void decodeRasterCommand(int offset) {
+		int command = next();
+
+		if (command == 'A') {
+			flushLine(offset, true);
+			mRasterMode = true;
+			mRaster = new DecodedPage.Element(DecodedPage.ElementType.Raster, offset, mY);
+			mRasterWidth = 0;
+			return;
+		} else if (command == 'B') {
+			endRaster(mPosition);
+			mRasterMode = false;
+			if (mFeedAtEndOfDocument == true) {
+				feed(offset, PAGE_END_FEED);
+			}
+			if (mCutAtEndOfDocument == true) {
+				cut(offset);
+			}
+			return;
+		} else if (command == 'C') {
+			return;
+		}
+
+		// The other raster commands end with NUL
+		int start = mPosition;
+		while ((mPosition < mData.length) && (mData[mPosition] != 0x00)) {
+			mPosition++;
+		}
+		String parameter = new String(mData, start, mPosition - start);
+		skip(1);
+
+		try {
+			if (command == 'Y') {
+				mY += Integer.parseInt(parameter);
+			} else if (command == 'E') {
+				int mode = Integer.parseInt(parameter);
+				mCutAtEndOfDocument = (mode == 8) || (mode == 9) || (mode == 12) || (mode == 13);
+				mFeedAtEndOfDocument = (mode == 2) || (mode == 3) || (mode == 9) || (mode == 13) || (mode == 37);
+			}
+		} catch (NumberFormatException e) {
+			// Not a command that changes the page
+		}
+	}
+
+	private void decodeStarEscape(int command, int offset) {
+		switch (command) {
+		case '*':
+			if (next() == 'r') {
+				decodeRasterCommand(offset);
+			}
+			break;
+		case GS:
+			decodeStarEscapeGs(next(), offset);
+			break;
+		case RS:
+			// <ESC> <RS> c n
+			skip(2);
+			break;
+		case FS:
+			// Logo <ESC> <FS> p n m
+			skip((next() == 'p') ? 2 : 1);
+			break;
+		case '@':
+			mAlignment = 0;
+			mScaleX = 1;
+			mScaleY = 1;
+			mEmphasized = false;
+			mLineSpacing = STAR_LINE_SPACING;
+			break;
+		case 'E':
+			mEmphasized = true;
+			break;
+		case 'F':
+			mEmphasized = false;
+			break;
+		case 'W':
+			mScaleX = expansion(next());
+			break;
+		case 'h':
+			mScaleY = expansion(next());
+			break;
+		case 'i':
+			// Character expansion <ESC> i n1 n2
+			mScaleY = expansion(next());
+			mScaleX = expansion(next());
+			break;
+		case 'z':
+			mLineSpacing = (next() == 0) ? 24 : STAR_LINE_SPACING;
+			break;
+		case '0':
+			mLineSpacing = 24;
+			break;
+		case 'd':
+			// Cut <ESC> d n
+			skip(1);
+			cut(offset);
+			break;
+		case 'a':
+			// Feed n lines <ESC> a n
+			flushLine(offset, true);
+			feed(offset, next() * mLineSpacing);
+			break;
+		case 'J':
+			// Feed n/4 mm <ESC> J n
+			flushLine(offset, true);
+			feed(offset, next() * 2);
+			break;
+		case 'I':
+			// Feed n/8 mm <ESC> I n
+			flushLine(offset, true);
+			feed(offset, next());
+			break;
+		case 'K':
+		case 'L':
+			// Bit image <ESC> K n1 n2 d1 ... dk, a byte is a column of 8 dots printed at half the resolution
+			int columns = next() + next() * 256;
+			flushLine(offset, false);
+			drawColumns(mPosition, columns, mY);
+			skip(columns);
+			addGraphics(offset, mY, Math.min(columns * 2, mWidth), 16);
+			break;
+		case 'b':
+			// Barcode <ESC> b n1 n2 n3 n4 d1 ... dk <RS>
+			skip(3);
+			int height = next();
+			int start = mPosition;
+			skipUntil(RS);
+			barcode(offset, new String(mData, start, Math.max(0, mPosition - 1 - start)), height);
+			break;
+		case 'D':
+			// Horizontal tabs <ESC> D n1 ... nk NUL
+			skipUntil(0x00);
+			break;
+		case 0x07:
+			// Drawer <ESC> <BEL> n1 n2
+			skip(2);
+			break;
+		case '4':
+		case '5':
+		case 'M':
+		case 'P':
+		case ':':
+		case '2':
+		case '6':
+		case '7':
+		case '8':
+			break;
+		default:
+			// Most of the other commands have one parameter
+			skip(1);
+			break;
+		}
+	}
+
+	private void decodeStarEscapeGs(int command, int offset) {
+		switch (command) {
+		case ETX:
+			// Checked block <ESC> <GS> <ETX> s n1 n2
+			skip(3);
+			break;
+		case 'a':
+			mAlignment = next() % 48;
+			break;
+		case 'x':
+		case 'y':
+			// PDF417 and QR code, the symbol itself is not drawn
+			int function = next();
+			if (function == 'S') {
+				skip(((next() == '0') && (command == 'x')) ? 3 : 1);
+			} else if (function == 'D') {
+				if (command == 'y') {
+					skip(2);
+				}
+				int length = next() + next() * 256;
+				mSymbolData = new String(mData, mPosition, Math.min(length, mData.length - mPosition));
+				skip(length);
+			} else if (function == 'P') {
+				barcode(offset, mSymbolData, 0);
+			}
+			break;
+		default:
+			skip(1);
+			break;
+		}
+	}
+
+	private void decodeEscPos() {
+		int offset = mPosition;
+		int b = next();
+
+		if (b == LF) {
+			lineFeed(offset);
+		} else if (b == FF) {
+			// End of page mode
+			flushLine(offset, true);
+		} else if (b == ESC) {
+			decodeEscPosEscape(next(), offset);
+		} else if (b == GS) {
+			decodeEscPosGs(next(), offset);
+		} else if (b == 0x10) {
+			// Real time request <DLE> <EOT> n
+			skip(2);
+		} else {
+			character(b, offset);
+		}
+	}
+
+	private void decodeEscPosEscape(int command, int offset) {
+		switch (command) {
+		case GS:
+			if (next() == ETX) {
+				skip(3);
+			}
+			break;
+		case '@':
+			mAlignment = 0;
+			mScaleX = 1;
+			mScaleY = 1;
+			mEmphasized = false;
+			mLineSpacing = ESCPOS_LINE_SPACING;
+			break;
+		case '!':
+			int mode = next();
+			mEmphasized = (mode & 0x08) != 0;
+			mScaleY = ((mode & 0x10) != 0) ? 2 : 1;
+			mScaleX = ((mode & 0x20) != 0) ? 2 : 1;
+			break;
+		case 'E':
+			mEmphasized = (next() & 0x01) != 0;
+			break;
+		case 'a':
+			mAlignment = next() % 48;
+			break;
+		case '2':
+			mLineSpacing = ESCPOS_LINE_SPACING;
+			break;
+		case '3':
+			mLineSpacing = next();
+			break;
+		case 'X':
+			if (next() == '4') {
+				// Bit image band <ESC> X 4 x y d1 ... d(x * y)
+				int width = next();
+				int height = next();
+				flushLine(offset, false);
+				for (int y = 0; y < height; y++) {
+					drawRow(mPosition + y * width, width, mY + y);
+				}
+				skip(width * height);
+				addGraphics(offset, mY, Math.min(width * 8, mWidth), height);
+			} else {
+				skip(1);
+			}
+			break;
+		case 'W':
+			// Page mode area <ESC> W xL xH yL yH dxL dxH dyL dyH
+			skip(8);
+			break;
+		case 'J':
+			// Feed n dots <ESC> J n
+			flushLine(offset, true);
+			feed(offset, next());
+			break;
+		case 'd':
+			// Feed n lines <ESC> d n
+			flushLine(offset, true);
+			feed(offset, next() * mLineSpacing);
+			break;
+		case 'i':
+		case 'm':
+			cut(offset);
+			break;
+		case '$':
+			skip(2);
+			break;
+		case 'D':
+			skipUntil(0x00);
+			break;
+		case 'L':
+		case 'S':
+			break;
+		default:
+			skip(1);
+			break;
+		}
+	}
+
+	private void decodeEscPosGs(int command, int offset) {
+		switch (command) {
+		case '8':
+			if (next() == 'L') {
+				// Raster image <GS> 8 L p1 p2 p3 p4 m fn a bx by c xL xH yL yH d1 ... dk
+				skip(4 + 6);
+				int width = next() + next() * 256;
+				int height = next() + next() * 256;
+				decodeEscPosImage(offset, (width + 7) / 8, height);
+			}
+			break;
+		case 'v':
+			// Raster image <GS> v 0 m xL xH yL yH d1 ... dk
+			skip(2);
+			int width = next() + next() * 256;
+			int height = next() + next() * 256;
+			decodeEscPosImage(offset, width, height);
+			break;
+		case '!':
+			int size = next();
+			mScaleX = ((size >> 4) & 0x07) + 1;
+			mScaleY = (size & 0x07) + 1;
+			break;
+		case 'h':
+			mBarcodeHeight = next();
+			break;
+		case 'k':
+			// Barcode <GS> k m d1 ... NUL or <GS> k m n d1 ... dn
+			int start;
+			int end;
+			if (next() <= 6) {
+				start = mPosition;
+				skipUntil(0x00);
+				end = mPosition - 1;
+			} else {
+				int length = next();
+				start = mPosition;
+				skip(length);
+				end = mPosition;
+			}
+			barcode(offset, new String(mData, start, Math.max(0, end - start)), mBarcodeHeight);
+			break;
+		case '(':
+			// <GS> ( fn pL pH d1 ... dk
+			skip(1);
+			skip(next() + next() * 256);
+			break;
+		case 'V':
+			// Cut <GS> V m [n]
+			if (next() >= 65) {
+				skip(1);
+			}
+			cut(offset);
+			break;
+		case 'L':
+		case 'W':
+		case 'P':
+			skip(2);
+			break;
+		default:
+			skip(1);
+			break;
+		}
+	}
+
+	private void decodeEscPosImage(int offset, int bytesPerRow, int height) {
+		flushLine(offset, false);
+		for (int y = 0; y < height; y++) {
+			drawRow(mPosition + y * bytesPerRow, bytesPerRow, mY + y);
+		}
+		skip(bytesPerRow * height);
+		addGraphics(offset, mY, Math.min(bytesPerRow * 8, mWidth), height);
+	}
+
+	private void character(int b, int offset) {
+		if ((b < 0x20) || (b == 0x7f)) {
+			// ETB, CR and the other control codes do not print
+			return;
+		}
+
+		if (mLine.length() == 0) {
+			mLineOffset = offset;
+			mLineScaleX = mScaleX;
+			mLineScaleY = mScaleY;
+			mLineEmphasized = mEmphasized;
+		} else {
+			mLineScaleX = Math.max(mLineScaleX, mScaleX);
+			mLineScaleY = Math.max(mLineScaleY, mScaleY);
+		}
+
+		mLine.append((char) b);
+	}
+
+	private void lineFeed(int offset) {
+		if (mLine.length() == 0) {
+			feed(offset, mLineSpacing);
+		} else {
+			flushLine(offset + 1, true);
+		}
+	}
+
+	/**
+	 * This function adds the characters received since the last line feed as a text line
+	 *
+	 * @param end
+	 *     Offset after the last byte of the line
+	 * @param feed
+	 *     true to feed the paper past the line, false if the next element prints beside it
+	 */
+	private void flushLine(int end, boolean feed) {
+		if (mLine.length() == 0) {
+			return;
+		}
+
+		int width = Math.min(mLine.length() * CHARACTER_WIDTH * mLineScaleX, mWidth);
+		int height = CHARACTER_HEIGHT * mLineScaleY;
+		int x = 0;
+		if (mAlignment == 1) {
+			x = (mWidth - width) / 2;
+		} else if (mAlignment == 2) {
+			x = mWidth - width;
+		}
+
+		DecodedPage.Element element = new DecodedPage.Element(DecodedPage.ElementType.Text, mLineOffset, mY);
+		element.setBounds(x, mY, width, height);
+		element.setText(mLine.toString(), mLineScaleX, mLineScaleY, mLineEmphasized);
+		element.setEnd(end);
+		mElements.add(element);
+		mLine.setLength(0);
+
+		if (feed == true) {
+			mY += Math.max(mLineSpacing, height + mLineSpacing - CHARACTER_HEIGHT);
+		}
+	}
+
+	private void feed(int offset, int dots) {
+		DecodedPage.Element last = mElements.isEmpty() ? null : mElements.get(mElements.size() - 1);
+
+		// Consecutive feeds are one element
+		if ((last != null) && (last.getType() == DecodedPage.ElementType.Feed) && (last.getY() + last.getHeight() == mY)) {
+			last.setBounds(0, last.getY(), mWidth, last.getHeight() + dots);
+			last.setEnd(mPosition);
+		} else {
+			DecodedPage.Element element = new DecodedPage.Element(DecodedPage.ElementType.Feed, offset, mY);
+			element.setBounds(0, mY, mWidth, dots);
+			element.setEnd(mPosition);
+			mElements.add(element);
+		}
+
+		mY += dots;
+	}
+
+	private void cut(int offset) {
+		flushLine(offset, true);
+
+		DecodedPage.Element element = new DecodedPage.Element(DecodedPage.ElementType.Cut, offset, mY);
+		element.setBounds(0, mY, mWidth, 0);
+		element.setEnd(mPosition);
+		mElements.add(element);
+	}
+
+	private void barcode(int offset, String data, int height) {
+		flushLine(offset, true);
+
+		DecodedPage.Element element = new DecodedPage.Element(DecodedPage.ElementType.Barcode, offset, mY);
+		element.setBounds(0, mY, mWidth, height);
+		element.setText(data, 1, 1, false);
+		element.setEnd(mPosition);
+		mElements.add(element);
+
+		mY += height;
+	}
+
+	/**
+	 * This function adds a bit image or band that has been drawn at y and feeds past it. A band that continues the graphics just above is added to its element.
+	 */
+	private void addGraphics(int offset, int y, int width, int height) {
+		DecodedPage.Element last = mElements.isEmpty() ? null : mElements.get(mElements.size() - 1);
+
+		if ((last != null) && (last.getType() == DecodedPage.ElementType.Raster) && (last.getY() + last.getHeight() == y)) {
+			last.setBounds(0, last.getY(), Math.max(last.getWidth(), width), last.getHeight() + height);
+			last.setEnd(mPosition);
+		} else {
+			DecodedPage.Element element = new DecodedPage.Element(DecodedPage.ElementType.Raster, offset, y);
+			element.setBounds(0, y, width, height);
+			element.setEnd(mPosition);
+			mElements.add(element);
+		}
+
+		mY = y + height;
+	}
+
+	private void endRaster(int end) {
+		if (mRaster == null) {
+			return;
+		}
+
+		mRaster.setBounds(0, mRaster.getY(), mRasterWidth, mY - mRaster.getY());
+		mRaster.setEnd(end);
+		mElements.add(mRaster);
+		mRaster = null;
+	}
+
+	private void drawRow(int offset, int length, int y) {
+		length = Math.min(Math.min(length, mBytesPerRow), mData.length - offset);
+		if (length <= 0) {
+			return;
+		}
+
+		ensureRows(y + 1);
+		System.arraycopy(mData, offset, mPixels, y * mBytesPerRow, length);
+	}
+
+	private void drawColumns(int offset, int columns, int y) {
+		columns = Math.min(Math.min(columns, mWidth / 2), mData.length - offset);
+		ensureRows(y + 16);
+
+		for (int column = 0; column < columns; column++) {
+			int bits = mData[offset + column] & 0xff;
+			for (int bit = 0; bit < 8; bit++) {
+				if ((bits & (0x80 >> bit)) != 0) {
+					for (int row = y + bit * 2; row < y + bit * 2 + 2; row++) {
+						mPixels[row * mBytesPerRow + column / 4] |= (byte) (0xc0 >> ((column % 4) * 2));
+					}
+				}
+			}
+		}
+	}
+
+	private void ensureRows(int rows) {
+		mBottom = Math.max(mBottom, rows);
+
+		if (rows * mBytesPerRow > mPixels.length) {
+			mPixels = Arrays.copyOf(mPixels, Math.max(mPixels.length * 2, rows * mBytesPerRow));
+		}
+	}
+
+	private static int expansion(int n) {
+		// n is 0 for normal characters up to 5 for six times the size, sent as the value or as the digit '0' to '5'
+		if ((n >= '0') && (n <= '5')) {
+			n -= '0';
+		}
+		return Math.min(Math.max(n, 0), 5) + 1;
+	}
+
+	private int next() {
+		if (mPosition >= mData.length) {
+			return -1;
+		}
+		return mData[mPosition++] & 0xff;
+	}
+
+	private int peek() {
+		return (mPosition < mData.length) ? (mData[mPosition] & 0xff) : -1;
+	}
+
+	private void skip(int length) {
+		mPosition = Math.min(mPosition + Math.max(length, 0), mData.length);
+	}
+
+	private void skipUntil(int terminator) {
+		while (mPosition < mData.length) {
+			if ((mData[mPosition++] & 0xff) == terminator) {
+				return;
+			}
+		}
+	}
+}
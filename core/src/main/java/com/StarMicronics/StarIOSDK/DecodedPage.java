@@ -0,0 +1,197 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DecodedPage {
+	// The page a command stream prints: a 1 bit per dot image of the graphics and the list of what was found in the stream
+
+	public enum ElementType {
+		Text, Raster, Barcode, Feed, Cut
+	};
+
+	public static class Element {
+		private ElementType mType;
+		private int mOffset;
+		private int mLength;
+		private int mX;
+		private int mY;
+		private int mWidth;
+		private int mHeight;
+		private String mText;
+		private int mScaleX;
+		private int mScaleY;
+		private boolean mEmphasized;
+
+		Element(ElementType type, int offset, int y) {
+			mType = type;
+			mOffset = offset;
+			mY = y;
+		}
+
+		public ElementType getType() {
+			return mType;
+		}
+
+		/**
+		 * @return
+		 *     index of the first byte of the element in the command stream
+		 */
+		public int getOffset() {
+			return mOffset;
+		}
+
+		/**
+		 * @return
+		 *     number of bytes of the element in the command stream
+		 */
+		public int getLength() {
+			return mLength;
+		}
+
+		public int getX() {
+			return mX;
+		}
+
+		/**
+		 * @return
+		 *     top of the element in dots from the start of the page
+		 */
+		public int getY() {
+			return mY;
+		}
+
+		public int getWidth() {
+			return mWidth;
+		}
+
+		public int getHeight() {
+			return mHeight;
+		}
+
+		/**
+		 * @return
+		 *     characters of a text line or data of a barcode, null for the other elements
+		 */
+		public String getText() {
+			return mText;
+		}
+
+		/**
+		 * @return
+		 *     character width expansion of a text line, 1 for normal characters
+		 */
+		public int getScaleX() {
+			return mScaleX;
+		}
+
+		public int getScaleY() {
+			return mScaleY;
+		}
+
+		public boolean isEmphasized() {
+			return mEmphasized;
+		}
+
+		void setEnd(int end) {
+			mLength = end - mOffset;
+		}
+
+		void setBounds(int x, int y, int width, int height) {
+			mX = x;
+			mY = y;
+			mWidth = width;
+			mHeight = height;
+		}
+
+		void setText(String text, int scaleX, int scaleY, boolean emphasized) {
+			mText = text;
+			mScaleX = scaleX;
+			mScaleY = scaleY;
+			mEmphasized = emphasized;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder();
+			text.append(mType).append(" @").append(mOffset).append("+").append(mLength);
+			text.append(" (").append(mX).append(",").append(mY).append(" ").append(mWidth).append("x").append(mHeight).append(")");
+			if (mText != null) {
+				text.append(" \"").append(mText).append("\"");
+			}
+			if ((mScaleX > 1) || (mScaleY > 1)) {
+				text.append(" x").append(mScaleX).append("/").append(mScaleY);
+			}
+			if (mEmphasized == true) {
+				text.append(" bold");
+			}
+			return text.toString();
+		}
+	}
+
+	private int mWidth;
+	private int mHeight;
+	private byte[] mPixels;
+	private ArrayList<Element> mElements;
+
+	DecodedPage(int width, int height, byte[] pixels, ArrayList<Element> elements) {
+		mWidth = width;
+		mHeight = height;
+		mPixels = pixels;
+		mElements = elements;
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+
+	public int getHeight() {
+		return mHeight;
+	}
+
+	public int getBytesPerRow() {
+		return (mWidth + 7) / 8;
+	}
+
+	/**
+	 * @return
+	 *     the dots row by row, getBytesPerRow() bytes for each row, the leftmost dot in the most significant bit, 1 for a black dot. Text lines are not drawn, only their space is kept.
+	 */
+	public byte[] getPixels() {
+		return mPixels;
+	}
+
+	public boolean isBlack(int x, int y) {
+		return (mPixels[y * getBytesPerRow() + x / 8] & (0x80 >> (x % 8))) != 0;
+	}
+
+	public List<Element> getElements() {
+		return mElements;
+	}
+
+	/**
+	 * This function returns the image as a binary PBM file, which most image viewers open and which can be compared byte by byte with a stored copy
+	 */
+	public byte[] toPbm() {
+		byte[] header = ("P4\n" + mWidth + " " + mHeight + "\n").getBytes();
+		byte[] pbm = new byte[header.length + mHeight * getBytesPerRow()];
+
+		System.arraycopy(header, 0, pbm, 0, header.length);
+		System.arraycopy(mPixels, 0, pbm, header.length, mHeight * getBytesPerRow());
+
+		return pbm;
+	}
+
+	/**
+	 * This function lists the elements one per line, for comparing with a stored copy
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append(mWidth).append("x").append(mHeight).append("\n");
+		for (Element element : mElements) {
+			text.append(element).append("\n");
+		}
+		return text.toString();
+	}
+}
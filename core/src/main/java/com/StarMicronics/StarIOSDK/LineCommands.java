@@ -0,0 +1,248 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LineCommands {
+	// Builds the Star line mode commands for text, without a port, so that they can be measured and reused off the device
+
+	public static final int ALIGN_LEFT = 0;
+	public static final int ALIGN_CENTER = 1;
+	public static final int ALIGN_RIGHT = 2;
+
+	/**
+	 * This function builds the commands that print formatted text on a thermal POS printer
+	 *
+	 * @param heightExpansion
+	 *     Height multiplier from 0 to 5
+	 * @param widthExpansion
+	 *     Width multiplier from 0 to 5
+	 * @param alignment
+	 *     ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT
+	 * @param textData
+	 *     The text to print
+	 * @param encode
+	 *     Set encode for multi-byte character or blank for single byte character.
+	 */
+	public static ArrayList<byte[]> createTextCommands(boolean slashedZero, boolean underline, boolean invertColor, boolean emphasized, boolean upperline, boolean upsideDown, int heightExpansion, int widthExpansion, byte leftMargin, int alignment, byte[] textData, String encode) {
+		ArrayList<byte[]> commands = new ArrayList<byte[]>();
+
+		commands.add(new byte[] { 0x1b, 0x40 }); // Initialization
+
+		if (encode.startsWith("Shift_JIS")) {
+			byte[] kanjiModeCommand = new byte[] { 0x1b, 0x71, 0x1b, 0x24, 0x31 }; // Shift-JIS Kanji Mode(Disable JIS(ESC q) + Enable Shift-JIS(ESC $ n))
+			commands.add(kanjiModeCommand);
+		} else if (encode.startsWith("ISO2022JP")) {
+			byte[] kanjiModeCommand = new byte[] { 0x1b, 0x24, 0x30 }; // JIS Kanji Mode(Disable Shift-JIS(ESC $ n))
+			commands.add(kanjiModeCommand);
+		}
+
+		byte[] slashedZeroCommand = new byte[] { 0x1b, 0x2f, 0x00 };
+		if (slashedZero) {
+			slashedZeroCommand[2] = 49;
+		} else {
+			slashedZeroCommand[2] = 48;
+		}
+		commands.add(slashedZeroCommand);
+
+		byte[] underlineCommand = new byte[] { 0x1b, 0x2d, 0x00 };
+		if (underline) {
+			underlineCommand[2] = 49;
+		} else {
+			underlineCommand[2] = 48;
+		}
+		commands.add(underlineCommand);
+
+		byte[] invertColorCommand = new byte[] { 0x1b, 0x00 };
+		if (invertColor) {
+			invertColorCommand[1] = 0x34;
+		} else {
+			invertColorCommand[1] = 0x35;
+		}
+		commands.add(invertColorCommand);
+
+		byte[] emphasizedPrinting = new byte[] { 0x1b, 0x00 };
+		if (emphasized) {
+			emphasizedPrinting[1] = 69;
+		} else {
+			emphasizedPrinting[1] = 70;
+		}
+		commands.add(emphasizedPrinting);
+
+		byte[] upperLineCommand = new byte[] { 0x1b, 0x5f, 0x00 };
+		if (upperline) {
+			upperLineCommand[2] = 49;
+		} else {
+			upperLineCommand[2] = 48;
+		}
+		commands.add(upperLineCommand);
+
+		if (upsideDown) {
+			commands.add(new byte[] { 0x0f });
+		} else {
+			commands.add(new byte[] { 0x12 });
+		}
+
+		byte[] characterExpansion = new byte[] { 0x1b, 0x69, 0x00, 0x00 };
+		characterExpansion[2] = (byte) (heightExpansion + '0');
+		characterExpansion[3] = (byte) (widthExpansion + '0');
+		commands.add(characterExpansion);
+
+		commands.add(new byte[] { 0x1b, 0x6c, leftMargin });
+
+		byte[] alignmentCommand = new byte[] { 0x1b, 0x1d, 0x61, 0x00 };
+		alignmentCommand[3] = (byte) (alignment + '0');
+		commands.add(alignmentCommand);
+
+		commands.add(encodeText(textData, encode));
+
+		commands.add(new byte[] { 0x0a });
+
+		return commands;
+	}
+
+	/**
+	 * This function converts text typed in the app to the code page of the printer
+	 *
+	 * @param textData
+	 *     The text in the default charset
+	 * @param encode
+	 *     "Shift_JIS", "ISO2022JP", "Big5", "GB2312" or blank to send the text unchanged
+	 */
+	public static byte[] encodeText(byte[] textData, String encode) {
+		if (encode.length() == 0) {
+			return textData;
+		}
+
+		String strData = new String(textData);
+		byte[] rawData = null;
+		try {
+			if (encode.startsWith("Shift_JIS")) {
+				rawData = strData.getBytes("Shift_JIS"); // Shift JIS code
+			} else if (encode.startsWith("ISO2022JP")) {
+				byte[] tempDataBytes = strData.getBytes("ISO2022JP"); // JIS code;
+				rawData = ReplaceCommand(tempDataBytes);
+			} else if (encode.startsWith("Big5")) {
+				rawData = strData.getBytes("Big5"); // Traditional Chinese
+			} else if (encode.startsWith("GB2312")) {
+				rawData = strData.getBytes("GB2312"); // Simplified Chinese
+			} else {
+				rawData = strData.getBytes();
+			}
+		} catch (UnsupportedEncodingException e) {
+			rawData = strData.getBytes();
+		}
+
+		return rawData;
+	}
+
+	/**
+	 * This function replaces the escape sequences of ISO-2022-JP with the JIS Kanji mode commands of the printer
+	 */
+	public static byte[] ReplaceCommand(byte[] tempDataBytes) {
+
+		byte[] buffer = new byte[tempDataBytes.length];
+		int j = 0;
+
+		byte[] specifyJISkanjiCharacterModeCommand = new byte[] {0x1b, 0x70};
+		byte[] cancelJISkanjiCharacterModeCommand = new byte[] {0x1b, 0x71};
+
+		//replace command
+		//Because LF(0x0A) command is not performed.
+		if(tempDataBytes.length > 0){
+			for(int i=0; i<tempDataBytes.length; i++){
+				if(tempDataBytes[i] == 0x1b){
+					if(tempDataBytes[i+1] == 0x24){// Replace [0x1b 0x24 0x42] to "Specify JIS Kanji Character Mode" command
+						buffer[j]   = specifyJISkanjiCharacterModeCommand[0];
+						buffer[j+1] = specifyJISkanjiCharacterModeCommand[1];
+						j += 2;
+					}
+					else if(tempDataBytes[i+1] == 0x28){//Replace [0x1b 0x28 0x42] to "Cancel JIS Kanji Character Mode" command
+						buffer[j]   = cancelJISkanjiCharacterModeCommand[0];
+						buffer[j+1] = cancelJISkanjiCharacterModeCommand[1];
+						j += 2;
+					}
+
+					i += 2;
+				}else{
+					buffer[j] = tempDataBytes[i];
+					j++;
+				}
+			}
+		}
+
+		//check 0x00 position
+		int datalength = 0;
+		for(int i=0; i< buffer.length; i++){
+			if(buffer[i] == 0x00){
+				datalength = i;
+				break;
+			}
+		}
+
+		//copy data
+		if(datalength == 0){
+			datalength = buffer.length;
+		}
+		byte[] data = new byte[datalength];
+		System.arraycopy(buffer, 0, data, 0, datalength);
+
+		return data;
+	}
+
+	public static byte[] createShiftJIS(String inputText) {
+		byte[] byteBuffer = null;
+
+		try {
+			byteBuffer = inputText.getBytes("Shift_JIS");
+		} catch (UnsupportedEncodingException e) {
+			byteBuffer = inputText.getBytes();
+		}
+
+		return byteBuffer;
+	}
+
+	public static byte[] createGB2312(String inputText) {
+		byte[] byteBuffer = null;
+
+		try {
+			byteBuffer = inputText.getBytes("GB2312");
+		} catch (UnsupportedEncodingException e) {
+			byteBuffer = inputText.getBytes();
+		}
+
+		return byteBuffer;
+	}
+
+	public static byte[] createBIG5(String inputText) {
+		byte[] byteBuffer = null;
+
+		try {
+			byteBuffer = inputText.getBytes("Big5");
+		} catch (UnsupportedEncodingException e) {
+			byteBuffer = inputText.getBytes();
+		}
+
+		return byteBuffer;
+	}
+
+	/**
+	 * This function joins the commands of a job into the single array that is written to the port
+	 */
+	public static byte[] convertFromListByteArrayTobyteArray(List<byte[]> ByteArray) {
+		int dataLength = 0;
+		for (int i = 0; i < ByteArray.size(); i++) {
+			dataLength += ByteArray.get(i).length;
+		}
+
+		int distPosition = 0;
+		byte[] byteArray = new byte[dataLength];
+		for (int i = 0; i < ByteArray.size(); i++) {
+			System.arraycopy(ByteArray.get(i), 0, byteArray, distPosition, ByteArray.get(i).length);
+			distPosition += ByteArray.get(i).length;
+		}
+
+		return byteArray;
+	}
+}
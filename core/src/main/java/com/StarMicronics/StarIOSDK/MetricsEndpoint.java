@@ -0,0 +1,118 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+public class MetricsEndpoint {
+	// Serves the snapshot of PrintMetrics as JSON over HTTP on the loopback interface, e.g. for "adb forward tcp:8089 tcp:8089" and "curl localhost:8089"
+
+	private static final int READ_TIMEOUT_MILLIS = 2000;
+	private static final int MAX_REQUEST_BYTES = 8192;
+
+	private static ServerSocket serverSocket = null;
+
+	/**
+	 * This function starts serving the metrics unless the endpoint is running already. Only connections from the device itself are accepted.
+	 *
+	 * @param port
+	 *     TCP port to listen on
+	 */
+	public static synchronized void start(int port) throws IOException {
+		if (serverSocket != null) {
+			return;
+		}
+
+		final ServerSocket socket = new ServerSocket(port, 4, InetAddress.getByAddress(new byte[] { 127, 0, 0, 1 }));
+		serverSocket = socket;
+
+		Thread thread = new Thread("MetricsEndpoint") {
+			@Override
+			public void run() {
+				accept(socket);
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public static synchronized void stop() {
+		if (serverSocket == null) {
+			return;
+		}
+
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+		}
+		serverSocket = null;
+	}
+
+	private static void accept(ServerSocket socket) {
+		while (true) {
+			Socket client;
+			try {
+				client = socket.accept();
+			} catch (IOException e) {
+				// Closed by stop
+				return;
+			}
+
+			try {
+				client.setSoTimeout(READ_TIMEOUT_MILLIS);
+				readRequest(client.getInputStream());
+				respond(client.getOutputStream());
+			} catch (IOException e) {
+				// The client went away, the next one is served
+			} finally {
+				try {
+					client.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * This function reads the request up to the empty line after the headers. Every path returns the snapshot, so the request itself is not parsed.
+	 */
+	private static void readRequest(InputStream in) throws IOException {
+		int matched = 0;
+		for (int i = 0; i < MAX_REQUEST_BYTES; i++) {
+			int b = in.read();
+			if (b < 0) {
+				return;
+			}
+
+			// Counts the bytes of "\r\n\r\n" seen in a row
+			if ((b == '\r') && ((matched == 0) || (matched == 2))) {
+				matched++;
+			} else if ((b == '\n') && ((matched == 1) || (matched == 3))) {
+				matched++;
+			} else {
+				matched = (b == '\r') ? 1 : 0;
+			}
+
+			if (matched == 4) {
+				return;
+			}
+		}
+	}
+
+	private static void respond(OutputStream out) throws IOException {
+		byte[] body = PrintMetrics.snapshot().getBytes("UTF-8");
+		String header = "HTTP/1.0 200 OK\r\n"
+				+ "Content-Type: application/json; charset=utf-8\r\n"
+				+ "Content-Length: " + body.length + "\r\n"
+				+ "Cache-Control: no-cache\r\n"
+				+ "Connection: close\r\n"
+				+ "\r\n";
+
+		out.write(header.getBytes("US-ASCII"));
+		out.write(body);
+		out.flush();
+	}
+}
@@ -0,0 +1,21 @@
+package com.StarMicronics.StarIOSDK;
+
+public interface PixelSource {
+	// An image to print, read by StarBitmap. The app wraps an Android Bitmap, a server or a benchmark can wrap its own pixel array.
+
+	int getWidth();
+
+	int getHeight();
+
+	/**
+	 * This function copies a rectangle of the image into an array, in the same way as android.graphics.Bitmap.getPixels
+	 *
+	 * @param pixels
+	 *     Array that receives the colors as 0xAARRGGBB
+	 * @param offset
+	 *     Index in pixels of the first pixel
+	 * @param stride
+	 *     Number of entries in pixels between two rows
+	 */
+	void getPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height);
+}
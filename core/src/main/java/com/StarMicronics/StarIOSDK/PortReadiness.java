@@ -0,0 +1,116 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.util.HashMap;
+
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarIOPortException;
+import com.starmicronics.stario.StarPrinterStatus;
+
+public class PortReadiness {
+	// Waits for a newly opened port to become usable instead of sleeping for a fixed time
+
+	public enum Transport {
+		TCP, BT, USB, Other
+	};
+
+	private static final long MAX_WAIT_MILLIS = 1000;
+	private static final long FIRST_BACKOFF_MILLIS = 5;
+	private static final long MAX_BACKOFF_MILLIS = 100;
+
+	private static final HashMap<Transport, Long> settleMillis = new HashMap<Transport, Long>();
+
+	static {
+		settleMillis.put(Transport.TCP, 50L);
+		settleMillis.put(Transport.BT, 300L);
+		settleMillis.put(Transport.USB, 100L);
+		settleMillis.put(Transport.Other, 100L);
+	}
+
+	public static Transport transportOf(String portName) {
+		String name = portName.toUpperCase();
+
+		if (name.startsWith("TCP:")) {
+			return Transport.TCP;
+		} else if (name.startsWith("BT:")) {
+			return Transport.BT;
+		} else if (name.startsWith("USB")) {
+			return Transport.USB;
+		}
+
+		return Transport.Other;
+	}
+
+	/**
+	 * This function waits until a newly opened port answers a status request. The first probe is sent after half of the settle time learned for the transport, and then the status is polled with a short exponential backoff. The observed settle time is fed back into the learned value.
+	 * If the port does not answer within one second the function returns anyway and the following command reports the problem.
+	 *
+	 * @param portName
+	 *     Port name used to open the port. The prefix selects the transport (TCP, BT or USB).
+	 * @param port
+	 *     Port returned by StarIOPort.getPort
+	 */
+	public static void waitUntilReady(String portName, StarIOPort port) {
+		Transport transport = transportOf(portName);
+		long start = System.currentTimeMillis();
+		long backoff = FIRST_BACKOFF_MILLIS;
+
+		if (sleep(getSettleMillis(transport) / 2) == false) {
+			return;
+		}
+
+		while (true) {
+			if (isReady(port)) {
+				learn(transport, System.currentTimeMillis() - start);
+				return;
+			}
+
+			long elapsed = System.currentTimeMillis() - start;
+			if (elapsed >= MAX_WAIT_MILLIS) {
+				return;
+			}
+
+			if (sleep(Math.min(backoff, MAX_WAIT_MILLIS - elapsed)) == false) {
+				return;
+			}
+			backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+		}
+	}
+
+	public static long getSettleMillis(Transport transport) {
+		synchronized (settleMillis) {
+			return settleMillis.get(transport);
+		}
+	}
+
+	private static boolean isReady(StarIOPort port) {
+		try {
+			StarPrinterStatus status = port.retreiveStatus();
+
+			// A TCP port reports a placeholder status until the first status from the printer has arrived
+			return status.rawLength > 0;
+		} catch (StarIOPortException e) {
+			return false;
+		}
+	}
+
+	private static void learn(Transport transport, long observedMillis) {
+		synchronized (settleMillis) {
+			long learned = settleMillis.get(transport);
+			settleMillis.put(transport, (learned * 3 + observedMillis) / 4);
+		}
+	}
+
+	private static boolean sleep(long millis) {
+		if (millis <= 0) {
+			return true;
+		}
+
+		try {
+			Thread.sleep(millis);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
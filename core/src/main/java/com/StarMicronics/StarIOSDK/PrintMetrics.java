@@ -0,0 +1,293 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.StarMicronics.StarIOSDK.PortReadiness.Transport;
+
+public class PrintMetrics {
+	// Latency histograms, throughput and error counters of the print pipeline, per printer and per transport
+
+	public enum Stage {
+		Render, Encode, Acquire, Begin, Write, End, Release
+	};
+
+	private static final int BUCKETS_PER_DOUBLING = 8;
+	private static final int BUCKETS = 40 * BUCKETS_PER_DOUBLING; // Up to 2^40 us, about 12 days
+
+	/**
+	 * Counts of latencies in buckets that grow by 2^(1/8), so that a percentile is within 9% of the true value
+	 */
+	static class Histogram {
+		private final long[] mCounts = new long[BUCKETS + 1];
+		private long mCount = 0;
+		private long mMaxNanos = 0;
+
+		void record(long nanos) {
+			long micros = Math.max(0, nanos) / 1000;
+			int index = 0;
+			if (micros > 0) {
+				index = Math.min(BUCKETS, 1 + (int) (Math.log(micros) / Math.log(2) * BUCKETS_PER_DOUBLING));
+			}
+
+			mCounts[index]++;
+			mCount++;
+			mMaxNanos = Math.max(mMaxNanos, nanos);
+		}
+
+		long getCount() {
+			return mCount;
+		}
+
+		long getMaxNanos() {
+			return mMaxNanos;
+		}
+
+		/**
+		 * @return
+		 *     upper bound of the bucket holding the percentile, at most the largest recorded value
+		 */
+		long percentileNanos(double percent) {
+			if (mCount == 0) {
+				return 0;
+			}
+
+			// Nearest rank
+			long rank = Math.max(1, (long) Math.ceil(percent / 100 * mCount));
+			long seen = 0;
+			for (int i = 0; i <= BUCKETS; i++) {
+				seen += mCounts[i];
+				if (seen >= rank) {
+					long upperNanos = (long) (Math.pow(2, (double) i / BUCKETS_PER_DOUBLING) * 1000);
+					return Math.min(upperNanos, mMaxNanos);
+				}
+			}
+			return mMaxNanos;
+		}
+	}
+
+	private static class Series {
+		final Histogram[] stages = new Histogram[Stage.values().length];
+		final TreeMap<String, Long> results = new TreeMap<String, Long>();
+		long bytes = 0;
+		long writeNanos = 0;
+		long retries = 0;
+
+		Series() {
+			for (int i = 0; i < stages.length; i++) {
+				stages[i] = new Histogram();
+			}
+		}
+	}
+
+	private static final TreeMap<String, Series> printers = new TreeMap<String, Series>();
+	private static final TreeMap<String, Series> transports = new TreeMap<String, Series>();
+	private static long sinceMillis = System.currentTimeMillis();
+
+	/**
+	 * This function records how long one stage of a print took
+	 *
+	 * @param portName
+	 *     Port name of the printer. The prefix selects the transport (TCP, BT or USB).
+	 * @param stage
+	 *     Stage of the print pipeline
+	 * @param nanos
+	 *     Duration measured with System.nanoTime()
+	 */
+	public static void record(String portName, Stage stage, long nanos) {
+		synchronized (printers) {
+			printerSeries(portName).stages[stage.ordinal()].record(nanos);
+			transportSeries(portName).stages[stage.ordinal()].record(nanos);
+		}
+	}
+
+	/**
+	 * This function records data written to the port, for the throughput of the link
+	 *
+	 * @param bytes
+	 *     Number of bytes written
+	 * @param nanos
+	 *     Time the write took
+	 */
+	public static void addBytes(String portName, long bytes, long nanos) {
+		synchronized (printers) {
+			Series printer = printerSeries(portName);
+			Series transport = transportSeries(portName);
+			printer.bytes += bytes;
+			printer.writeNanos += nanos;
+			transport.bytes += bytes;
+			transport.writeNanos += nanos;
+		}
+	}
+
+	/**
+	 * This function counts a connection or a part of a job that had to be tried again
+	 */
+	public static void countRetry(String portName) {
+		synchronized (printers) {
+			printerSeries(portName).retries++;
+			transportSeries(portName).retries++;
+		}
+	}
+
+	/**
+	 * This function counts the result of a job, e.g. Success, CoverOpen or CommunicationError
+	 */
+	public static void countResult(String portName, String result) {
+		synchronized (printers) {
+			increment(printerSeries(portName).results, result);
+			increment(transportSeries(portName).results, result);
+		}
+	}
+
+	/**
+	 * This function discards everything recorded so far
+	 */
+	public static void reset() {
+		synchronized (printers) {
+			printers.clear();
+			transports.clear();
+			sinceMillis = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * This function returns the metrics as JSON: for each printer and each transport the count, p50, p95, p99 and max in milliseconds of every stage, the bytes written, the bytes per second while writing, the retries and the results of the jobs
+	 */
+	public static String snapshot() {
+		StringBuilder json = new StringBuilder();
+
+		synchronized (printers) {
+			json.append("{\"sinceMillis\":").append(sinceMillis);
+			json.append(",\"takenMillis\":").append(System.currentTimeMillis());
+			json.append(",\"printers\":");
+			appendSeries(json, printers);
+			json.append(",\"transports\":");
+			appendSeries(json, transports);
+			json.append("}");
+		}
+
+		return json.toString();
+	}
+
+	/**
+	 * This function writes the snapshot to a file. The file is replaced in one step, so a reader never sees half of it.
+	 *
+	 * @param file
+	 *     File to write, e.g. in the files directory of the app
+	 */
+	public static void writeSnapshot(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+
+		Writer writer = new OutputStreamWriter(new FileOutputStream(temp), "UTF-8");
+		try {
+			writer.write(snapshot());
+		} finally {
+			writer.close();
+		}
+
+		if (temp.renameTo(file) == false) {
+			temp.delete();
+			throw new IOException("Cannot replace " + file);
+		}
+	}
+
+	private static Series printerSeries(String portName) {
+		Series series = printers.get(portName);
+		if (series == null) {
+			series = new Series();
+			printers.put(portName, series);
+		}
+		return series;
+	}
+
+	private static Series transportSeries(String portName) {
+		Transport transport = PortReadiness.transportOf(portName);
+		Series series = transports.get(transport.name());
+		if (series == null) {
+			series = new Series();
+			transports.put(transport.name(), series);
+		}
+		return series;
+	}
+
+	private static void increment(TreeMap<String, Long> counters, String key) {
+		Long count = counters.get(key);
+		counters.put(key, (count == null) ? 1 : count + 1);
+	}
+
+	private static void appendSeries(StringBuilder json, TreeMap<String, Series> seriesByName) {
+		json.append("{");
+		boolean first = true;
+		for (Map.Entry<String, Series> entry : seriesByName.entrySet()) {
+			if (first == false) {
+				json.append(",");
+			}
+			first = false;
+
+			Series series = entry.getValue();
+			appendString(json, entry.getKey());
+			json.append(":{\"stages\":{");
+
+			boolean firstStage = true;
+			for (Stage stage : Stage.values()) {
+				Histogram histogram = series.stages[stage.ordinal()];
+				if (histogram.getCount() == 0) {
+					continue;
+				}
+				if (firstStage == false) {
+					json.append(",");
+				}
+				firstStage = false;
+
+				json.append("\"").append(stage.name()).append("\":{\"count\":").append(histogram.getCount());
+				json.append(",\"p50\":").append(millis(histogram.percentileNanos(50)));
+				json.append(",\"p95\":").append(millis(histogram.percentileNanos(95)));
+				json.append(",\"p99\":").append(millis(histogram.percentileNanos(99)));
+				json.append(",\"max\":").append(millis(histogram.getMaxNanos()));
+				json.append("}");
+			}
+
+			json.append("},\"bytes\":").append(series.bytes);
+			json.append(",\"bytesPerSecond\":").append((series.writeNanos > 0) ? (long) (series.bytes * 1e9 / series.writeNanos) : 0);
+			json.append(",\"retries\":").append(series.retries);
+			json.append(",\"results\":{");
+
+			boolean firstResult = true;
+			for (Map.Entry<String, Long> result : series.results.entrySet()) {
+				if (firstResult == false) {
+					json.append(",");
+				}
+				firstResult = false;
+				appendString(json, result.getKey());
+				json.append(":").append(result.getValue());
+			}
+			json.append("}}");
+		}
+		json.append("}");
+	}
+
+	private static String millis(long nanos) {
+		return String.valueOf(Math.round(nanos / 1000.0) / 1000.0);
+	}
+
+	private static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if ((c == '"') || (c == '\\')) {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+}
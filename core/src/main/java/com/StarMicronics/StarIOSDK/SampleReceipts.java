@@ -0,0 +1,535 @@
+package com.StarMicronics.StarIOSDK;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+
+public class SampleReceipts {
+	// The sample receipts in Star line mode. The app prints them and the benchmarks build them from the same code; the Japanese and Chinese receipts take their text from the caller, which reads it from the resources of the app
+
+	/**
+	 * Text of the Japanese receipt, from strings.xml of the app
+	 */
+	public static class JapaneseText {
+		public String companyName;
+		public String receiptName;
+		public String year;
+		public String month;
+		public String day;
+		public String hour;
+		public String min;
+		public String date;
+		public String kana;
+		public String personalInfo;
+		public String itemInfo;
+		public String subtotal;
+		public String tax;
+		public String total;
+		public String phone;
+	}
+
+	/**
+	 * Text of the simplified Chinese receipt, from strings.xml of the app
+	 */
+	public static class SimplifiedChineseText {
+		public String companyName;
+		public String receiptName;
+		public String address;
+		public String phone;
+		public String itemInfo;
+		public String total;
+		public String cash;
+		public String change;
+		public String cardNumber;
+		public String cardBalance;
+		public String machineNumber;
+		public String receiptInfo;
+		public String cashier;
+	}
+
+	/**
+	 * Text of the traditional Chinese receipt, from strings.xml of the app
+	 */
+	public static class TraditionalChineseText {
+		public String companyName;
+		public String receiptName;
+		public String period;
+		public String invoiceNumber;
+		public String date;
+		public String randomCode;
+		public String seller;
+		public String itemList;
+		public String itemListNumber;
+		public String salesSchedule;
+		public String date2;
+		public String itemInfo;
+		public String subtotal;
+		public String total;
+		public String cash;
+		public String change;
+		public String invoice;
+		public String date3;
+		public String info;
+		public String infoNumber;
+	}
+
+	/**
+	 * This function builds the receipt of a thermal POS printer with 3 inch (80mm) paper
+	 */
+	public static ArrayList<byte[]> createReceipt3inch() {
+		ArrayList<byte[]> list = new ArrayList<byte[]>();
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 }); // Alignment (center)
+
+		// list.add("[If loaded.. Logo1 goes here]\r\n".getBytes());
+
+		// list.add(new byte[]{0x1b, 0x1c, 0x70, 0x01, 0x00, '\r', '\n'}); //Stored Logo Printing
+
+		list.add("\nStar Clothing Boutique\r\n".getBytes());
+		list.add("123 Star Road\r\nCity, State 12345\r\n\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x00 }); // Alignment
+
+		list.add(new byte[] { 0x1b, 0x44, 0x02, 0x10, 0x22, 0x00 }); // Set horizontal tab
+
+		list.add("Date: MM/DD/YYYY".getBytes());
+
+		list.add(new byte[] { ' ', 0x09, ' ' }); // Moving Horizontal Tab
+
+		list.add("Time:HH:MM PM\r\n------------------------------------------------\r\n\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x45 }); // bold
+
+		list.add("SALE \r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x46 }); // bolf off
+
+		list.add("SKU ".getBytes());
+
+		list.add(new byte[] { 0x09 });
+
+		// Notice that we use a unicode representation because that is
+		// how Java expresses these bytes as double byte unicode
+		// This will TAB to the next horizontal position
+		list.add("  Description   \u0009         Total\r\n".getBytes());
+		list.add("300678566 \u0009  PLAIN T-SHIRT\u0009         10.99\r\n".getBytes());
+		list.add("300692003 \u0009  BLACK DENIM\u0009         29.99\r\n".getBytes());
+		list.add("300651148 \u0009  BLUE DENIM\u0009         29.99\r\n".getBytes());
+		list.add("300642980 \u0009  STRIPED DRESS\u0009         49.99\r\n".getBytes());
+		list.add("300638471 \u0009  BLACK BOOTS\u0009         35.99\r\n\r\n".getBytes());
+		list.add("Subtotal \u0009\u0009        156.95\r\n".getBytes());
+		list.add("Tax \u0009\u0009          0.00\r\n".getBytes());
+		list.add("------------------------------------------------\r\n".getBytes());
+		list.add("Total".getBytes());
+
+		// Character expansion
+		list.add(new byte[] { 0x06, 0x09, 0x1b, 0x69, 0x01, 0x01 });
+
+		list.add("        $156.95\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 }); // Cancel Character Expansion
+
+		list.add("------------------------------------------------\r\n\r\n".getBytes());
+		list.add("Charge\r\n159.95\r\n".getBytes());
+		list.add("Visa XXXX-XXXX-XXXX-0123\r\n\r\n".getBytes());
+		list.add("\u001b\u0034Refunds and Exchanges\u001b\u0035\r\n".getBytes()); // Specify/Cancel White/Black Invert
+		list.add(("Within " + "\u001b\u002d\u0001" + "30 days\u001b\u002d\u0000" + " with receipt\r\n").getBytes()); // Specify/Cancel Underline Printing
+		list.add("And tags attached\r\n\r\n".getBytes());
+
+		// 1D barcode example
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 });
+		list.add(new byte[] { 0x1b, 0x62, 0x06, 0x02, 0x02 });
+
+		list.add(" 12ab34cd56\u001e\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x64, 0x02 }); // Cut
+		list.add(new byte[] { 0x07 }); // Kick cash drawer
+
+		return list;
+	}
+
+	/**
+	 * This function builds the receipt of a thermal POS printer with 4 inch (112mm) paper
+	 */
+	public static ArrayList<byte[]> createReceipt4inch() {
+		ArrayList<byte[]> list = new ArrayList<byte[]>();
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 }); // Alignment (center)
+
+		// list.add("[If loaded.. Logo1 goes here]\r\n".getBytes());
+
+		// list.add(new byte[]{0x1b, 0x1c, 0x70, 0x01, 0x00, '\r', '\n'}); //Stored Logo Printing
+
+		list.add("\nStar Clothing Boutique\r\n".getBytes());
+		list.add("123 Star Road\r\nCity, State 12345\r\n\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x00 }); // Alignment
+
+		list.add(new byte[] { 0x1b, 0x44, 0x02, 0x10, 0x22, 0x00 }); // Set horizontal tab
+
+		list.add("Date: MM/DD/YYYY     \u0009               \u0009       Time:HH:MM PM\r\n".getBytes());
+		list.add("---------------------------------------------------------------------\r\n\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x45 }); // bold
+
+		list.add("SALE \r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x46 }); // bolf off
+
+		list.add("SKU ".getBytes());
+
+		list.add(new byte[] { 0x09 });
+
+		// Notice that we use a unicode representation because that is
+		// how Java expresses these bytes as double byte unicode
+		// This will TAB to the next horizontal position
+		list.add("            Description         \u0009\u0009\u0009                Total\r\n".getBytes());
+		list.add("300678566      \u0009            PLAIN T-SHIRT\u0009                       10.99\r\n".getBytes());
+		list.add("300692003      \u0009            BLACK DENIM\u0009                         29.99\r\n".getBytes());
+		list.add("300651148      \u0009            BLUE DENIM\u0009                          29.99\r\n".getBytes());
+		list.add("300642980      \u0009            STRIPED DRESS\u0009                       49.99\r\n".getBytes());
+		list.add("300638471      \u0009            BLACK BOOTS\u0009                         35.99\r\n\r\n".getBytes());
+		list.add("Subtotal       \u0009                       \u0009                        156.95\r\n".getBytes());
+		list.add("Tax            \u0009                       \u0009                          0.00\r\n".getBytes());
+		list.add("---------------------------------------------------------------------\r\n".getBytes());
+		list.add("Total".getBytes());
+
+		// Character expansion
+		list.add(new byte[] { 0x06, 0x09, 0x1b, 0x69, 0x01, 0x01 });
+
+		list.add("\u0009         $156.95\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 }); // Cancel Character Expansion
+
+		list.add("---------------------------------------------------------------------\r\n\r\n".getBytes());
+		list.add("Charge\r\n159.95\r\n".getBytes());
+		list.add("Visa XXXX-XXXX-XXXX-0123\r\n\r\n".getBytes());
+		list.add("\u001b\u0034Refunds and Exchanges\u001b\u0035\r\n".getBytes()); // Specify/Cancel White/Black Invert
+		list.add(("Within " + "\u001b\u002d\u0001" + "30 days\u001b\u002d\u0000" + " with receipt\r\n").getBytes()); // Specify/Cancel Underline Printing
+		list.add("And tags attached\r\n\r\n".getBytes());
+
+		// 1D barcode example
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 });
+		list.add(new byte[] { 0x1b, 0x62, 0x06, 0x02, 0x02 });
+
+		list.add(" 12ab34cd56\u001e\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x64, 0x02 }); // Cut
+		list.add(new byte[] { 0x07 }); // Kick cash drawer
+
+		return list;
+	}
+
+	/**
+	 * This function builds the receipt of an Impact Dot Matrix printer
+	 */
+	public static ArrayList<byte[]> createReceiptbyDotPrinter() {
+		ArrayList<byte[]> list = new ArrayList<byte[]>();
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 }); // Alignment (center)
+
+		// list.add("[If loaded.. Logo1 goes here]\r\n".getBytes());
+		// list.add(new byte[]{0x1b, 0x1c, 0x70, 0x01, 0x00, '\r', '\n'}); //Stored Logo Printing <ESC> <FC> <p> n m
+
+		list.add("\nStar Clothing Boutique\r\n".getBytes());
+
+		list.add("123 Star Road\r\nCity, State 12345\r\n\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x00 }); // Alignment
+
+		list.add(new byte[] { 0x1b, 0x44, 0x02, 0x10, 0x22, 0x00 }); // Set horizontal tab <ESC> <D> n1 n2 ...nk NUL
+
+		list.add("Date: MM/DD/YYYY".getBytes());
+
+		list.add("             Time:HH:MM PM\r\n".getBytes());
+
+		list.add("------------------------------------------\r\n\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x45 }); // bold
+
+		list.add("SALE \r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x46 }); // bolf off
+
+		list.add("SKU ".getBytes());
+
+		list.add(new byte[] { 0x09 });
+
+		// Notice that we use a unicode representation because that is how Java
+		// expresses these bytes as double byte unicode
+		// This will TAB to the next horizontal position
+		list.add("Description \u0009 Total\r\n".getBytes());
+
+		list.add("300678566 \u0009PLAIN T-SHIRT\u0009  10.99\r\n".getBytes());
+
+		list.add("300692003 \u0009BLACK DENIM\u0009  29.99\r\n".getBytes());
+
+		list.add("300651148 \u0009BLUE DENIM\u0009  29.99\r\n".getBytes());
+
+		list.add("300642980 \u0009STRIPED DRESS\u0009  49.99\r\n".getBytes());
+
+		list.add("300638471 \u0009BLACK BOOTS\u0009  35.99\r\n\r\n".getBytes());
+
+		list.add("Subtotal \u0009\u0009 156.95\r\n".getBytes());
+
+		list.add("Tax \u0009\u0009   0.00\r\n".getBytes());
+
+		list.add("------------------------------------------\r\n".getBytes());
+
+		list.add("Total".getBytes());
+
+		// Character expansion
+		list.add(new byte[] { 0x06, 0x09, 0x1b, 0x69, 0x01, 0x01 });
+
+		list.add("                  $156.95\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 }); // Cancel Character Expansion
+
+		list.add("------------------------------------------\r\n\r\n".getBytes());
+		list.add("Charge\r\n159.95\r\n".getBytes());
+		list.add("Visa XXXX-XXXX-XXXX-0123\r\n\r\n".getBytes());
+
+		// Specify/Cancel White/Black Invert
+		list.add("\u001b\u0034Refunds and Exchanges\u001b\u0035\r\n".getBytes());
+
+		// Specify/Cancel Underline Printing
+		list.add(("Within " + "\u001b\u002d\u0001" + "30 days\u001b\u002d\u0000" + " with receipt\r\n").getBytes());
+
+		// list.add("And tags attached\r\n\r\n".getBytes());
+
+		// 1D barcode example
+		// list.add(new byte[]{0x1b, 0x1d, 0x61, 0x01});
+		// list.add(new byte[]{0x1b, 0x62, 0x06, 0x02, 0x02});
+
+		// list.add(" 12ab34cd56\u001e\r\n".getBytes());
+
+		list.add(new byte[] { 0x1b, 0x64, 0x02 }); // Cut
+		list.add(new byte[] { 0x07 }); // Kick cash drawer
+
+		return list;
+	}
+
+	/**
+	 * This function builds the Japanese receipt of a thermal POS printer with 3 inch (80mm) paper, in Shift-JIS
+	 */
+	public static ArrayList<byte[]> createReceiptJp3inch(JapaneseText text) {
+		ArrayList<byte[]> list = new ArrayList<byte[]>();
+
+		list.add(new byte[] { 0x1b, 0x40 }); // Initialization
+		// list.add(new byte[]{0x1d, 0x57, (byte) 0x80, 0x01});
+		list.add(new byte[] { 0x1b, 0x24, 0x31 });
+		list.add(new byte[] { 0x1b, 0x44, 0x10, 0x00 });
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 });
+
+		list.add(new byte[] { 0x1b, 0x69, 0x02, 0x00 });
+		list.add(new byte[] { 0x1b, 0x45 });
+
+		list.add(LineCommands.createShiftJIS(text.companyName + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x69, 0x01, 0x00 });
+
+		list.add(LineCommands.createShiftJIS(text.receiptName + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 });
+		list.add(new byte[] { 0x1b, 0x46 });
+
+		list.add(LineCommands.createShiftJIS("------------------------------------------------\n"));
+
+		Calendar calendar = Calendar.getInstance();
+		int year = calendar.get(Calendar.YEAR);
+		int month = calendar.get(Calendar.MONTH);
+		int day = calendar.get(Calendar.DAY_OF_MONTH);
+		String YMD = year + text.year + (month + 1) + text.month + day + text.day;
+
+		int hour24 = calendar.get(Calendar.HOUR_OF_DAY);
+		int minute = calendar.get(Calendar.MINUTE);
+		String TIME = hour24 + text.hour + minute + text.min;
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 });
+
+		list.add(LineCommands.createShiftJIS(text.date + YMD + "  " + TIME + "\n"));
+
+		list.add(LineCommands.createShiftJIS("TEL:054-347-XXXX\n\n"));
+
+		list.add(LineCommands.createShiftJIS(text.kana + "\n"));
+
+		list.add(LineCommands.createShiftJIS(text.personalInfo));
+
+		list.add(LineCommands.createShiftJIS(text.itemInfo));
+
+		int sub = 10000 + 3800 + 2000 + 15000 + 5000;
+		NumberFormat exsub = NumberFormat.getNumberInstance();
+
+		int tax = sub * 5 / 100;
+		NumberFormat extax = NumberFormat.getNumberInstance();
+
+		list.add(LineCommands.createShiftJIS(text.subtotal + exsub.format(sub) + "\n\n" + text.tax + extax.format(tax) + "\n\n" + text.total + exsub.format(sub) + "\n\n" + text.phone + "\n\n"));
+
+		list.add(new byte[] { 0x1b, 0x64, 0x33 }); // Cut
+		list.add(new byte[] { 0x07 }); // Kick cash drawer
+
+		return list;
+	}
+
+	/**
+	 * This function builds the simplified Chinese receipt of a thermal POS printer with 3 inch (80mm) paper, in GB2312
+	 */
+	public static ArrayList<byte[]> createReceiptCHS3inch(SimplifiedChineseText text) {
+		ArrayList<byte[]> list = new ArrayList<byte[]>();
+
+		list.add(new byte[] { 0x1b, 0x40 }); // Initialization
+		// list.add(new byte[]{0x1d, 0x57, (byte) 0x80, 0x01});
+		// list.add(new byte[]{0x1b, 0x24, 0x31});
+		list.add(new byte[] { 0x1b, 0x44, 0x10, 0x00 }); // <ESC> <D> n1 n2 nk <NUL>
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 }); // <ESC> <GS> a n
+
+		list.add(new byte[] { 0x1b, 0x69, 0x02, 0x00 }); // <ESC> <i> n1 n2
+		list.add(new byte[] { 0x1b, 0x45 }); // <ESC> <E>
+
+		list.add(LineCommands.createGB2312(text.companyName + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x69, 0x01, 0x00 }); // <ESC> <i> n1 n2
+
+		list.add(LineCommands.createGB2312(text.receiptName + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x69, 0x00, 0x00 }); // <ESC> <i> n1 n2
+		list.add(new byte[] { 0x1b, 0x46 }); // <ESC> <F>
+
+		list.add(LineCommands.createGB2312(text.address));
+
+		list.add(LineCommands.createGB2312(text.phone + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
+
+		list.add(LineCommands.createGB2312(text.itemInfo));
+
+		list.add(LineCommands.createGB2312(text.total + "\n"));
+
+		list.add(LineCommands.createGB2312(text.cash + "\n"));
+
+		list.add(LineCommands.createGB2312(text.change + "\n"));
+
+		list.add(LineCommands.createGB2312(text.cardNumber + "\n"));
+
+		list.add(LineCommands.createGB2312(text.cardBalance + "\n"));
+
+		list.add(LineCommands.createGB2312(text.machineNumber + "\n"));
+
+		list.add(LineCommands.createGB2312(text.receiptInfo + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 }); // <ESC> <GS> a n
+
+		list.add(LineCommands.createGB2312(text.cashier + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
+
+		list.add(new byte[] { 0x1b, 0x64, 0x33 }); // Cut
+		list.add(new byte[] { 0x07 }); // Kick cash drawer
+
+		return list;
+	}
+
+	/**
+	 * This function builds the traditional Chinese receipt of an impact dot matrix printer, in Big5. The line mode receipt of a thermal printer is an ESC/POS page mode invoice with QR codes and stays in the app.
+	 */
+	public static ArrayList<byte[]> createReceiptCHTbyDotPrinter(TraditionalChineseText text) {
+		ArrayList<byte[]> list = new ArrayList<byte[]>();
+
+		list.add(new byte[] { 0x1b, 0x40 }); // Initialization
+		// list.add(new byte[]{0x1d, 0x57, (byte) 0x80, 0x01});
+		// list.add(new byte[]{0x1b, 0x24, 0x31});
+		list.add(new byte[] { 0x1b, 0x44, 0x10, 0x00 }); // <ESC> <D> n1 n2 nk <NUL>
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 }); // <ESC> <GS> a n
+
+		list.add(new byte[] { 0x1b, 0x57, 0x31 }); // <ESC> <W> n
+		list.add(new byte[] { 0x1b, 0x45 }); // <ESC> <E>
+
+		list.add(LineCommands.createBIG5(text.companyName + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x57, 0x30, 0x00 }); // <ESC> <W> n
+		list.add(new byte[] { 0x1b, 0x46 }); // <ESC> <F>
+
+		list.add(LineCommands.createBIG5("------------------------------------------"));
+
+		list.add(new byte[] { 0x1b, 0x57, 0x31 }); // <ESC> <W> n
+
+		list.add(LineCommands.createBIG5(text.receiptName + "\n"));
+
+		list.add(LineCommands.createBIG5(text.period + "\n"));
+
+		list.add(LineCommands.createBIG5(text.invoiceNumber + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x57, 0x30, 0x00 }); // <ESC> <W> n
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
+
+		list.add(LineCommands.createBIG5(text.date + "\n"));
+
+		list.add(LineCommands.createBIG5(text.randomCode + "\n"));
+
+		list.add(LineCommands.createBIG5(text.seller + "\n"));
+
+		// 1D barcode example
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 });
+		list.add(new byte[] { 0x1b, 0x62, 0x35, 0x31, 0x33, 0x20 });
+
+		list.add(("999999999\u001e\r\n").getBytes());
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
+
+		list.add(LineCommands.createBIG5(text.itemList + "\n"));
+
+		list.add(LineCommands.createBIG5(text.itemListNumber + "\n\n\n"));
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x31 }); // <ESC> <GS> a n
+
+		list.add(LineCommands.createBIG5(text.salesSchedule + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x32 }); // <ESC> <GS> a n
+		list.add(LineCommands.createBIG5(text.date2 + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
+
+		list.add(LineCommands.createBIG5(text.itemInfo + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x45 }); // <ESC> <E>
+
+		list.add(LineCommands.createBIG5(text.subtotal + "\n"));
+
+		list.add(LineCommands.createBIG5(text.total + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x46 }); // <ESC> <F>
+
+		list.add(LineCommands.createBIG5("------------------------------------------\n"));
+
+		list.add(LineCommands.createBIG5(text.cash + "\n"));
+
+		list.add(LineCommands.createBIG5(text.change + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x45 }); // <ESC> <E>
+
+		list.add(LineCommands.createBIG5(text.invoice + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x46 }); // <ESC> <F>
+
+		list.add(LineCommands.createBIG5(text.date3 + "\n"));
+
+		// 1D barcode example
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x01 });
+		list.add(new byte[] { 0x1b, 0x62, 0x35, 0x31, 0x33, 0x20 });
+
+		list.add(("999999999\u001e\r\n").getBytes());
+
+		list.add(new byte[] { 0x1b, 0x1d, 0x61, 0x30 }); // <ESC> <GS> a n
+
+		list.add(LineCommands.createBIG5(text.info + "\n"));
+
+		list.add(LineCommands.createBIG5(text.infoNumber + "\n"));
+
+		list.add(new byte[] { 0x1b, 0x64, 0x33 }); // Cut
+		list.add(new byte[] { 0x07 }); // Kick cash drawer
+
+		return list;
+	}
+}
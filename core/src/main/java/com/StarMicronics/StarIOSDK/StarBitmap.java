@@ -1,21 +1,22 @@
 package com.StarMicronics.StarIOSDK;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 
-import android.graphics.Bitmap;
-import android.graphics.Color;
-
 import com.starmicronics.stario.StarIOPort;
 import com.starmicronics.stario.StarIOPortException;
 
 public class StarBitmap {
+	private static final int BLACK = 0xFF000000;
+	private static final int WHITE = 0xFFFFFFFF;
+
 	int[] pixels;
 	int height;
 	int width;
 	boolean dithering;
 	byte[] imageData;
 
-	StarBitmap(Bitmap picture, boolean supportDithering, int maxWidth) {
+	public StarBitmap(PixelSource picture, boolean supportDithering, int maxWidth) {
 		try {
 			if (picture.getWidth() > maxWidth) {
 				ScallImage(picture, maxWidth);
@@ -24,12 +25,7 @@ public class StarBitmap {
 				width = picture.getWidth();
 				pixels = new int[height * width];
 
-				for (int y = 0; y < height; y++) {
-					for (int x = 0; x < width; x++) {
-						pixels[PixelIndex(x, y)] = picture.getPixel(x, y);
-					}
-				}
-				// picture.getPixels(pixels, 0, width, 0, 0, width, height);
+				picture.getPixels(pixels, 0, width, 0, 0, width, height);
 			}
 
 			dithering = supportDithering;
@@ -40,6 +36,26 @@ public class StarBitmap {
 
 	}
 
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	private static int red(int pixel) {
+		return (pixel >> 16) & 0xff;
+	}
+
+	private static int green(int pixel) {
+		return (pixel >> 8) & 0xff;
+	}
+
+	private static int blue(int pixel) {
+		return pixel & 0xff;
+	}
+
 	private int pixelBrightness(int red, int green, int blue) {
 		int level = (red + green + blue) / 3;
 		return level;
@@ -49,18 +65,23 @@ public class StarBitmap {
 		return (y * width) + x;
 	}
 
-	public void ScallImage(Bitmap picture, int newWidth) {
+	public void ScallImage(PixelSource picture, int newWidth) {
 		int w1 = picture.getWidth();
 		int h1 = picture.getHeight();
 		int newHeight = newWidth * h1;
 		newHeight = newHeight / w1;
-		Bitmap bm = Bitmap.createScaledBitmap(picture, newWidth, newHeight, false);
-		height = bm.getHeight();
-		width = bm.getWidth();
+		height = newHeight;
+		width = newWidth;
 		pixels = new int[height * width];
+
+		// Nearest neighbour from the centre of each new pixel, as Bitmap.createScaledBitmap without filtering does
+		int[] row = new int[w1];
 		for (int y = 0; y < height; y++) {
+			int sourceY = Math.min((int) ((y + 0.5) * h1 / newHeight), h1 - 1);
+			picture.getPixels(row, 0, w1, 0, sourceY, w1, 1);
+
 			for (int x = 0; x < width; x++) {
-				pixels[PixelIndex(x, y)] = bm.getPixel(x, y);
+				pixels[PixelIndex(x, y)] = row[Math.min((int) ((x + 0.5) * w1 / newWidth), w1 - 1)];
 			}
 		}
 	}
@@ -70,9 +91,9 @@ public class StarBitmap {
 		 * if(Color.alpha(pixel) == 0) { return 255; }
 		 */
 
-		float red = Color.red(pixel);
-		float green = Color.green(pixel);
-		float blue = Color.blue(pixel);
+		float red = red(pixel);
+		float green = green(pixel);
+		float blue = blue(pixel);
 		float parcial = red + green + blue;
 		parcial = (float) (parcial / 3.0);
 		int gray = (int) (parcial * intensity);
@@ -91,9 +112,9 @@ public class StarBitmap {
 					levelmap[x][y] += 255 - GetGreyLevel(pixel, intensity);
 					if (levelmap[x][y] >= 255) {
 						levelmap[x][y] -= 255;
-						pixels[PixelIndex(x, y)] = Color.BLACK;
+						pixels[PixelIndex(x, y)] = BLACK;
 					} else {
-						pixels[PixelIndex(x, y)] = Color.WHITE;
+						pixels[PixelIndex(x, y)] = WHITE;
 					}
 
 					int sixteenthOfQuantError = levelmap[x][y] / 16;
@@ -118,9 +139,9 @@ public class StarBitmap {
 
 					if (levelmap[x][y] >= 255) {
 						levelmap[x][y] -= 255;
-						pixels[PixelIndex(x, y)] = Color.BLACK;
+						pixels[PixelIndex(x, y)] = BLACK;
 					} else {
-						pixels[PixelIndex(x, y)] = Color.WHITE;
+						pixels[PixelIndex(x, y)] = WHITE;
 					}
 
 					int sixteenthOfQuantError = levelmap[x][y] / 16;
@@ -142,14 +163,60 @@ public class StarBitmap {
 		}
 	}
 
+	public interface BandSink {
+		/**
+		 * Called with the raster commands of each finished band, in print order
+		 */
+		void onBand(byte[] band) throws InterruptedException;
+	}
+
 	public byte[] getImageRasterDataForPrinting(boolean compressionEnable) {
 		if (imageData != null) {
 			return imageData;
 		}
 
+		final ArrayList<byte[]> list = new ArrayList<byte[]>();
+
+		try {
+			encodeRasterBands(compressionEnable, height, new BandSink() {
+				public void onBand(byte[] band) {
+					list.add(band);
+				}
+			});
+		} catch (InterruptedException e) {
+			// The list sink never blocks
+		}
+
+		int dataLength = 0;
+		for (int i = 0; i < list.size(); i++) {
+			dataLength += list.get(i).length;
+		}
+
+		int distPosition = 0;
+		imageData = new byte[dataLength];
+		for (int i = 0; i < list.size(); i++) {
+			System.arraycopy(list.get(i), 0, imageData, distPosition, list.get(i).length);
+			distPosition += list.get(i).length;
+		}
+
+		return imageData;
+	}
+
+	/**
+	 * This function converts the image to Star raster commands and hands them to the sink band by band, so that the first rows can be sent to the printer while the rest of the image is still being converted. Joining the bands gives the same data as getImageRasterDataForPrinting.
+	 *
+	 * @param compressionEnable
+	 *     Trim trailing blank bytes of each row and send blank rows as a feed
+	 * @param rowsPerBand
+	 *     Number of image rows in each band
+	 * @param sink
+	 *     Receives the finished bands. A sink that blocks slows the conversion down to its pace.
+	 */
+	public void encodeRasterBands(boolean compressionEnable, int rowsPerBand, BandSink sink) throws InterruptedException {
 		// Converts the image to a Monochrome image using a Steinbert Dithering algorithm. This call can be removed but it that will also remove any dithering.
 		if (dithering == true) {
 			ConvertToMonochromeSteinbertDithering((float) 1.5);
+			dithering = false; // The pixels are monochrome from now on
 		}
 
 		int mWidth = width / 8;
@@ -157,8 +224,7 @@ public class StarBitmap {
 			mWidth++;
 		}
 
-		ArrayList<byte[]> list = new ArrayList<byte[]>();
-		int dataLength = 0;
+		ByteArrayOutputStream band = new ByteArrayOutputStream();
 		byte[] constructedBytes = new byte[3 + mWidth];
 
 		constructedBytes[0] = 'b';
@@ -178,7 +244,7 @@ public class StarBitmap {
 					if (pos < width) {
 						pixel = pixels[PixelIndex(pos, y)];
 
-						if (pixelBrightness(Color.red(pixel), Color.green(pixel), Color.blue(pixel)) < 127) {
+						if (pixelBrightness(red(pixel), green(pixel), blue(pixel)) < 127) {
 							constructedByte |= 0x01;
 						}
 					}
@@ -203,48 +269,39 @@ public class StarBitmap {
 			}
 
 			if (work != 0) {
-				while (blank >= 1000) {
-					list.add(new byte[]{0x1b, '*', 'r', 'Y', '1', '0', '0', '0', 0x00});
-					dataLength += 9;
-					blank -= 1000;
-				}
-
-				if (blank != 0) {
-					list.add(new byte[]{ 0x1b, '*', 'r', 'Y', (byte)('0' + blank / 100), (byte)('0' + (blank % 100) / 10), (byte)('0' + blank % 10), 0x00 });
-					dataLength += 8;
-				}
-
+				writeBlankFeed(band, blank);
 				blank = 0;
 
 				constructedBytes[1] = (byte) (work % 256);
 				constructedBytes[2] = (byte) (work / 256);
 
-				list.add(constructedBytes.clone());
-				dataLength += 3 + mWidth;
+				band.write(constructedBytes, 0, 3 + mWidth);
 			} else {
 				blank++;
 			}
+
+			if ((((y + 1) % rowsPerBand) == 0) && (band.size() != 0)) {
+				sink.onBand(band.toByteArray());
+				band.reset();
+			}
 		}
 
+		writeBlankFeed(band, blank);
+
+		if (band.size() != 0) {
+			sink.onBand(band.toByteArray());
+		}
+	}
+
+	private static void writeBlankFeed(ByteArrayOutputStream band, int blank) {
 		while (blank >= 1000) {
-			list.add(new byte[]{0x1b, '*', 'r', 'Y', '1', '0', '0', '0', 0x00});
-			dataLength += 9;
+			band.write(new byte[]{0x1b, '*', 'r', 'Y', '1', '0', '0', '0', 0x00}, 0, 9);
 			blank -= 1000;
 		}
 
 		if (blank != 0) {
-			list.add(new byte[]{ 0x1b, '*', 'r', 'Y', (byte)('0' + blank / 100), (byte)('0' + (blank % 100) / 10), (byte)('0' + blank % 10), 0x00 });
-			dataLength += 8;
-		}
-
-		int distPosition = 0;
-		imageData = new byte[dataLength];
-		for (int i = 0; i < list.size(); i++) {
-			System.arraycopy(list.get(i), 0, imageData, distPosition, list.get(i).length);
-			distPosition += list.get(i).length;
+			band.write(new byte[]{ 0x1b, '*', 'r', 'Y', (byte)('0' + blank / 100), (byte)('0' + (blank % 100) / 10), (byte)('0' + blank % 10), 0x00 }, 0, 8);
 		}
-
-		return imageData;
 	}
 
 	public byte[] getImageESCPOSRasterDataForPrinting() {
@@ -300,10 +357,10 @@ public class StarBitmap {
 					if (widthPixel < width) {
 						pixel = pixels[PixelIndex(widthPixel, y)];
 					} else {
-						pixel = Color.WHITE;
+						pixel = WHITE;
 					}
 
-					if (pixelBrightness(Color.red(pixel), Color.green(pixel), Color.blue(pixel)) < 127) {
+					if (pixelBrightness(red(pixel), green(pixel), blue(pixel)) < 127) {
 						constructedByte = (byte) (constructedByte | 1);
 					}
 				}
@@ -378,7 +435,7 @@ public class StarBitmap {
 
 							int pixel = pixels[PixelIndex(x * 8 + xbit, totalRowCount)];
 
-							if (pixelBrightness(Color.red(pixel), Color.green(pixel), Color.blue(pixel)) < 127) {
+							if (pixelBrightness(red(pixel), green(pixel), blue(pixel)) < 127) {
 								work |= 0x01;
 							}
 						}
@@ -483,9 +540,9 @@ public class StarBitmap {
 					if (j + (heightLocation * 8) < height) {
 						pixel = pixels[PixelIndex(w, j + (heightLocation * 8))];
 					} else {
-						pixel = Color.WHITE;
+						pixel = WHITE;
 					}
-					if (pixelBrightness(Color.red(pixel), Color.green(pixel), Color.blue(pixel)) < 127) {
+					if (pixelBrightness(red(pixel), green(pixel), blue(pixel)) < 127) {
 						nextByte = (byte) (nextByte | (1 << (7 - bitLocation)));
 					}
 					bitLocation++;
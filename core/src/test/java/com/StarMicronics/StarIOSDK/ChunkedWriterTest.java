@@ -0,0 +1,96 @@
+package com.StarMicronics.StarIOSDK;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.StarMicronics.StarIOSDK.PortReadiness.Transport;
+import com.starmicronics.stario.StarIOPort;
+import com.starmicronics.stario.StarPrinterStatus;
+
+public class ChunkedWriterTest {
+	// Writes to a port that accepts every byte at once, so any time spent is the pacing of the writer
+
+	@Test
+	public void bluetoothDrainIsSlowerThanTheLink() {
+		ChunkedWriter.TransportProfile profile = ChunkedWriter.getProfile(Transport.BT);
+
+		assertTrue(profile.drainBytesPerSecond < profile.linkBytesPerSecond);
+	}
+
+	@Test
+	public void bluetoothWritesArePaced() throws Exception {
+		ChunkedWriter.TransportProfile profile = ChunkedWriter.getProfile(Transport.BT);
+		byte[] data = new byte[profile.bufferBytes * 3];
+
+		long start = System.currentTimeMillis();
+		ChunkedWriter writer = new ChunkedWriter(new InstantPort(), "BT:Star Micronics");
+		writer.write(data);
+		long elapsedMillis = System.currentTimeMillis() - start;
+
+		// Everything beyond the receive buffer has to wait for the printer
+		long pacedMillis = (long) (data.length - profile.bufferBytes) * 1000 / profile.drainBytesPerSecond;
+		assertTrue("took " + elapsedMillis + " ms", elapsedMillis >= pacedMillis * 9 / 10);
+
+		// The buffer is full when the write returns
+		assertTrue(writer.getDrainMillis() > 0);
+	}
+
+	@Test
+	public void tcpWritesAreNotPaced() throws Exception {
+		byte[] data = new byte[65536];
+
+		long start = System.currentTimeMillis();
+		ChunkedWriter writer = new ChunkedWriter(new InstantPort(), "TCP:192.168.192.168");
+		writer.write(data);
+
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		assertTrue(writer.getDrainMillis() == 0);
+	}
+
+	private static class InstantPort extends StarIOPort {
+		@Override
+		public void writePort(byte[] data, int offset, int length) {
+		}
+
+		@Override
+		public int readPort(byte[] data, int offset, int length) {
+			return 0;
+		}
+
+		@Override
+		protected void closeNative() {
+		}
+
+		@Override
+		public StarPrinterStatus retreiveStatus() {
+			return new StarPrinterStatus();
+		}
+
+		@Override
+		public StarPrinterStatus beginCheckedBlock() {
+			return new StarPrinterStatus();
+		}
+
+		@Override
+		public StarPrinterStatus endCheckedBlock() {
+			return new StarPrinterStatus();
+		}
+
+		@Override
+		public Map<String, String> getFirmwareInformation() {
+			return null;
+		}
+
+		@Override
+		public Map<String, Boolean> getDipSwitchInformation() {
+			return null;
+		}
+
+		@Override
+		public void setEndCheckedBlockTimeoutMillis(int millis) {
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.StarMicronics.StarIOSDK;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.StarMicronics.StarIOSDK.DecodedPage.Element;
+import com.StarMicronics.StarIOSDK.DecodedPage.ElementType;
+
+public class CommandDecoderTest {
+	// Decodes the sample receipts of the app and checks the character expansion of their lines
+
+	private static final int PAPER_WIDTH = 576;
+
+	@Test
+	public void expansionAcceptsDigits() {
+		byte[] data = { 0x1b, 0x57, '1', 'A', 'B', '\n', 0x1b, 0x57, '0', 'C', '\n' };
+
+		List<Element> lines = textLines(CommandDecoder.decode(data, PAPER_WIDTH, CommandDecoder.Dialect.StarLine));
+
+		assertEquals(2, lines.size());
+		assertEquals(2, lines.get(0).getScaleX());
+		assertEquals(1, lines.get(1).getScaleX());
+	}
+
+	@Test
+	public void expansionAcceptsValues() {
+		byte[] data = { 0x1b, 0x69, 0x02, 0x01, 'A', '\n', 0x1b, 0x69, 0x00, 0x00, 'B', '\n' };
+
+		List<Element> lines = textLines(CommandDecoder.decode(data, PAPER_WIDTH, CommandDecoder.Dialect.StarLine));
+
+		assertEquals(2, lines.size());
+		assertEquals(2, lines.get(0).getScaleX());
+		assertEquals(3, lines.get(0).getScaleY());
+		assertEquals(1, lines.get(1).getScaleX());
+		assertEquals(1, lines.get(1).getScaleY());
+	}
+
+	@Test
+	public void japaneseReceipt() {
+		SampleReceipts.JapaneseText text = new SampleReceipts.JapaneseText();
+		text.companyName = "スター電機";
+		text.receiptName = "修理報告書　兼領収書";
+		text.year = "年";
+		text.month = "月";
+		text.day = "日";
+		text.hour = "時";
+		text.min = "分";
+		text.date = "発行日時:";
+		text.kana = "           ｲｹﾆｼ   ｹｲｺ   ｻﾏ";
+		text.personalInfo = "　お名前：池西　圭子　様\n\n";
+		text.itemInfo = "品名／型名　          数量　　 金額　   備考\n";
+		text.subtotal = "\n\u0009                小計\u0009   \\ ";
+		text.tax = "\u0009                内税\u0009   \\  ";
+		text.total = "\u0009                合計\u0009   \\ ";
+		text.phone = "　お問合わせ番号　　12345‐67890";
+
+		List<Element> lines = textLines(CommandDecoder.decode(SampleReceipts.createReceiptJp3inch(text), PAPER_WIDTH, CommandDecoder.Dialect.StarLine));
+
+		// The company name three times as high, the title twice as high, the rest normal
+		assertEquals(1, lines.get(0).getScaleX());
+		assertEquals(3, lines.get(0).getScaleY());
+		assertEquals(1, lines.get(1).getScaleX());
+		assertEquals(2, lines.get(1).getScaleY());
+		for (int i = 2; i < lines.size(); i++) {
+			assertEquals(lines.get(i).toString(), 1, lines.get(i).getScaleX());
+			assertEquals(lines.get(i).toString(), 1, lines.get(i).getScaleY());
+		}
+	}
+
+	@Test
+	public void traditionalChineseReceipt() {
+		SampleReceipts.TraditionalChineseText text = new SampleReceipts.TraditionalChineseText();
+		text.companyName = "Star Micronics";
+		text.receiptName = "電子發票證明聯";
+		text.period = "103年01-02月";
+		text.invoiceNumber = "EV-99999999";
+		text.date = "2014/01/15 13:00";
+		text.randomCode = "隨機碼 : 9999    總計 : 999";
+		text.seller = "賣方 : 99999999";
+		text.itemList = "商品退換請持本聯及銷貨明細表。";
+		text.itemListNumber = "9999999-9999999 999999-999999 9999";
+		text.salesSchedule = "銷貨明細表 　(銷售)";
+		text.date2 = "2014-01-15 13:00:02";
+		text.itemInfo = "\n烏龍袋茶2g20入  \u0009           55 x2 110TX";
+		text.subtotal = "      小　 計 :\u0009             330";
+		text.total = "      總   計 :\u0009             330";
+		text.cash = "現 金\u0009             400";
+		text.change = "      找　 零 :\u0009             70";
+		text.invoice = " 101 發票金額 :\u0009             330";
+		text.date3 = "2014-01-15 13:00";
+		text.info = "商品退換、贈品及停車兌換請持本聯。";
+		text.infoNumber = "9999999-9999999 999999-999999 9999";
+
+		List<Element> lines = textLines(CommandDecoder.decode(SampleReceipts.createReceiptCHTbyDotPrinter(text), PAPER_WIDTH, CommandDecoder.Dialect.StarLine));
+
+		// <ESC> W '1' doubles the width of the heading, <ESC> W '0' cancels it before the date
+		assertEquals("Star Micronics", lines.get(0).getText());
+		assertEquals(2, lines.get(0).getScaleX());
+		assertEquals("EV-99999999", lines.get(3).getText());
+		assertEquals(2, lines.get(3).getScaleX());
+		for (int i = 4; i < lines.size(); i++) {
+			assertEquals(lines.get(i).toString(), 1, lines.get(i).getScaleX());
+			assertEquals(lines.get(i).toString(), 1, lines.get(i).getScaleY());
+		}
+	}
+
+	private static List<Element> textLines(DecodedPage page) {
+		ArrayList<Element> lines = new ArrayList<Element>();
+		for (Element element : page.getElements()) {
+			if (element.getType() == ElementType.Text) {
+				lines.add(element);
+			}
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,610 @@
+package com.StarMicronics.StarIOSDK.emulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+class PrintEngine implements Runnable {
+	// Parses the command stream of the emulated printer and takes as long to print it as the print speed allows
+
+	private static final double DOTS_PER_MM = 8; // 203 dpi
+	private static final double LINE_FEED_MM = 4.23; // 1/6 inch
+	private static final double PAGE_END_FEED_MM = 15;
+	private static final long CUT_MILLIS = 500;
+
+	// The engine may run this far ahead of the paper, so a long feed is still interrupted by a fault
+	private static final long STEP_NANOS = 10 * 1000 * 1000L;
+
+	private static final byte ETB = 0x17;
+	private static final byte LF = 0x0a;
+	private static final byte ESC = 0x1b;
+	private static final byte FS = 0x1c;
+	private static final byte GS = 0x1d;
+	private static final byte RS = 0x1e;
+	private static final byte ETX = 0x03;
+
+	private final ReceiveBuffer mBuffer;
+	private final PrinterEmulator.Dialect mDialect;
+	private final double mSpeedMmPerSecond;
+
+	private final byte[] mChunk = new byte[256];
+	private int mChunkLength = 0;
+	private int mChunkPosition = 0;
+
+	// Used on the engine thread only
+	private boolean mRasterMode = false;
+	private double mSpeedFactor = 1.0;
+	private boolean mCutAtEndOfDocument = false;
+	private boolean mFeedAtEndOfDocument = false;
+	private long mBusyUntilNanos = System.nanoTime();
+
+	// Status, guarded by this
+	private boolean mCoverOpen = false;
+	private boolean mPaperEmpty = false;
+	private int mEtbCounter = 0;
+	private OutputStream mStatusOut = null;
+
+	// Statistics, guarded by this
+	private long mBytes = 0;
+	private long mDroppedBytes = 0;
+	private long mRasterRows = 0;
+	private long mLines = 0;
+	private long mCuts = 0;
+	private long mEtbs = 0;
+	private double mPrintedMm = 0;
+
+	/**
+	 * @param bufferSize
+	 *     Size of the receive buffer in bytes
+	 * @param speedMmPerSecond
+	 *     Print speed at full speed, 0 prints without delay
+	 * @param dialect
+	 *     Command set of the printer
+	 */
+	PrintEngine(int bufferSize, double speedMmPerSecond, PrinterEmulator.Dialect dialect) {
+		mBuffer = new ReceiveBuffer(bufferSize);
+		mSpeedMmPerSecond = speedMmPerSecond;
+		mDialect = dialect;
+	}
+
+	public void run() {
+		while (true) {
+			try {
+				if (mDialect == PrinterEmulator.Dialect.EscPos) {
+					parseEscPos();
+				} else {
+					parseStarLine();
+				}
+			} catch (ReceiveBuffer.ClearedException e) {
+				// The printer went offline, the data received before is not printed
+				mRasterMode = false;
+				mBusyUntilNanos = System.nanoTime();
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * This function reads the data of a connection into the receive buffer until the host closes it. While the printer is offline the data is dropped, as the host sends it again from the last confirmed checkpoint.
+	 */
+	void receive(InputStream in) throws IOException, InterruptedException {
+		byte[] data = new byte[4096];
+
+		while (true) {
+			int space = (isOffline() == true) ? data.length : mBuffer.waitForSpace();
+
+			int read = in.read(data, 0, Math.min(space, data.length));
+			if (read < 0) {
+				return;
+			}
+
+			synchronized (this) {
+				if (isOffline() == true) {
+					mDroppedBytes += read;
+					continue;
+				}
+			}
+			mBuffer.put(data, 0, read);
+		}
+	}
+
+	/**
+	 * This function sets the stream that automatic status is sent to and sends the current status
+	 *
+	 * @param out
+	 *     Stream of the connection, or null when the host has closed it
+	 */
+	synchronized void setStatusStream(OutputStream out) {
+		mStatusOut = out;
+		sendStatus();
+	}
+
+	synchronized void setCoverOpen(boolean coverOpen) {
+		if (mCoverOpen == coverOpen) {
+			return;
+		}
+
+		mCoverOpen = coverOpen;
+		if (coverOpen == true) {
+			mBuffer.clear();
+		}
+		sendStatus();
+	}
+
+	synchronized void setPaperEmpty(boolean paperEmpty) {
+		if (mPaperEmpty == paperEmpty) {
+			return;
+		}
+
+		mPaperEmpty = paperEmpty;
+		if (paperEmpty == true) {
+			mBuffer.clear();
+		}
+		sendStatus();
+	}
+
+	synchronized boolean isOffline() {
+		return (mCoverOpen == true) || (mPaperEmpty == true);
+	}
+
+	synchronized String getStatistics() {
+		return String.format("%d bytes received, %d dropped, %d in buffer, %d raster rows, %d lines, %d cuts, %d ETBs, %.1f mm printed",
+				mBytes, mDroppedBytes, mBuffer.getCount(), mRasterRows, mLines, mCuts, mEtbs, mPrintedMm);
+	}
+
+	synchronized long getBytes() {
+		return mBytes;
+	}
+
+	/**
+	 * This function builds the automatic status. The 9 byte form carries the ETB counter, which StarIO reads for checked blocks.
+	 */
+	private byte[] buildStatus() {
+		byte[] status = new byte[9];
+
+		status[0] = 0x23; // Header: 9 bytes
+		status[1] = 0x00;
+		status[2] = (byte) ((isOffline() ? 0x08 : 0) | (mCoverOpen ? 0x20 : 0));
+		status[5] = (byte) (mPaperEmpty ? 0x08 : 0);
+
+		// The 5 bits of the counter are stored in bits 1, 2, 3, 5 and 6
+		status[7] = (byte) (((mEtbCounter & 0x18) << 2) | ((mEtbCounter & 0x07) << 1));
+
+		return status;
+	}
+
+	private synchronized void sendStatus() {
+		if (mStatusOut == null) {
+			return;
+		}
+
+		try {
+			mStatusOut.write(buildStatus());
+			mStatusOut.flush();
+		} catch (IOException e) {
+			mStatusOut = null;
+		}
+	}
+
+	private void parseStarLine() throws InterruptedException, ReceiveBuffer.ClearedException {
+		int b = next();
+
+		if (b == ETB) {
+			etb();
+		} else if (mRasterMode == true) {
+			parseStarRaster(b);
+		} else if (b == LF) {
+			lines(1);
+		} else if (b == ESC) {
+			parseStarEscape(next());
+		}
+		// Other bytes are characters or commands without parameters
+	}
+
+	private void parseStarRaster(int b) throws InterruptedException, ReceiveBuffer.ClearedException {
+		if ((b == 'b') || (b == 'k')) {
+			// Raster row 'b' n1 n2 d1 ... dk
+			int length = next() + next() * 256;
+			skip(length);
+			rasterRows(1);
+		} else if ((b == ESC) && (next() == '*') && (next() == 'r')) {
+			parseRasterCommand();
+		}
+	}
+
+	private void parseRasterCommand() throws InterruptedException, ReceiveBuffer.ClearedException {
+		int command = next();
+
+		if (command == 'A') {
+			mRasterMode = true;
+			return;
+		} else if (command == 'B') {
+			mRasterMode = false;
+			if (mFeedAtEndOfDocument == true) {
+				feed(PAGE_END_FEED_MM);
+			}
+			if (mCutAtEndOfDocument == true) {
+				cut();
+			}
+			return;
+		} else if (command == 'C') {
+			return;
+		}
+
+		// The other raster commands end with NUL
+		StringBuilder parameter = new StringBuilder();
+		for (int b = next(); b != 0x00; b = next()) {
+			parameter.append((char) b);
+		}
+
+		try {
+			if (command == 'Y') {
+				rasterRows(Integer.parseInt(parameter.toString()));
+			} else if (command == 'Q') {
+				int speed = Integer.parseInt(parameter.toString());
+				mSpeedFactor = (speed == 2) ? (50.0 / 150) : ((speed == 1) ? (100.0 / 150) : 1.0);
+			} else if (command == 'E') {
+				int mode = Integer.parseInt(parameter.toString());
+				mCutAtEndOfDocument = (mode == 8) || (mode == 9) || (mode == 12) || (mode == 13);
+				mFeedAtEndOfDocument = (mode == 2) || (mode == 3) || (mode == 9) || (mode == 13) || (mode == 37);
+			}
+		} catch (NumberFormatException e) {
+			// Not a command that changes how long the printing takes
+		}
+	}
+
+	private void parseStarEscape(int command) throws InterruptedException, ReceiveBuffer.ClearedException {
+		switch (command) {
+		case '*':
+			if (next() == 'r') {
+				parseRasterCommand();
+			}
+			break;
+		case GS:
+			parseStarEscapeGs(next());
+			break;
+		case RS:
+			// <ESC> <RS> c n
+			skip(2);
+			break;
+		case FS:
+			// Logo <ESC> <FS> p n m
+			if (next() == 'p') {
+				skip(2);
+			} else {
+				skip(1);
+			}
+			break;
+		case 'd':
+			// Cut <ESC> d n
+			skip(1);
+			cut();
+			break;
+		case 'a':
+			// Feed n lines <ESC> a n
+			lines(next());
+			break;
+		case 'J':
+			// Feed n/4 mm <ESC> J n
+			feed(next() / 4.0);
+			break;
+		case 'I':
+			// Feed n/8 mm <ESC> I n
+			feed(next() / 8.0);
+			break;
+		case 'K':
+		case 'L':
+			// Bit image <ESC> K n1 n2 d1 ... dk, 24 dots high
+			skip(next() + next() * 256);
+			rasterRows(24);
+			break;
+		case 'b':
+			// Barcode <ESC> b n1 n2 n3 n4 d1 ... dk <RS>
+			skip(4);
+			while (next() != RS) {
+			}
+			feed(10);
+			break;
+		case 'D':
+			// Horizontal tabs <ESC> D n1 ... nk NUL
+			while (next() != 0x00) {
+			}
+			break;
+		case 'i':
+		case 0x07:
+			// <ESC> i n1 n2, <ESC> <BEL> n1 n2
+			skip(2);
+			break;
+		case '@':
+		case 'E':
+		case 'F':
+		case '4':
+		case '5':
+		case 'M':
+		case 'P':
+		case ':':
+		case '0':
+		case '2':
+		case '6':
+		case '7':
+		case '8':
+			break;
+		default:
+			// Most of the other commands have one parameter
+			skip(1);
+			break;
+		}
+	}
+
+	private void parseStarEscapeGs(int command) throws InterruptedException, ReceiveBuffer.ClearedException {
+		switch (command) {
+		case ETX:
+			// Checked block <ESC> <GS> <ETX> s n1 n2
+			int s = next();
+			skip(2);
+			if (s == 1) {
+				etb();
+			} else if (s == 4) {
+				clearEtbCounter();
+			}
+			break;
+		case 'x':
+		case 'y':
+			// PDF417 and QR code
+			int function = next();
+			if (function == 'S') {
+				skip((next() == '0') && (command == 'x') ? 3 : 1);
+			} else if (function == 'D') {
+				if (command == 'y') {
+					skip(2);
+				}
+				skip(next() + next() * 256);
+			} else if (function == 'P') {
+				feed(20);
+			}
+			break;
+		default:
+			// <ESC> <GS> a n, <ESC> <GS> t n and the other commands have one parameter
+			skip(1);
+			break;
+		}
+	}
+
+	private void parseEscPos() throws InterruptedException, ReceiveBuffer.ClearedException {
+		int b = next();
+
+		if (b == ETB) {
+			etb();
+		} else if (b == LF) {
+			lines(1);
+		} else if (b == ESC) {
+			parseEscPosEscape(next());
+		} else if (b == GS) {
+			parseEscPosGs(next());
+		}
+	}
+
+	private void parseEscPosEscape(int command) throws InterruptedException, ReceiveBuffer.ClearedException {
+		switch (command) {
+		case GS:
+			if (next() == ETX) {
+				int s = next();
+				skip(2);
+				if (s == 1) {
+					etb();
+				} else if (s == 4) {
+					clearEtbCounter();
+				}
+			}
+			break;
+		case 'X':
+			if (next() == '4') {
+				// Bit image band <ESC> X 4 x y d1 ... d(x * y)
+				int width = next();
+				int height = next();
+				skip(width * height);
+				rasterRows(height);
+			} else {
+				skip(1);
+			}
+			break;
+		case 'W':
+			// Page mode area <ESC> W xL xH yL yH dxL dxH dyL dyH
+			skip(8);
+			break;
+		case 'J':
+			// Feed n dots <ESC> J n
+			feed(next() / DOTS_PER_MM);
+			break;
+		case 'd':
+			// Feed n lines <ESC> d n
+			lines(next());
+			break;
+		case '$':
+			skip(2);
+			break;
+		case 'D':
+			while (next() != 0x00) {
+			}
+			break;
+		case '@':
+		case 'L':
+		case 'S':
+		case '2':
+		case 'i':
+		case 'm':
+			break;
+		default:
+			skip(1);
+			break;
+		}
+	}
+
+	private void parseEscPosGs(int command) throws InterruptedException, ReceiveBuffer.ClearedException {
+		switch (command) {
+		case '8':
+			if (next() == 'L') {
+				// Raster image <GS> 8 L p1 p2 p3 p4 m fn a bx by c xL xH yL yH d1 ... dk
+				skip(4 + 6);
+				int width = next() + next() * 256;
+				int height = next() + next() * 256;
+				skip((width + 7) / 8 * height);
+				rasterRows(height);
+			}
+			break;
+		case 'v':
+			// Raster image <GS> v 0 m xL xH yL yH d1 ... dk
+			skip(2);
+			int width = next() + next() * 256;
+			int height = next() + next() * 256;
+			skip(width * height);
+			rasterRows(height);
+			break;
+		case '(':
+			// <GS> ( fn pL pH d1 ... dk
+			skip(1);
+			skip(next() + next() * 256);
+			break;
+		case 'k':
+			// Barcode <GS> k m d1 ... NUL or <GS> k m n d1 ... dn
+			if (next() <= 6) {
+				while (next() != 0x00) {
+				}
+			} else {
+				skip(next());
+			}
+			feed(10);
+			break;
+		case 'V':
+			// Cut <GS> V m [n]
+			if (next() >= 65) {
+				skip(1);
+			}
+			cut();
+			break;
+		case 'L':
+		case 'W':
+		case 'P':
+			skip(2);
+			break;
+		default:
+			skip(1);
+			break;
+		}
+	}
+
+	private int next() throws InterruptedException, ReceiveBuffer.ClearedException {
+		if ((mChunkPosition == mChunkLength) || (mBuffer.isCleared() == true)) {
+			mChunkPosition = 0;
+			mChunkLength = 0;
+			mChunkLength = mBuffer.take(mChunk);
+
+			synchronized (this) {
+				mBytes += mChunkLength;
+			}
+		}
+
+		return mChunk[mChunkPosition++] & 0xff;
+	}
+
+	private void skip(int length) throws InterruptedException, ReceiveBuffer.ClearedException {
+		while (length > 0) {
+			int available = Math.min(length, mChunkLength - mChunkPosition);
+			if ((available == 0) || (mBuffer.isCleared() == true)) {
+				next();
+				length--;
+			} else {
+				mChunkPosition += available;
+				length -= available;
+			}
+		}
+	}
+
+	private void etb() throws InterruptedException {
+		// The counter counts the ETB when the data before it has been printed
+		settle(mBusyUntilNanos);
+
+		synchronized (this) {
+			if (isOffline() == true) {
+				return;
+			}
+
+			mEtbCounter = (mEtbCounter + 1) % 32;
+			mEtbs++;
+			sendStatus();
+		}
+	}
+
+	private void clearEtbCounter() throws InterruptedException {
+		settle(mBusyUntilNanos);
+
+		// No status is sent, StarIO still has to see the counter of the ETB before the clear
+		synchronized (this) {
+			mEtbCounter = 0;
+		}
+	}
+
+	private void rasterRows(int rows) throws InterruptedException {
+		synchronized (this) {
+			mRasterRows += rows;
+		}
+		feed(rows / DOTS_PER_MM);
+	}
+
+	private void lines(int lines) throws InterruptedException {
+		synchronized (this) {
+			mLines += lines;
+		}
+		feed(lines * LINE_FEED_MM);
+	}
+
+	private void cut() throws InterruptedException {
+		synchronized (this) {
+			mCuts++;
+		}
+		busy(CUT_MILLIS * 1000 * 1000);
+	}
+
+	private void feed(double mm) throws InterruptedException {
+		synchronized (this) {
+			mPrintedMm += mm;
+		}
+
+		if (mSpeedMmPerSecond > 0) {
+			busy((long) (mm * 1000 * 1000 * 1000 / (mSpeedMmPerSecond * mSpeedFactor)));
+		}
+	}
+
+	private void busy(long nanos) throws InterruptedException {
+		long now = System.nanoTime();
+
+		// An idle printer does not bank time
+		if (mBusyUntilNanos - now < 0) {
+			mBusyUntilNanos = now;
+		}
+		mBusyUntilNanos += nanos;
+
+		settle(mBusyUntilNanos - STEP_NANOS);
+	}
+
+	/**
+	 * This function waits until the paper has reached the given time. It returns early when the printer goes offline.
+	 */
+	private void settle(long untilNanos) throws InterruptedException {
+		while (true) {
+			long remaining = untilNanos - System.nanoTime();
+			if (remaining <= 0) {
+				return;
+			}
+
+			if (isOffline() == true) {
+				mBusyUntilNanos = System.nanoTime();
+				return;
+			}
+
+			long step = Math.min(remaining, STEP_NANOS);
+			Thread.sleep(step / 1000000, (int) (step % 1000000));
+		}
+	}
+}
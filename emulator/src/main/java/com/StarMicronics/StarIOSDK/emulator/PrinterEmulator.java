@@ -0,0 +1,283 @@
+package com.StarMicronics.StarIOSDK.emulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
+public class PrinterEmulator {
+	// Emulates a Star LAN printer on a TCP port, so that the TCP: port path of the app can be driven without a printer
+
+	public enum Dialect {
+		StarLine, EscPos
+	};
+
+	private static final int DEFAULT_PORT = 9100;
+	private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+	private static final double DEFAULT_SPEED_MM_PER_SECOND = 150;
+
+	// StarIO asks UDP port 22222 for the name of the LAN interface before it connects
+	private static final int DISCOVERY_PORT = 22222;
+	private static final int NIC_NAME_OFFSET = 36;
+	private static final String NIC_NAME = "IFBD-HE05/06";
+
+	private final PrintEngine mEngine;
+	private final ServerSocket mServerSocket;
+	private DatagramSocket mDiscoverySocket = null;
+	private Thread mEngineThread;
+	private volatile boolean mVerbose = true;
+
+	/**
+	 * @param port
+	 *     TCP port to listen on, 0 selects a free port
+	 * @param bufferSize
+	 *     Size of the receive buffer in bytes
+	 * @param speedMmPerSecond
+	 *     Print speed at full speed, 0 prints without delay
+	 * @param dialect
+	 *     Command set of the printer: StarLine for Star line mode and raster, EscPos for the portable printers
+	 */
+	public PrinterEmulator(int port, int bufferSize, double speedMmPerSecond, Dialect dialect) throws IOException {
+		this(null, port, bufferSize, speedMmPerSecond, dialect);
+	}
+
+	/**
+	 * @param address
+	 *     Local address to listen on, null for all of them. Several emulators can share port 9100 on 127.0.0.1, 127.0.0.2 and so on, because StarIO always connects to port 9100.
+	 */
+	public PrinterEmulator(InetAddress address, int port, int bufferSize, double speedMmPerSecond, Dialect dialect) throws IOException {
+		mEngine = new PrintEngine(bufferSize, speedMmPerSecond, dialect);
+		mServerSocket = new ServerSocket(port, 50, address);
+	}
+
+	public int getLocalPort() {
+		return mServerSocket.getLocalPort();
+	}
+
+	/**
+	 * This function starts the print engine and accepts connections on a background thread. Like the printer, the emulator serves one connection at a time; the next one waits in the backlog.
+	 */
+	public void start() {
+		mEngineThread = new Thread(mEngine, "PrintEngine");
+		mEngineThread.setDaemon(true);
+		mEngineThread.start();
+
+		Thread acceptThread = new Thread("PrinterEmulator") {
+			@Override
+			public void run() {
+				accept();
+			}
+		};
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	/**
+	 * This function answers the interface query of StarIO, so that it connects without waiting 2 seconds for a reply. It is only needed when StarIO runs on another host; on the same host StarIO binds the UDP port itself.
+	 */
+	public void startDiscovery() throws SocketException {
+		mDiscoverySocket = new DatagramSocket(DISCOVERY_PORT);
+
+		Thread thread = new Thread("PrinterEmulator discovery") {
+			@Override
+			public void run() {
+				answerDiscovery();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void stop() {
+		try {
+			mServerSocket.close();
+		} catch (IOException e) {
+		}
+		if (mDiscoverySocket != null) {
+			mDiscoverySocket.close();
+		}
+		if (mEngineThread != null) {
+			mEngineThread.interrupt();
+		}
+	}
+
+	/**
+	 * This function opens or closes the cover. The printer goes offline and drops the data it has not printed yet.
+	 */
+	public void setCoverOpen(boolean coverOpen) {
+		mEngine.setCoverOpen(coverOpen);
+	}
+
+	/**
+	 * This function takes the paper out or puts it back. The printer goes offline and drops the data it has not printed yet.
+	 */
+	public void setPaperEmpty(boolean paperEmpty) {
+		mEngine.setPaperEmpty(paperEmpty);
+	}
+
+	/**
+	 * This function turns the log of each connection on or off, e.g. off for a benchmark that connects for every receipt
+	 */
+	public void setVerbose(boolean verbose) {
+		mVerbose = verbose;
+	}
+
+	public String getStatistics() {
+		return mEngine.getStatistics();
+	}
+
+	private void accept() {
+		while (true) {
+			Socket socket;
+			try {
+				socket = mServerSocket.accept();
+			} catch (IOException e) {
+				// Stopped
+				return;
+			}
+
+			long startMillis = System.currentTimeMillis();
+			long startBytes = mEngine.getBytes();
+			if (mVerbose == true) {
+				log("Connected from " + socket.getInetAddress().getHostAddress());
+			}
+
+			try {
+				socket.setTcpNoDelay(true);
+				mEngine.setStatusStream(socket.getOutputStream());
+				mEngine.receive(socket.getInputStream());
+			} catch (IOException e) {
+				if (mVerbose == true) {
+					log("Connection failed: " + e.getMessage());
+				}
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				mEngine.setStatusStream(null);
+				try {
+					socket.close();
+				} catch (IOException e) {
+				}
+			}
+
+			if (mVerbose == true) {
+				long millis = Math.max(1, System.currentTimeMillis() - startMillis);
+				long bytes = mEngine.getBytes() - startBytes;
+				log(String.format("Disconnected after %d ms, %d bytes received (%.1f KB/s)", millis, bytes, bytes * 1000.0 / 1024 / millis));
+			}
+		}
+	}
+
+	private void answerDiscovery() {
+		byte[] request = new byte[512];
+
+		while (true) {
+			DatagramPacket packet = new DatagramPacket(request, request.length);
+			try {
+				mDiscoverySocket.receive(packet);
+
+				// The interface name is a NUL terminated string at offset 36
+				byte[] reply = new byte[NIC_NAME_OFFSET + 64];
+				byte[] name = NIC_NAME.getBytes("US-ASCII");
+				System.arraycopy(name, 0, reply, NIC_NAME_OFFSET, name.length);
+
+				mDiscoverySocket.send(new DatagramPacket(reply, reply.length, packet.getSocketAddress()));
+			} catch (IOException e) {
+				// Stopped
+				return;
+			}
+		}
+	}
+
+	private static void log(String message) {
+		System.out.println(message);
+	}
+
+	private static void usage() {
+		System.err.println("Usage: PrinterEmulator [--port n] [--buffer bytes] [--speed mm/s] [--escpos] [--discovery]");
+		System.err.println("  --port       TCP port to listen on (default 9100)");
+		System.err.println("  --buffer     receive buffer size in bytes (default 16384)");
+		System.err.println("  --speed      print speed in mm/s, 0 prints without delay (default 150)");
+		System.err.println("  --escpos     accept the ESC/POS commands of the portable printers instead of Star line mode");
+		System.err.println("  --discovery  answer the interface query of StarIO on UDP port 22222");
+		System.err.println("Commands on the console: cover open, cover close, paper out, paper in, stats, quit");
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		int bufferSize = DEFAULT_BUFFER_SIZE;
+		double speed = DEFAULT_SPEED_MM_PER_SECOND;
+		Dialect dialect = Dialect.StarLine;
+		boolean discovery = false;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("--port") == true) {
+					port = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--buffer") == true) {
+					bufferSize = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--speed") == true) {
+					speed = Double.parseDouble(args[++i]);
+				} else if (args[i].equals("--escpos") == true) {
+					dialect = Dialect.EscPos;
+				} else if (args[i].equals("--discovery") == true) {
+					discovery = true;
+				} else {
+					usage();
+					System.exit(2);
+				}
+			}
+		} catch (RuntimeException e) {
+			usage();
+			System.exit(2);
+		}
+
+		PrinterEmulator emulator = new PrinterEmulator(port, bufferSize, speed, dialect);
+		emulator.start();
+		if (discovery == true) {
+			emulator.startDiscovery();
+		}
+		log(String.format("Emulating a %s printer on port %d, %d byte buffer, %.0f mm/s", dialect, emulator.getLocalPort(), bufferSize, speed));
+
+		BufferedReader console = new BufferedReader(new InputStreamReader(System.in));
+		String line;
+		while ((line = console.readLine()) != null) {
+			line = line.trim();
+
+			if (line.equals("cover open") == true) {
+				emulator.setCoverOpen(true);
+			} else if (line.equals("cover close") == true) {
+				emulator.setCoverOpen(false);
+			} else if (line.equals("paper out") == true) {
+				emulator.setPaperEmpty(true);
+			} else if (line.equals("paper in") == true) {
+				emulator.setPaperEmpty(false);
+			} else if (line.equals("stats") == true) {
+				log(emulator.getStatistics());
+			} else if (line.equals("quit") == true) {
+				break;
+			} else if (line.length() != 0) {
+				usage();
+			}
+		}
+
+		// Without a console, e.g. in the background of a benchmark, the emulator runs until it is killed
+		if (line == null) {
+			while (true) {
+				try {
+					Thread.sleep(Long.MAX_VALUE);
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+
+		log(emulator.getStatistics());
+		emulator.stop();
+	}
+}
@@ -0,0 +1,97 @@
+package com.StarMicronics.StarIOSDK.emulator;
+
+class ReceiveBuffer {
+	// Bytes received from the host that the print engine has not processed yet, limited to the size of the receive buffer of the printer
+
+	static class ClearedException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	private final byte[] mData;
+	private int mHead = 0;
+	private int mCount = 0;
+	private volatile boolean mCleared = false;
+
+	ReceiveBuffer(int size) {
+		mData = new byte[Math.max(1, size)];
+	}
+
+	int getSize() {
+		return mData.length;
+	}
+
+	synchronized int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * @return
+	 *     true if the buffer was cleared and the next take() throws ClearedException
+	 */
+	boolean isCleared() {
+		return mCleared;
+	}
+
+	/**
+	 * This function waits until the buffer has free space. The connection reads the socket only after that, so a full buffer holds the host back through the TCP window like a real printer does.
+	 *
+	 * @return
+	 *     number of bytes that fit into the buffer
+	 */
+	synchronized int waitForSpace() throws InterruptedException {
+		while (mCount == mData.length) {
+			wait();
+		}
+		return mData.length - mCount;
+	}
+
+	/**
+	 * This function stores received bytes. The caller must not put more than waitForSpace() returned.
+	 */
+	synchronized void put(byte[] data, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			mData[(mHead + mCount + i) % mData.length] = data[offset + i];
+		}
+		mCount += length;
+		notifyAll();
+	}
+
+	/**
+	 * This function waits for received bytes and moves up to data.length of them to data
+	 *
+	 * @return
+	 *     number of bytes moved
+	 * @throws ClearedException
+	 *     if the buffer was cleared since the last call, so a command that was being parsed is dropped
+	 */
+	synchronized int take(byte[] data) throws InterruptedException, ClearedException {
+		while ((mCount == 0) && (mCleared == false)) {
+			wait();
+		}
+
+		if (mCleared == true) {
+			mCleared = false;
+			throw new ClearedException();
+		}
+
+		int length = Math.min(data.length, mCount);
+		for (int i = 0; i < length; i++) {
+			data[i] = mData[(mHead + i) % mData.length];
+		}
+		mHead = (mHead + length) % mData.length;
+		mCount -= length;
+		notifyAll();
+
+		return length;
+	}
+
+	/**
+	 * This function drops the bytes that have not been printed
+	 */
+	synchronized void clear() {
+		mHead = 0;
+		mCount = 0;
+		mCleared = true;
+		notifyAll();
+	}
+}